@@ -13,6 +13,11 @@ public class ArraySizeFunction implements NativeFunction {
         return "배열크기";
     }
 
+    @Override
+    public Purity purity() {
+        return Purity.READS_ARRAYS;
+    }
+
     @Override
     public int arity() {
         return 1;  // 배열크기(배열)
@@ -13,6 +13,11 @@ public class ContainsFunction implements NativeFunction {
         return "포함";
     }
 
+    @Override
+    public Purity purity() {
+        return Purity.PURE;
+    }
+
     @Override
     public int arity() {
         return 2; // 포함(전체문자열, 부분문자열)
@@ -12,6 +12,11 @@ public class LengthFunction implements NativeFunction{
         return "길이";
     }
 
+    @Override
+    public Purity purity() {
+        return Purity.PURE;
+    }
+
     @Override
     public int arity() {
         return 1; // 길이(문자열)
@@ -6,4 +6,15 @@ public interface NativeFunction extends WoowaCallable {
 
     // 함수에서 사용될 언어 반환
     String getName();
+
+    // 루프 밖으로 옮겨도 되는지 고를 때 쓴다. 모르면 IMPURE
+    default Purity purity() {
+        return Purity.IMPURE;
+    }
+
+    enum Purity {
+        PURE, // 인자 값만으로 결과가 정해지고 부작용이 없다.
+        READS_ARRAYS, // PURE 와 같지만 인자로 받은 배열의 내용도 읽는다.
+        IMPURE // 입출력을 하거나, 인자를 바꾸거나, 부를 때마다 새 값을 만든다.
+    }
 }
@@ -5,7 +5,7 @@ import woowa.Environment;
 
 public class NativeFunctionRegistry {
 
-    private List<NativeFunction> getNativeFunctions() {
+    public List<NativeFunction> getNativeFunctions() {
         return List.of(
             new ClockFunction(),
             new ReadInputFunction(),
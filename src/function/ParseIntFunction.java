@@ -12,6 +12,11 @@ public class ParseIntFunction implements NativeFunction{
         return "정수파싱";
     }
 
+    @Override
+    public Purity purity() {
+        return Purity.PURE;
+    }
+
     @Override
     public int arity() {
         return 1; // 정수파싱(문자열)
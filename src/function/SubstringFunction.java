@@ -13,6 +13,11 @@ public class SubstringFunction implements NativeFunction {
         return "부분문자열";
     }
 
+    @Override
+    public Purity purity() {
+        return Purity.PURE;
+    }
+
     @Override
     public int arity() {
         return 3; // 부분문자열(문자열, 시작인덱스, 끝 인덱스)
@@ -11,6 +11,12 @@ import java.util.List;
  * Expr(Expression), Stmt(Statement) 생성
  * 보일러플레이트 코드
  *
+ * [형식] 클래스명 : 생성자 필드들 | 가변 필드들
+ * '|' 뒤의 필드는 생성자에 포함되지 않고 Resolver 같은 이후 단계가 채운다.
+ *
+ * 기반 클래스는 sealed 이고 노드 클래스는 final 이다. 노드마다 종류 번호(kind)를 두므로 Visitor 대신
+ * switch (expr.kind) 로 분기할 수도 있다.
+ *
  * [실행]
  * javac -d out/production/WoowaLang src/tool/GenerateAst.java
  * java -cp out/production/WoowaLang tool.GenerateAst src/woowa
@@ -25,9 +31,10 @@ public class GenerateAst {
         String outputDir = args[0];
         defineAst(outputDir, "Expr", Arrays.asList(
             "Array    : List<Expr> elements",
-            "Assign   : Token name, Expr value",
-            "Binary   : Expr left, Token operator, Expr right",
-            "Call     : Expr callee, Token paren, List<Expr> arguments",
+            "Assign   : Token name, Expr value | StorageType storage = StorageType.GLOBAL, int slot, Environment.Global global",
+            "Binary   : Expr left, Token operator, Expr right | boolean numeric, boolean leftNumeric, boolean rightNumeric, int state",
+            "Call     : Expr callee, Token paren, List<Expr> arguments | int state, Stmt.Function target," +
+                " Stmt.Function inline, Expr inlineBody, int inlineFrame",
             "Get      : Expr object, Token name",
             "Grouping : Expr expression",
             "Index    : Expr object, Expr index",
@@ -35,24 +42,28 @@ public class GenerateAst {
             "Literal  : Object value",
             "Logical  : Expr left, Token operator, Expr right",
             "Set      : Expr object, Token name, Expr value",
-            "Super    : Token keyword, Token method",
-            "This     : Token keyword",
+            "Super    : Token keyword, Token method | int slot, StorageType thisStorage, int thisSlot",
+            "This     : Token keyword | StorageType storage, int slot",
             "Unary    : Token operator, Expr right",
-            "Variable : Token name"
+            "Variable : Token name | StorageType storage = StorageType.GLOBAL, int slot, Environment.Global global"
         ));
 
         defineAst(outputDir, "Stmt", Arrays.asList(
             "Block      : List<Stmt> statements",
             "Class      : Token name, Expr.Variable superclass," +
-                " List<Stmt.Function> methods",
+                " List<Stmt.Function> methods | int slot = -1, boolean cell, int superSlot",
             "Expression : Expr expression",
+            "For        : Stmt initializer, Expr condition," +
+                " Expr increment, Stmt body",
             "Function   : Token name, List<Token> params," +
-                " List<Stmt> body",
+                " List<Stmt> body | int slot = -1, boolean cell," +
+                " int frameSize, boolean[] cellParams, int[] upvalues," +
+                " int hotness, Jit.Entry compiled, TokenBuffer lazyBody",
             "If         : Expr condition, Stmt thenBranch," +
                 " Stmt elseBranch",
             "Print      : Expr expression",
             "Return     : Token keyword, Expr value",
-            "Var        : Token name, Expr initializer",
+            "Var        : Token name, Expr initializer | int slot = -1, boolean cell",
             "While      : Expr condition, Stmt body"
         ));
     }
@@ -66,9 +77,15 @@ public class GenerateAst {
         writer.println();
         writer.println("import java.util.List;");
         writer.println();
-        writer.println("abstract class " + baseName + " {");
+        writer.println("abstract sealed class " + baseName + " permits");
+        for (int i = 0; i < types.size(); i++) {
+            String className = types.get(i).split(":")[0].trim();
+            writer.println("    " + baseName + "." + className
+                + (i < types.size() - 1 ? "," : " {"));
+        }
 
         defineVisitor(writer, baseName, types);
+        defineKinds(writer, baseName, types);
 
         writer.println();
         writer.println("  // Nested " + baseName + " classes here...");
@@ -76,7 +93,12 @@ public class GenerateAst {
         for (String type : types) {
             String className = type.split(":")[0].trim();
             String fields = type.split(":")[1].trim(); // [robust]
-            defineType(writer, baseName, className, fields);
+            String mutableFields = null;
+            if (fields.contains("|")) {
+                mutableFields = fields.split("\\|")[1].trim();
+                fields = fields.split("\\|")[0].trim();
+            }
+            defineType(writer, baseName, className, fields, mutableFields);
         }
 
         // accept() 메서드
@@ -99,12 +121,34 @@ public class GenerateAst {
         writer.println("  }");
     }
 
+    // 노드 종류 번호와 kind 필드
+    private static void defineKinds(PrintWriter writer, String baseName, List<String> types) {
+        writer.println();
+        writer.println("  // 노드 종류. switch (" + baseName.toLowerCase() + ".kind) 로 분기할 때 쓴다.");
+        for (int i = 0; i < types.size(); i++) {
+            String className = types.get(i).split(":")[0].trim();
+            writer.println("  static final int " + kindName(className) + " = " + i + ";");
+        }
+
+        writer.println();
+        writer.println("  final int kind;");
+        writer.println();
+        writer.println("  " + baseName + "(int kind) {");
+        writer.println("    this.kind = kind;");
+        writer.println("  }");
+    }
+
+    // IndexSet -> INDEX_SET
+    private static String kindName(String className) {
+        return className.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+    }
+
     private static void defineType(
         PrintWriter writer, String baseName,
-        String className, String fieldList) {
+        String className, String fieldList, String mutableFieldList) {
         writer.println("//> " +
             baseName.toLowerCase() + "-" + className.toLowerCase());
-        writer.println("  static class " + className + " extends " +
+        writer.println("  static final class " + className + " extends " +
             baseName + " {");
 
         if (fieldList.length() > 64) {
@@ -113,6 +157,7 @@ public class GenerateAst {
 
         // 생성자.
         writer.println("    " + className + "(" + fieldList + ") {");
+        writer.println("      super(" + kindName(className) + ");");
 
         fieldList = fieldList.replace(",\n          ", ", ");
         // 파라미터 저장
@@ -138,6 +183,15 @@ public class GenerateAst {
             writer.println("    final " + field + ";");
         }
 
+        // 가변 필드.
+        if (mutableFieldList != null) {
+            writer.println();
+            writer.println("    // 이후 단계가 채운다.");
+            for (String field : mutableFieldList.split(", ")) {
+                writer.println("    " + field + ";");
+            }
+        }
+
         writer.println("  }");
         writer.println("//< " +
             baseName.toLowerCase() + "-" + className.toLowerCase());
@@ -0,0 +1,161 @@
+package woowa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * int 배열 하나에 평평하게 펼친 AST
+ * <p>
+ * 노드는 객체가 아니라 {@link #code} 안의 레코드이고, 노드를 가리킬 때는 레코드가 시작하는 위치를 쓴다. 레코드의 첫 칸은
+ * 노드 종류, 나머지 칸은 자식 노드 위치, 상수 풀 번호, 슬롯 번호, 줄 번호다. 리터럴, 이름, 전역 변수 칸, 함수와 클래스
+ * 정보는 상수 풀에 한 번씩만 넣는다. 토큰과 AST 노드 객체를 들고 있지 않으므로 리졸브가 끝난 AST 는 버릴 수 있다.
+ * <p>
+ * 자식 노드가 없으면 {@link #NONE} 을 적는다. 리졸브 결과에 따라 변수 읽기, 쓰기, 정의는 저장 위치별로 다른 종류가 된다.
+ */
+final class Arena {
+
+    static final int NONE = -1;
+
+    // 식. 괄호 안은 종류 다음에 오는 칸이다.
+    static final int CONSTANT = 0; // (상수)
+    static final int LOCAL = 1; // (슬롯)
+    static final int CELL = 2; // (슬롯)
+    static final int UPVALUE = 3; // (업밸류 번호)
+    static final int GLOBAL = 4; // (전역 칸 상수, 이름 상수, 줄)
+    static final int SET_LOCAL = 5; // (슬롯, 값)
+    static final int SET_CELL = 6; // (슬롯, 값)
+    static final int SET_UPVALUE = 7; // (업밸류 번호, 값)
+    static final int SET_GLOBAL = 8; // (전역 칸 상수, 이름 상수, 줄, 값)
+    static final int ADD = 9; // (왼쪽, 오른쪽, 줄) 이하 이항 연산 모두 같다.
+    static final int SUBTRACT = 10;
+    static final int MULTIPLY = 11;
+    static final int DIVIDE = 12;
+    static final int GREATER = 13;
+    static final int GREATER_EQUAL = 14;
+    static final int LESS = 15;
+    static final int LESS_EQUAL = 16;
+    static final int EQUAL = 17;
+    static final int NOT_EQUAL = 18;
+    static final int AND = 19; // (왼쪽, 오른쪽)
+    static final int OR = 20; // (왼쪽, 오른쪽)
+    static final int NOT = 21; // (피연산자)
+    static final int NEGATE = 22; // (피연산자, 줄)
+    static final int CALL = 23; // (피호출자, 줄, 인자 수, 인자...)
+    static final int GET = 24; // (객체, 이름 상수, 줄)
+    static final int SET = 25; // (객체, 이름 상수, 줄, 값)
+    static final int INDEX = 26; // (배열, 인덱스)
+    static final int INDEX_SET = 27; // (배열, 인덱스, 값)
+    static final int ARRAY = 28; // (요소 수, 요소...)
+    static final int SUPER = 29; // (super 업밸류 번호, this 읽기, 이름 상수, 줄)
+    static final int CLOSURE = 30; // (함수 정보 상수)
+
+    // 문장
+    static final int EXPRESSION = 31; // (식)
+    static final int PRINT = 32; // (식)
+    static final int DEFINE_LOCAL = 33; // (슬롯, 값)
+    static final int DEFINE_CELL = 34; // (슬롯, 값)
+    static final int DEFINE_GLOBAL = 35; // (전역 칸 상수, 값)
+    static final int BLOCK = 36; // (문장 수, 문장...)
+    static final int IF = 37; // (조건, then, else)
+    static final int WHILE = 38; // (조건, 본문)
+    static final int FOR = 39; // (초기화, 조건, 증감, 본문)
+    static final int RETURN = 40; // (값)
+    static final int CLASS = 41; // (클래스 정보 상수, 슈퍼클래스)
+
+    // 함수 하나를 만드는 데 필요한 정보. 본문은 BLOCK 노드다.
+    static final class FunctionInfo {
+
+        final String name;
+        final int arity;
+        final int frameSize;
+        final boolean[] cellParams;
+        final int[] upvalues;
+        final int body;
+
+        FunctionInfo(String name, int arity, int frameSize, boolean[] cellParams, int[] upvalues, int body) {
+            this.name = name;
+            this.arity = arity;
+            this.frameSize = frameSize;
+            this.cellParams = cellParams;
+            this.upvalues = upvalues;
+            this.body = body;
+        }
+    }
+
+    // 클래스 선언 하나의 정보. global 이 null 이면 slot 에 정의한다.
+    static final class ClassInfo {
+
+        final String name;
+        final Environment.Global global;
+        final int slot;
+        final boolean cell;
+        final int superSlot;
+        final int superclassLine;
+        final FunctionInfo[] methods;
+
+        ClassInfo(String name, Environment.Global global, int slot, boolean cell, int superSlot,
+            int superclassLine, FunctionInfo[] methods) {
+            this.name = name;
+            this.global = global;
+            this.slot = slot;
+            this.cell = cell;
+            this.superSlot = superSlot;
+            this.superclassLine = superclassLine;
+            this.methods = methods;
+        }
+    }
+
+    private int[] code = new int[256];
+    private int size = 0;
+    private Object[] constants = new Object[16];
+    private int constantCount = 0;
+    private Map<Object, Integer> constantIndex = new HashMap<>(); // 같은 상수는 한 번만 넣는다.
+    private int[] statements; // 최상위 문장
+
+    // 레코드를 덧붙이고 그 위치를 돌려준다.
+    int add(int kind, int... operands) {
+        int node = size;
+        if (size + 1 + operands.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + 1 + operands.length));
+        }
+        code[size++] = kind;
+        System.arraycopy(operands, 0, code, size, operands.length);
+        size += operands.length;
+        return node;
+    }
+
+    int constant(Object value) {
+        Integer index = constantIndex.get(value);
+        if (index != null) {
+            return index;
+        }
+
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        constantIndex.put(value, constantCount);
+        return constantCount++;
+    }
+
+    // 다 만들었으면 배열을 실제 크기로 줄이고 상수 색인을 버린다.
+    void finish(int[] statements) {
+        this.statements = statements;
+        code = Arrays.copyOf(code, size);
+        constants = Arrays.copyOf(constants, constantCount);
+        constantIndex = null;
+    }
+
+    int[] code() {
+        return code;
+    }
+
+    Object[] constants() {
+        return constants;
+    }
+
+    int[] statements() {
+        return statements;
+    }
+}
@@ -0,0 +1,273 @@
+package woowa;
+
+import function.NativeFunctionRegistry;
+import java.util.List;
+
+/**
+ * Resolver 가 분석한 AST 를 {@link Arena} 로 펼친다.
+ * <p>
+ * 변수의 저장 위치와 연산자 종류는 여기서 노드 종류로 정해 두고, 토큰에서는 이름과 줄 번호만 옮겨 적는다. 펼친 뒤에는
+ * AST 를 참조하지 않는다. 노드 종류로 바로 분기하므로 Visitor 를 쓰지 않는다.
+ */
+final class ArenaCompiler {
+
+    final Environment globals = new Environment();
+    private Arena arena;
+
+    ArenaCompiler() {
+        NativeFunctionRegistry registry = new NativeFunctionRegistry();
+        registry.registerAll(globals);
+    }
+
+    Arena compile(List<Stmt> statements) {
+        arena = new Arena();
+        int[] nodes = lowerAll(statements);
+        arena.finish(nodes);
+        Arena result = arena;
+        arena = null;
+        return result;
+    }
+
+    private int[] lowerAll(List<Stmt> statements) {
+        int[] nodes = new int[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = lower(statements.get(i));
+        }
+        return nodes;
+    }
+
+    private int lowerOptional(Stmt stmt) {
+        return stmt == null ? Arena.NONE : lower(stmt);
+    }
+
+    private int lowerOptional(Expr expr) {
+        return expr == null ? Arena.NONE : lower(expr);
+    }
+
+    // (개수, 노드...) 모양의 레코드
+    private int list(int kind, int[] nodes) {
+        int[] operands = new int[nodes.length + 1];
+        operands[0] = nodes.length;
+        System.arraycopy(nodes, 0, operands, 1, nodes.length);
+        return arena.add(kind, operands);
+    }
+
+    private int lower(Stmt stmt) {
+        switch (stmt.kind) {
+            case Stmt.BLOCK:
+                return list(Arena.BLOCK, lowerAll(((Stmt.Block) stmt).statements));
+            case Stmt.CLASS:
+                return lowerClass((Stmt.Class) stmt);
+            case Stmt.EXPRESSION:
+                return arena.add(Arena.EXPRESSION, lower(((Stmt.Expression) stmt).expression));
+            case Stmt.FOR: {
+                Stmt.For loop = (Stmt.For) stmt;
+                return arena.add(Arena.FOR, lowerOptional(loop.initializer), lowerOptional(loop.condition),
+                    lowerOptional(loop.increment), lower(loop.body));
+            }
+            case Stmt.FUNCTION: {
+                Stmt.Function function = (Stmt.Function) stmt;
+                int closure = arena.add(Arena.CLOSURE, arena.constant(function(function)));
+                return define(function.name, function.slot, function.cell, closure);
+            }
+            case Stmt.IF: {
+                Stmt.If branch = (Stmt.If) stmt;
+                return arena.add(Arena.IF, lower(branch.condition), lower(branch.thenBranch),
+                    lowerOptional(branch.elseBranch));
+            }
+            case Stmt.PRINT:
+                return arena.add(Arena.PRINT, lower(((Stmt.Print) stmt).expression));
+            case Stmt.RETURN:
+                return arena.add(Arena.RETURN, lowerOptional(((Stmt.Return) stmt).value));
+            case Stmt.VAR: {
+                Stmt.Var var = (Stmt.Var) stmt;
+                return define(var.name, var.slot, var.cell, lowerOptional(var.initializer));
+            }
+            case Stmt.WHILE: {
+                Stmt.While loop = (Stmt.While) stmt;
+                return arena.add(Arena.WHILE, lower(loop.condition), lower(loop.body));
+            }
+            default:
+                throw new IllegalStateException("알 수 없는 문장: " + stmt.kind);
+        }
+    }
+
+    // 최상위에서는 전역 변수로, 그 외에는 프레임 슬롯에 정의한다.
+    private int define(Token name, int slot, boolean cell, int value) {
+        if (slot == -1) {
+            return arena.add(Arena.DEFINE_GLOBAL, arena.constant(globals.global(name.lexeme)), value);
+        }
+        return arena.add(cell ? Arena.DEFINE_CELL : Arena.DEFINE_LOCAL, slot, value);
+    }
+
+    private Arena.FunctionInfo function(Stmt.Function function) {
+        int body = list(Arena.BLOCK, lowerAll(function.body));
+        return new Arena.FunctionInfo(function.name.lexeme, function.params.size(), function.frameSize,
+            function.cellParams, function.upvalues, body);
+    }
+
+    private int lowerClass(Stmt.Class stmt) {
+        int superclass = lowerOptional(stmt.superclass);
+        Arena.FunctionInfo[] methods = new Arena.FunctionInfo[stmt.methods.size()];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = function(stmt.methods.get(i));
+        }
+
+        Environment.Global global = stmt.slot == -1 ? globals.global(stmt.name.lexeme) : null;
+        int superclassLine = stmt.superclass == null ? -1 : stmt.superclass.name.line;
+        Arena.ClassInfo info = new Arena.ClassInfo(stmt.name.lexeme, global, stmt.slot, stmt.cell,
+            stmt.superSlot, superclassLine, methods);
+        return arena.add(Arena.CLASS, arena.constant(info), superclass);
+    }
+
+    private int lower(Expr expr) {
+        switch (expr.kind) {
+            case Expr.ARRAY:
+                return list(Arena.ARRAY, lowerAllExpr(((Expr.Array) expr).elements));
+            case Expr.ASSIGN:
+                return lowerAssign((Expr.Assign) expr);
+            case Expr.BINARY:
+                return lowerBinary((Expr.Binary) expr);
+            case Expr.CALL: {
+                Expr.Call call = (Expr.Call) expr;
+                int callee = lower(call.callee);
+                int[] arguments = lowerAllExpr(call.arguments);
+                int[] operands = new int[arguments.length + 3];
+                operands[0] = callee;
+                operands[1] = call.paren.line;
+                operands[2] = arguments.length;
+                System.arraycopy(arguments, 0, operands, 3, arguments.length);
+                return arena.add(Arena.CALL, operands);
+            }
+            case Expr.GET: {
+                Expr.Get get = (Expr.Get) expr;
+                return arena.add(Arena.GET, lower(get.object), arena.constant(get.name.lexeme), get.name.line);
+            }
+            case Expr.GROUPING:
+                return lower(((Expr.Grouping) expr).expression);
+            case Expr.INDEX: {
+                Expr.Index index = (Expr.Index) expr;
+                return arena.add(Arena.INDEX, lower(index.object), lower(index.index));
+            }
+            case Expr.INDEX_SET: {
+                Expr.IndexSet set = (Expr.IndexSet) expr;
+                return arena.add(Arena.INDEX_SET, lower(set.object), lower(set.index), lower(set.value));
+            }
+            case Expr.LITERAL:
+                return arena.add(Arena.CONSTANT, arena.constant(((Expr.Literal) expr).value));
+            case Expr.LOGICAL: {
+                Expr.Logical logical = (Expr.Logical) expr;
+                int kind = logical.operator.type == TokenType.OR ? Arena.OR : Arena.AND;
+                return arena.add(kind, lower(logical.left), lower(logical.right));
+            }
+            case Expr.SET: {
+                Expr.Set set = (Expr.Set) expr;
+                return arena.add(Arena.SET, lower(set.object), arena.constant(set.name.lexeme), set.name.line,
+                    lower(set.value));
+            }
+            case Expr.SUPER: {
+                Expr.Super superExpr = (Expr.Super) expr;
+                int receiver = load(superExpr.thisStorage, superExpr.thisSlot);
+                return arena.add(Arena.SUPER, superExpr.slot, receiver,
+                    arena.constant(superExpr.method.lexeme), superExpr.method.line);
+            }
+            case Expr.THIS: {
+                Expr.This thisExpr = (Expr.This) expr;
+                return load(thisExpr.storage, thisExpr.slot);
+            }
+            case Expr.UNARY: {
+                Expr.Unary unary = (Expr.Unary) expr;
+                int right = lower(unary.right);
+                if (unary.operator.type == TokenType.BANG) {
+                    return arena.add(Arena.NOT, right);
+                }
+                return arena.add(Arena.NEGATE, right, unary.operator.line);
+            }
+            case Expr.VARIABLE: {
+                Expr.Variable variable = (Expr.Variable) expr;
+                if (variable.storage == StorageType.GLOBAL) {
+                    Token name = variable.name;
+                    return arena.add(Arena.GLOBAL, arena.constant(globals.global(name.lexeme)),
+                        arena.constant(name.lexeme), name.line);
+                }
+                return load(variable.storage, variable.slot);
+            }
+            default:
+                throw new IllegalStateException("알 수 없는 표현식: " + expr.kind);
+        }
+    }
+
+    private int[] lowerAllExpr(List<Expr> exprs) {
+        int[] nodes = new int[exprs.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = lower(exprs.get(i));
+        }
+        return nodes;
+    }
+
+    private int load(StorageType storage, int slot) {
+        switch (storage) {
+            case LOCAL:
+                return arena.add(Arena.LOCAL, slot);
+            case CELL:
+                return arena.add(Arena.CELL, slot);
+            default:
+                return arena.add(Arena.UPVALUE, slot);
+        }
+    }
+
+    private int lowerAssign(Expr.Assign expr) {
+        int value = lower(expr.value);
+        switch (expr.storage) {
+            case LOCAL:
+                return arena.add(Arena.SET_LOCAL, expr.slot, value);
+            case CELL:
+                return arena.add(Arena.SET_CELL, expr.slot, value);
+            case UPVALUE:
+                return arena.add(Arena.SET_UPVALUE, expr.slot, value);
+            default:
+                Token name = expr.name;
+                return arena.add(Arena.SET_GLOBAL, arena.constant(globals.global(name.lexeme)),
+                    arena.constant(name.lexeme), name.line, value);
+        }
+    }
+
+    private int lowerBinary(Expr.Binary expr) {
+        int left = lower(expr.left);
+        int right = lower(expr.right);
+        int kind;
+        switch (expr.operator.type) {
+            case BANG_EQUAL:
+                kind = Arena.NOT_EQUAL;
+                break;
+            case EQUAL_EQUAL:
+                kind = Arena.EQUAL;
+                break;
+            case GREATER:
+                kind = Arena.GREATER;
+                break;
+            case GREATER_EQUAL:
+                kind = Arena.GREATER_EQUAL;
+                break;
+            case LESS:
+                kind = Arena.LESS;
+                break;
+            case LESS_EQUAL:
+                kind = Arena.LESS_EQUAL;
+                break;
+            case MINUS:
+                kind = Arena.SUBTRACT;
+                break;
+            case SLASH:
+                kind = Arena.DIVIDE;
+                break;
+            case STAR:
+                kind = Arena.MULTIPLY;
+                break;
+            default:
+                kind = Arena.ADD;
+                break;
+        }
+        return arena.add(kind, left, right, expr.operator.line);
+    }
+}
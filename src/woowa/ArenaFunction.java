@@ -0,0 +1,71 @@
+package woowa;
+
+import java.util.List;
+
+/**
+ * 아레나 엔진의 사용자 함수
+ * <p>
+ * 클래스, 인스턴스는 다른 엔진과 같은 것을 쓰므로 WoowaFunction 을 상속한다. 선언 AST 대신 {@link Arena.FunctionInfo}
+ * 를 들고 있고, 본문은 자기를 만든 아레나의 인터프리터가 실행한다.
+ */
+final class ArenaFunction extends WoowaFunction {
+
+    final Arena.FunctionInfo info;
+    private final ArenaInterpreter interpreter;
+
+    ArenaFunction(ArenaInterpreter interpreter, Arena.FunctionInfo info, Cell[] upvalues,
+        boolean isInitializer) {
+        this(interpreter, info, upvalues, null, isInitializer);
+    }
+
+    private ArenaFunction(ArenaInterpreter interpreter, Arena.FunctionInfo info, Cell[] upvalues,
+        WoowaInstance receiver, boolean isInitializer) {
+        super(null, upvalues, receiver, isInitializer);
+        this.interpreter = interpreter;
+        this.info = info;
+    }
+
+    @Override
+    WoowaFunction bind(WoowaInstance instance) {
+        return new ArenaFunction(interpreter, info, upvalues, instance, isInitializer);
+    }
+
+    @Override
+    public int arity() {
+        return info.arity;
+    }
+
+    @Override
+    public String toString() {
+        return "<fn " + info.name + ">";
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        Object[] slots = new Object[info.frameSize];
+        int slot = receiverSlot(slots);
+        for (Object argument : arguments) {
+            store(slots, slot++, argument);
+        }
+        return invoke(slots);
+    }
+
+    // 메서드는 0번 슬롯에 this 를 받는다. 첫 번째 인자의 슬롯을 돌려준다.
+    int receiverSlot(Object[] slots) {
+        if (receiver == null) {
+            return 0;
+        }
+        store(slots, 0, receiver);
+        return 1;
+    }
+
+    void store(Object[] slots, int slot, Object value) {
+        slots[slot] = info.cellParams[slot] ? new Cell(value) : value;
+    }
+
+    // 인자가 채워진 슬롯으로 본문을 실행한다.
+    Object invoke(Object[] slots) {
+        Object returnValue = interpreter.run(info, slots, upvalues);
+        return isInitializer ? receiver : returnValue;
+    }
+}
@@ -0,0 +1,408 @@
+package woowa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Arena} 를 노드 위치로 순회하며 실행한다.
+ * <p>
+ * 노드를 읽을 때는 code 배열의 연속된 칸만 보므로 AST 객체를 따라 힙을 돌아다니지 않는다. 실행 결과와 에러 메시지는 다른
+ * 엔진과 같다.
+ */
+final class ArenaInterpreter {
+
+    private static final Cell[] NO_UPVALUES = new Cell[0];
+
+    private final int[] code;
+    private final Object[] constants;
+    private final int[] statements;
+
+    // 함수 호출 하나의 실행 상태
+    static final class Frame {
+
+        final Object[] slots;
+        final Cell[] upvalues;
+        Object returnValue;
+
+        Frame(Object[] slots, Cell[] upvalues) {
+            this.slots = slots;
+            this.upvalues = upvalues;
+        }
+    }
+
+    ArenaInterpreter(Arena arena) {
+        this.code = arena.code();
+        this.constants = arena.constants();
+        this.statements = arena.statements();
+    }
+
+    void interpret(int frameSize) {
+        Frame frame = new Frame(new Object[frameSize], NO_UPVALUES);
+        try {
+            for (int statement : statements) {
+                execute(statement, frame);
+            }
+        } catch (RuntimeError error) {
+            Woowa.runtimeError(error);
+        }
+    }
+
+    // 인자가 채워진 슬롯으로 함수 본문을 실행하고 반환값을 돌려준다.
+    Object run(Arena.FunctionInfo function, Object[] slots, Cell[] upvalues) {
+        Frame frame = new Frame(slots, upvalues);
+        return execute(function.body, frame) ? frame.returnValue : null;
+    }
+
+    // 문장을 실행한다. return 문을 만나면 true
+    private boolean execute(int node, Frame frame) {
+        int[] code = this.code;
+        switch (code[node]) {
+            case Arena.EXPRESSION:
+                evaluate(code[node + 1], frame);
+                return false;
+            case Arena.PRINT:
+                System.out.println(Interpreter.stringify(evaluate(code[node + 1], frame)));
+                return false;
+            case Arena.DEFINE_LOCAL:
+                frame.slots[code[node + 1]] = evaluateOptional(code[node + 2], frame);
+                return false;
+            case Arena.DEFINE_CELL:
+                frame.slots[code[node + 1]] = new Cell(evaluateOptional(code[node + 2], frame));
+                return false;
+            case Arena.DEFINE_GLOBAL:
+                ((Environment.Global) constants[code[node + 1]]).define(evaluateOptional(code[node + 2], frame));
+                return false;
+            case Arena.BLOCK: {
+                int end = node + 2 + code[node + 1];
+                for (int i = node + 2; i < end; i++) {
+                    if (execute(code[i], frame)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case Arena.IF:
+                if (Interpreter.isTruthy(evaluate(code[node + 1], frame))) {
+                    return execute(code[node + 2], frame);
+                }
+                return code[node + 3] != Arena.NONE && execute(code[node + 3], frame);
+            case Arena.WHILE:
+                while (Interpreter.isTruthy(evaluate(code[node + 1], frame))) {
+                    if (execute(code[node + 2], frame)) {
+                        return true;
+                    }
+                }
+                return false;
+            case Arena.FOR:
+                return executeFor(node, frame);
+            case Arena.RETURN:
+                frame.returnValue = evaluateOptional(code[node + 1], frame);
+                return true;
+            case Arena.CLASS:
+                defineClass(node, frame);
+                return false;
+            default:
+                throw new IllegalStateException("알 수 없는 문장: " + code[node]);
+        }
+    }
+
+    private boolean executeFor(int node, Frame frame) {
+        int initializer = code[node + 1];
+        int condition = code[node + 2];
+        int increment = code[node + 3];
+        int body = code[node + 4];
+
+        if (initializer != Arena.NONE) {
+            execute(initializer, frame);
+        }
+        while (condition == Arena.NONE || Interpreter.isTruthy(evaluate(condition, frame))) {
+            if (execute(body, frame)) {
+                return true;
+            }
+            if (increment != Arena.NONE) {
+                evaluate(increment, frame);
+            }
+        }
+        return false;
+    }
+
+    private void defineClass(int node, Frame frame) {
+        Arena.ClassInfo info = (Arena.ClassInfo) constants[code[node + 1]];
+        int superclassNode = code[node + 2];
+
+        Object superclass = null;
+        if (superclassNode != Arena.NONE) {
+            superclass = evaluate(superclassNode, frame);
+            if (!(superclass instanceof WoowaClass)) {
+                throw error(info.superclassLine, "슈퍼클래스는 클래스여야 한다.");
+            }
+        }
+
+        if (info.global != null) {
+            info.global.define(null);
+        } else {
+            frame.slots[info.slot] = info.cell ? new Cell(null) : null;
+        }
+        if (superclassNode != Arena.NONE) {
+            frame.slots[info.superSlot] = new Cell(superclass);
+        }
+
+        Map<String, WoowaFunction> methods = new HashMap<>();
+        for (Arena.FunctionInfo method : info.methods) {
+            methods.put(method.name, new ArenaFunction(this, method, capture(frame, method.upvalues),
+                method.name.equals("init")));
+        }
+
+        WoowaClass klass = new WoowaClass(info.name, (WoowaClass) superclass, methods);
+        if (info.global != null) {
+            info.global.value = klass;
+        } else if (info.cell) {
+            ((Cell) frame.slots[info.slot]).value = klass;
+        } else {
+            frame.slots[info.slot] = klass;
+        }
+    }
+
+    // Resolver 가 정해 준 위치에서 함수가 참조하는 바깥 변수의 Cell 을 모은다.
+    private static Cell[] capture(Frame frame, int[] sources) {
+        if (sources.length == 0) {
+            return NO_UPVALUES;
+        }
+
+        Cell[] captured = new Cell[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            captured[i] = source >= 0 ? (Cell) frame.slots[source] : frame.upvalues[~source];
+        }
+        return captured;
+    }
+
+    private Object evaluateOptional(int node, Frame frame) {
+        return node == Arena.NONE ? null : evaluate(node, frame);
+    }
+
+    private Object evaluate(int node, Frame frame) {
+        int[] code = this.code;
+        switch (code[node]) {
+            case Arena.CONSTANT:
+                return constants[code[node + 1]];
+            case Arena.LOCAL:
+                return frame.slots[code[node + 1]];
+            case Arena.CELL:
+                return ((Cell) frame.slots[code[node + 1]]).value;
+            case Arena.UPVALUE:
+                return frame.upvalues[code[node + 1]].value;
+            case Arena.GLOBAL:
+                return ((Environment.Global) constants[code[node + 1]])
+                    .get((String) constants[code[node + 2]], code[node + 3]);
+            case Arena.SET_LOCAL:
+                return frame.slots[code[node + 1]] = evaluate(code[node + 2], frame);
+            case Arena.SET_CELL:
+                return ((Cell) frame.slots[code[node + 1]]).value = evaluate(code[node + 2], frame);
+            case Arena.SET_UPVALUE:
+                return frame.upvalues[code[node + 1]].value = evaluate(code[node + 2], frame);
+            case Arena.SET_GLOBAL: {
+                Object value = evaluate(code[node + 4], frame);
+                ((Environment.Global) constants[code[node + 1]])
+                    .assign((String) constants[code[node + 2]], code[node + 3], value);
+                return value;
+            }
+            case Arena.ADD:
+                return add(node, evaluate(code[node + 1], frame), evaluate(code[node + 2], frame));
+            case Arena.SUBTRACT:
+            case Arena.MULTIPLY:
+            case Arena.DIVIDE:
+            case Arena.GREATER:
+            case Arena.GREATER_EQUAL:
+            case Arena.LESS:
+            case Arena.LESS_EQUAL:
+                return arithmetic(node, evaluate(code[node + 1], frame), evaluate(code[node + 2], frame));
+            case Arena.EQUAL:
+                return Interpreter.isEqual(evaluate(code[node + 1], frame), evaluate(code[node + 2], frame));
+            case Arena.NOT_EQUAL:
+                return !Interpreter.isEqual(evaluate(code[node + 1], frame), evaluate(code[node + 2], frame));
+            case Arena.AND: {
+                Object left = evaluate(code[node + 1], frame);
+                return !Interpreter.isTruthy(left) ? left : evaluate(code[node + 2], frame);
+            }
+            case Arena.OR: {
+                Object left = evaluate(code[node + 1], frame);
+                return Interpreter.isTruthy(left) ? left : evaluate(code[node + 2], frame);
+            }
+            case Arena.NOT:
+                return !Interpreter.isTruthy(evaluate(code[node + 1], frame));
+            case Arena.NEGATE: {
+                Object value = evaluate(code[node + 1], frame);
+                if (!(value instanceof Double)) {
+                    throw error(code[node + 2], "피연산자는 숫자여야 합니다.");
+                }
+                return Numbers.box(-(double) value);
+            }
+            case Arena.CALL:
+                return call(node, frame);
+            case Arena.GET: {
+                Object object = evaluate(code[node + 1], frame);
+                if (object instanceof WoowaInstance) {
+                    return ((WoowaInstance) object).get((String) constants[code[node + 2]], code[node + 3]);
+                }
+                throw error(code[node + 3], "오직 인스턴스만이 속성을 가집니다.");
+            }
+            case Arena.SET: {
+                Object object = evaluate(code[node + 1], frame);
+                if (!(object instanceof WoowaInstance)) {
+                    throw error(code[node + 3], "오직 인스턴스만이 필드를 가집니다.");
+                }
+                Object value = evaluate(code[node + 4], frame);
+                ((WoowaInstance) object).set((String) constants[code[node + 2]], value);
+                return value;
+            }
+            case Arena.INDEX:
+                return index(node, frame);
+            case Arena.INDEX_SET:
+                return indexSet(node, frame);
+            case Arena.ARRAY: {
+                int count = code[node + 1];
+                List<Object> values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(evaluate(code[node + 2 + i], frame));
+                }
+                return new WoowaArray(values);
+            }
+            case Arena.SUPER:
+                return superMethod(node, frame);
+            case Arena.CLOSURE:
+                Arena.FunctionInfo function = (Arena.FunctionInfo) constants[code[node + 1]];
+                return new ArenaFunction(this, function, capture(frame, function.upvalues), false);
+            default:
+                throw new IllegalStateException("알 수 없는 표현식: " + code[node]);
+        }
+    }
+
+    private Object add(int node, Object left, Object right) {
+        // 숫자일 경우 연산
+        if (left instanceof Double && right instanceof Double) {
+            return Numbers.box((double) left + (double) right);
+        }
+        // 문자일 경우 문자열 합치기
+        if (left instanceof String || right instanceof String) {
+            return Interpreter.stringify(left) + Interpreter.stringify(right);
+        }
+
+        throw error(code[node + 3], "피연산자는 두개의 숫자거나 문자열 연결을 위한 하나 이상의 문자열이어야 합니다.");
+    }
+
+    private Object arithmetic(int node, Object left, Object right) {
+        if (!(left instanceof Double && right instanceof Double)) {
+            throw error(code[node + 3], "피연산자들은 숫자여야 합니다.");
+        }
+
+        double a = (double) left;
+        double b = (double) right;
+        switch (code[node]) {
+            case Arena.SUBTRACT:
+                return Numbers.box(a - b);
+            case Arena.MULTIPLY:
+                return Numbers.box(a * b);
+            case Arena.DIVIDE:
+                return Numbers.box(a / b);
+            case Arena.GREATER:
+                return a > b;
+            case Arena.GREATER_EQUAL:
+                return a >= b;
+            case Arena.LESS:
+                return a < b;
+            default:
+                return a <= b;
+        }
+    }
+
+    private Object call(int node, Frame frame) {
+        Object callee = evaluate(code[node + 1], frame);
+        int line = code[node + 2];
+        int count = code[node + 3];
+        int arguments = node + 4;
+
+        // 사용자 함수는 인자를 바로 새 프레임의 슬롯에 평가해 넣는다.
+        if (callee instanceof ArenaFunction && ((ArenaFunction) callee).arity() == count) {
+            ArenaFunction function = (ArenaFunction) callee;
+            Object[] slots = new Object[function.info.frameSize];
+            int slot = function.receiverSlot(slots);
+            for (int i = 0; i < count; i++) {
+                function.store(slots, slot++, evaluate(code[arguments + i], frame));
+            }
+            // 재귀가 너무 깊어 Java 스택이 넘치면 vm 엔진처럼 호출한 줄의 런타임 에러로 바꾼다.
+            try {
+                return function.invoke(slots);
+            } catch (StackOverflowError error) {
+                throw error(line, "스택 오버플로우.");
+            }
+        }
+
+        List<Object> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(evaluate(code[arguments + i], frame));
+        }
+
+        if (!(callee instanceof WoowaCallable)) {
+            throw error(line, "함수와 객체만 호출할 수 있습니다.");
+        }
+
+        WoowaCallable callable = (WoowaCallable) callee;
+        if (values.size() != callable.arity()) {
+            throw error(line, callable.arity() + "개의 인자가 기대됬으나 " + values.size() + "개가 넘어왔습니다.");
+        }
+        try {
+            return callable.call(null, values);
+        } catch (StackOverflowError error) {
+            throw error(line, "스택 오버플로우.");
+        }
+    }
+
+    private Object index(int node, Frame frame) {
+        Object array = evaluate(code[node + 1], frame);
+        if (!(array instanceof WoowaArray)) {
+            throw error(-1, "인덱스 접근은 배열에만 가능합니다.");
+        }
+
+        Object index = evaluate(code[node + 2], frame);
+        if (!(index instanceof Double)) {
+            throw error(-1, "배열 인덱스는 숫자여야 합니다.");
+        }
+        return ((WoowaArray) array).get(((Double) index).intValue());
+    }
+
+    private Object indexSet(int node, Frame frame) {
+        Object array = evaluate(code[node + 1], frame);
+        if (!(array instanceof WoowaArray)) {
+            throw error(-1, "인덱스 할당은 배열에만 가능합니다.");
+        }
+
+        Object index = evaluate(code[node + 2], frame);
+        if (!(index instanceof Double)) {
+            throw error(-1, "배열 인덱스는 숫자여야 합니다.");
+        }
+
+        Object value = evaluate(code[node + 3], frame);
+        ((WoowaArray) array).set(((Double) index).intValue(), value);
+        return value;
+    }
+
+    private Object superMethod(int node, Frame frame) {
+        // super 는 항상 메서드가 캡처한 변수다.
+        WoowaClass superclass = (WoowaClass) frame.upvalues[code[node + 1]].value;
+        WoowaInstance object = (WoowaInstance) evaluate(code[node + 2], frame);
+        String name = (String) constants[code[node + 3]];
+        WoowaFunction method = superclass.findMethod(name);
+
+        if (method == null) {
+            throw error(code[node + 4], "정의되지 않은 속성 '" + name + "'.");
+        }
+        return method.bind(object);
+    }
+
+    private static RuntimeError error(int line, String message) {
+        return new RuntimeError(new Token(null, "", null, line), message);
+    }
+}
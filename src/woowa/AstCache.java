@@ -0,0 +1,105 @@
+package woowa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 리졸브가 끝난 AST 를 소스 옆의 .woowac 파일에 캐시한다.
+ * <p>
+ * 캐시 파일은 소스 내용의 SHA-256 해시, 이미지의 CRC32, {@link AstWriter} 이미지를 차례로 붙인 것이다. 해시가 같고 이미지가
+ * 온전하면 스캔, 파싱, 리졸브를 건너뛰고, 아니면 다시 만들어 저장한다. 정적 에러가 있는 스크립트는 캐시하지 않는다.
+ */
+final class AstCache {
+
+    private static final int HASH_SIZE = 32;
+    private static final int HEADER_SIZE = HASH_SIZE + 4; // 해시 + 체크섬
+
+    private AstCache() {
+    }
+
+    static Program load(Path source, ByteBuffer bytes) {
+        Path cache = cachePath(source);
+        byte[] hash = hash(bytes.duplicate());
+
+        Program program = read(cache, hash);
+        if (program != null) {
+            return program;
+        }
+
+        program = Woowa.resolve(new Scanner(SourceFile.decode(bytes)), false);
+        if (program != null) {
+            write(cache, hash, program);
+        }
+        return program;
+    }
+
+    // foo.woowa -> foo.woowac
+    static Path cachePath(Path source) {
+        return source.resolveSibling(source.getFileName() + "c");
+    }
+
+    private static byte[] hash(ByteBuffer bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int checksum(byte[] image) {
+        CRC32 crc = new CRC32();
+        crc.update(image);
+        return (int) crc.getValue();
+    }
+
+    private static Program read(Path cache, byte[] hash) {
+        try {
+            if (!Files.isRegularFile(cache)) {
+                return null;
+            }
+            byte[] contents = Files.readAllBytes(cache);
+            if (contents.length < HEADER_SIZE
+                || !Arrays.equals(contents, 0, HASH_SIZE, hash, 0, HASH_SIZE)) {
+                return null;
+            }
+            // 잘리거나 깨진 이미지는 읽기 전에 걸러 다시 파싱한다.
+            byte[] image = Arrays.copyOfRange(contents, HEADER_SIZE, contents.length);
+            if (ByteBuffer.wrap(contents, HASH_SIZE, 4).getInt() != checksum(image)) {
+                return null;
+            }
+            return AstReader.read(image);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // 캐시는 없어도 실행할 수 있으므로 저장에 실패하면 무시한다.
+    private static void write(Path cache, byte[] hash, Program program) {
+        byte[] image = AstWriter.write(program);
+        byte[] contents = ByteBuffer.allocate(HEADER_SIZE + image.length)
+            .put(hash, 0, HASH_SIZE)
+            .putInt(checksum(image))
+            .put(image)
+            .array();
+        // 다른 프로세스가 반쯤 쓴 파일을 읽지 않도록 임시 파일에 쓴 뒤 옮긴다.
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(cache.toAbsolutePath().getParent(), ".woowac", null);
+            Files.write(temp, contents);
+            Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException e) {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+}
@@ -59,6 +59,16 @@ class AstPrinter implements Expr.Visitor<String>, Stmt.Visitor<String> {
         return parenthesize(";", stmt.expression);
     }
 
+    @Override
+    public String visitForStmt(Stmt.For stmt) {
+        // 생략된 절은 _ 로 표시
+        return parenthesize2("for",
+            stmt.initializer == null ? "_" : stmt.initializer,
+            stmt.condition == null ? "_" : stmt.condition,
+            stmt.increment == null ? "_" : stmt.increment,
+            stmt.body);
+    }
+
     @Override
     public String visitFunctionStmt(Stmt.Function stmt) {
         StringBuilder builder = new StringBuilder();
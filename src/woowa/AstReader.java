@@ -0,0 +1,281 @@
+package woowa;
+
+import static woowa.AstWriter.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link AstWriter} 가 저장한 바이트에서 리졸브가 끝난 AST 를 다시 만든다.
+ */
+final class AstReader {
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final StorageType[] STORAGE_TYPES = StorageType.values();
+
+    private final byte[] bytes;
+    private int position = 0;
+    private String[] strings;
+
+    private AstReader(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    // 형식이나 버전이 맞지 않거나 중간에 잘렸으면 IllegalArgumentException
+    static Program read(byte[] bytes) {
+        AstReader reader = new AstReader(bytes);
+        try {
+            return reader.program();
+        } catch (IndexOutOfBoundsException | ClassCastException e) {
+            throw new IllegalArgumentException("손상된 AST 이미지입니다.", e);
+        }
+    }
+
+    private Program program() {
+        if (fixedInt() != MAGIC || varint() != VERSION) {
+            throw new IllegalArgumentException("AST 이미지 형식이 아닙니다.");
+        }
+        int topLevelSlots = varint();
+
+        strings = new String[count()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = count();
+            strings[i] = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+        }
+
+        List<Stmt> statements = statements();
+        if (position != bytes.length) {
+            throw new IllegalArgumentException("손상된 AST 이미지입니다.");
+        }
+        return new Program(statements, topLevelSlots);
+    }
+
+    private Expr expression() {
+        int tag = readByte();
+        switch (tag) {
+            case 0:
+                return null;
+            case ARRAY:
+                return new Expr.Array(expressions());
+            case ASSIGN: {
+                Expr.Assign expr = new Expr.Assign(token(), expression());
+                expr.storage = storage();
+                expr.slot = integer();
+                return expr;
+            }
+            case BINARY: {
+                Expr.Binary expr = new Expr.Binary(expression(), token(), expression());
+                expr.numeric = flag();
+                expr.leftNumeric = flag();
+                expr.rightNumeric = flag();
+                return expr;
+            }
+            case CALL:
+                return new Expr.Call(expression(), token(), expressions());
+            case GET:
+                return new Expr.Get(expression(), token());
+            case GROUPING:
+                return new Expr.Grouping(expression());
+            case INDEX:
+                return new Expr.Index(expression(), expression());
+            case INDEX_SET:
+                return new Expr.IndexSet(expression(), expression(), expression());
+            case LITERAL:
+                return new Expr.Literal(value());
+            case LOGICAL:
+                return new Expr.Logical(expression(), token(), expression());
+            case SET:
+                return new Expr.Set(expression(), token(), expression());
+            case SUPER: {
+                Expr.Super expr = new Expr.Super(token(), token());
+                expr.slot = integer();
+                expr.thisStorage = storage();
+                expr.thisSlot = integer();
+                return expr;
+            }
+            case THIS: {
+                Expr.This expr = new Expr.This(token());
+                expr.storage = storage();
+                expr.slot = integer();
+                return expr;
+            }
+            case UNARY:
+                return new Expr.Unary(token(), expression());
+            case VARIABLE: {
+                Expr.Variable expr = new Expr.Variable(token());
+                expr.storage = storage();
+                expr.slot = integer();
+                return expr;
+            }
+            default:
+                throw new IllegalArgumentException("알 수 없는 식 태그 " + tag);
+        }
+    }
+
+    private List<Expr> expressions() {
+        int size = count();
+        List<Expr> exprs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            exprs.add(expression());
+        }
+        return exprs;
+    }
+
+    private Stmt statement() {
+        int tag = readByte();
+        switch (tag) {
+            case 0:
+                return null;
+            case BLOCK:
+                return new Stmt.Block(statements());
+            case CLASS: {
+                Token name = token();
+                Expr.Variable superclass = (Expr.Variable) expression();
+                List<Stmt.Function> methods = new ArrayList<>();
+                for (Stmt method : statements()) {
+                    methods.add((Stmt.Function) method);
+                }
+                Stmt.Class stmt = new Stmt.Class(name, superclass, methods);
+                stmt.slot = integer();
+                stmt.cell = flag();
+                stmt.superSlot = integer();
+                return stmt;
+            }
+            case EXPRESSION:
+                return new Stmt.Expression(expression());
+            case FOR:
+                return new Stmt.For(statement(), expression(), expression(), statement());
+            case FUNCTION:
+                return function();
+            case IF:
+                return new Stmt.If(expression(), statement(), statement());
+            case PRINT:
+                return new Stmt.Print(expression());
+            case RETURN:
+                return new Stmt.Return(token(), expression());
+            case VAR: {
+                Stmt.Var stmt = new Stmt.Var(token(), expression());
+                stmt.slot = integer();
+                stmt.cell = flag();
+                return stmt;
+            }
+            case WHILE:
+                return new Stmt.While(expression(), statement());
+            default:
+                throw new IllegalArgumentException("알 수 없는 문장 태그 " + tag);
+        }
+    }
+
+    private Stmt.Function function() {
+        Token name = token();
+        int arity = count();
+        List<Token> params = new ArrayList<>(arity);
+        for (int i = 0; i < arity; i++) {
+            params.add(token());
+        }
+
+        Stmt.Function stmt = new Stmt.Function(name, params, statements());
+        stmt.slot = integer();
+        stmt.cell = flag();
+        stmt.frameSize = integer();
+        stmt.cellParams = new boolean[count()];
+        for (int i = 0; i < stmt.cellParams.length; i++) {
+            stmt.cellParams[i] = flag();
+        }
+        stmt.upvalues = new int[count()];
+        for (int i = 0; i < stmt.upvalues.length; i++) {
+            stmt.upvalues[i] = integer();
+        }
+        return stmt;
+    }
+
+    private List<Stmt> statements() {
+        int size = count();
+        List<Stmt> stmts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            stmts.add(statement());
+        }
+        return stmts;
+    }
+
+    private Token token() {
+        TokenType type = TOKEN_TYPES[varint()];
+        String lexeme = strings[varint()];
+        Object literal = value();
+        return new Token(type, lexeme, literal, varint());
+    }
+
+    private Object value() {
+        int tag = readByte();
+        switch (tag) {
+            case NIL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case NUMBER:
+                return Double.longBitsToDouble(fixedLong());
+            case STRING:
+                return strings[varint()];
+            default:
+                throw new IllegalArgumentException("알 수 없는 값 태그 " + tag);
+        }
+    }
+
+    private StorageType storage() {
+        int ordinal = varint();
+        return ordinal == 0 ? null : STORAGE_TYPES[ordinal - 1];
+    }
+
+    private boolean flag() {
+        return readByte() != 0;
+    }
+
+    private int integer() {
+        int value = varint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int varint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    // 뒤따르는 원소 수나 바이트 수. 원소 하나는 적어도 한 바이트이므로 남은 바이트보다 많으면 손상된 것이다.
+    private int count() {
+        int count = varint();
+        if (count < 0 || count > bytes.length - position) {
+            throw new IllegalArgumentException("손상된 AST 이미지입니다.");
+        }
+        return count;
+    }
+
+    private int fixedInt() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    private long fixedLong() {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    private int readByte() {
+        return bytes[position++] & 0xff;
+    }
+}
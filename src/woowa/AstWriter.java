@@ -0,0 +1,429 @@
+package woowa;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 리졸브가 끝난 AST 를 바이트로 저장하는 Visitor 구현체
+ * <p>
+ * Resolver 가 채운 슬롯, 저장 위치, 숫자 여부도 함께 저장하므로 {@link AstReader} 로 읽으면 스캔, 파싱, 리졸브 없이 바로
+ * 실행할 수 있다. 실행 중에 채워지는 캐시(전역 칸, 특수화 상태, JIT 코드)는 저장하지 않는다.
+ * <p>
+ * 형식: 매직, 버전, 최상위 슬롯 수, 문자열 테이블, 문장 목록. 정수는 가변 길이로, 문자열은 테이블 번호로 쓴다.
+ */
+final class AstWriter implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+
+    static final int MAGIC = 0x574f4f57; // "WOOW"
+    static final int VERSION = 1;
+
+    // 노드 태그. 0 은 null
+    static final int ARRAY = 1;
+    static final int ASSIGN = 2;
+    static final int BINARY = 3;
+    static final int CALL = 4;
+    static final int GET = 5;
+    static final int GROUPING = 6;
+    static final int INDEX = 7;
+    static final int INDEX_SET = 8;
+    static final int LITERAL = 9;
+    static final int LOGICAL = 10;
+    static final int SET = 11;
+    static final int SUPER = 12;
+    static final int THIS = 13;
+    static final int UNARY = 14;
+    static final int VARIABLE = 15;
+    static final int BLOCK = 16;
+    static final int CLASS = 17;
+    static final int EXPRESSION = 18;
+    static final int FOR = 19;
+    static final int FUNCTION = 20;
+    static final int IF = 21;
+    static final int PRINT = 22;
+    static final int RETURN = 23;
+    static final int VAR = 24;
+    static final int WHILE = 25;
+
+    // 리터럴 값 태그
+    static final int NIL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int NUMBER = 3;
+    static final int STRING = 4;
+
+    private byte[] bytes = new byte[256];
+    private int length = 0;
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+    private AstWriter() {
+    }
+
+    static byte[] write(Program program) {
+        AstWriter body = new AstWriter();
+        body.statements(program.statements);
+
+        AstWriter out = new AstWriter();
+        out.fixed(MAGIC);
+        out.varint(VERSION);
+        out.varint(program.topLevelSlots);
+        out.varint(body.strings.size());
+        for (String string : body.strings.keySet()) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            out.varint(utf8.length);
+            out.raw(utf8);
+        }
+        out.raw(Arrays.copyOf(body.bytes, body.length));
+        return Arrays.copyOf(out.bytes, out.length);
+    }
+
+    // Expr
+
+    @Override
+    public Void visitArrayExpr(Expr.Array expr) {
+        tag(ARRAY);
+        expressions(expr.elements);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        tag(ASSIGN);
+        token(expr.name);
+        expression(expr.value);
+        storage(expr.storage);
+        integer(expr.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        tag(BINARY);
+        expression(expr.left);
+        token(expr.operator);
+        expression(expr.right);
+        flag(expr.numeric);
+        flag(expr.leftNumeric);
+        flag(expr.rightNumeric);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        tag(CALL);
+        expression(expr.callee);
+        token(expr.paren);
+        expressions(expr.arguments);
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        tag(GET);
+        expression(expr.object);
+        token(expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        tag(GROUPING);
+        expression(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexExpr(Expr.Index expr) {
+        tag(INDEX);
+        expression(expr.object);
+        expression(expr.index);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(Expr.IndexSet expr) {
+        tag(INDEX_SET);
+        expression(expr.object);
+        expression(expr.index);
+        expression(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        tag(LITERAL);
+        value(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        tag(LOGICAL);
+        expression(expr.left);
+        token(expr.operator);
+        expression(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        tag(SET);
+        expression(expr.object);
+        token(expr.name);
+        expression(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        tag(SUPER);
+        token(expr.keyword);
+        token(expr.method);
+        integer(expr.slot);
+        storage(expr.thisStorage);
+        integer(expr.thisSlot);
+        return null;
+    }
+
+    @Override
+    public Void visitThisExpr(Expr.This expr) {
+        tag(THIS);
+        token(expr.keyword);
+        storage(expr.storage);
+        integer(expr.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        tag(UNARY);
+        token(expr.operator);
+        expression(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        tag(VARIABLE);
+        token(expr.name);
+        storage(expr.storage);
+        integer(expr.slot);
+        return null;
+    }
+
+    // Stmt
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        tag(BLOCK);
+        statements(stmt.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        tag(CLASS);
+        token(stmt.name);
+        expression(stmt.superclass);
+        statements(stmt.methods);
+        integer(stmt.slot);
+        flag(stmt.cell);
+        integer(stmt.superSlot);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        tag(EXPRESSION);
+        expression(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        tag(FOR);
+        statement(stmt.initializer);
+        expression(stmt.condition);
+        expression(stmt.increment);
+        statement(stmt.body);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        tag(FUNCTION);
+        token(stmt.name);
+        varint(stmt.params.size());
+        for (Token param : stmt.params) {
+            token(param);
+        }
+        statements(stmt.body);
+        integer(stmt.slot);
+        flag(stmt.cell);
+        integer(stmt.frameSize);
+        varint(stmt.cellParams.length);
+        for (boolean cellParam : stmt.cellParams) {
+            flag(cellParam);
+        }
+        varint(stmt.upvalues.length);
+        for (int upvalue : stmt.upvalues) {
+            integer(upvalue);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        tag(IF);
+        expression(stmt.condition);
+        statement(stmt.thenBranch);
+        statement(stmt.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        tag(PRINT);
+        expression(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        tag(RETURN);
+        token(stmt.keyword);
+        expression(stmt.value);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        tag(VAR);
+        token(stmt.name);
+        expression(stmt.initializer);
+        integer(stmt.slot);
+        flag(stmt.cell);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        tag(WHILE);
+        expression(stmt.condition);
+        statement(stmt.body);
+        return null;
+    }
+
+    // 필드
+
+    private void expression(Expr expr) {
+        if (expr == null) {
+            tag(0);
+        } else {
+            expr.accept(this);
+        }
+    }
+
+    private void expressions(List<Expr> exprs) {
+        varint(exprs.size());
+        for (Expr expr : exprs) {
+            expression(expr);
+        }
+    }
+
+    private void statement(Stmt stmt) {
+        if (stmt == null) {
+            tag(0);
+        } else {
+            stmt.accept(this);
+        }
+    }
+
+    private void statements(List<? extends Stmt> stmts) {
+        varint(stmts.size());
+        for (Stmt stmt : stmts) {
+            statement(stmt);
+        }
+    }
+
+    private void token(Token token) {
+        varint(token.type.ordinal());
+        string(token.lexeme);
+        value(token.literal);
+        varint(token.line);
+    }
+
+    private void value(Object value) {
+        if (value == null) {
+            tag(NIL);
+        } else if (value instanceof Boolean) {
+            tag((boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            tag(NUMBER);
+            fixed(Double.doubleToRawLongBits((double) value));
+        } else {
+            tag(STRING);
+            string((String) value);
+        }
+    }
+
+    private void storage(StorageType storage) {
+        varint(storage == null ? 0 : storage.ordinal() + 1);
+    }
+
+    private void string(String value) {
+        Integer index = strings.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.put(value, index);
+        }
+        varint(index);
+    }
+
+    private void flag(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    // 음수(-1 슬롯, ~n 업밸류)도 짧게 쓰도록 지그재그 인코딩한다.
+    private void integer(int value) {
+        varint((value << 1) ^ (value >> 31));
+    }
+
+    private void varint(int value) {
+        while ((value & ~0x7f) != 0) {
+            writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void fixed(int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            writeByte(value >>> shift);
+        }
+    }
+
+    private void fixed(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (value >>> shift));
+        }
+    }
+
+    private void raw(byte[] values) {
+        for (byte value : values) {
+            writeByte(value);
+        }
+    }
+
+    private void tag(int value) {
+        writeByte(value);
+    }
+
+    private void writeByte(int value) {
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, length * 2);
+        }
+        bytes[length++] = (byte) value;
+    }
+}
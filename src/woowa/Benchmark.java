@@ -0,0 +1,52 @@
+package woowa;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+
+/**
+ * 실행 엔진별 수행 시간 비교
+ * <p>
+ * java -cp out/production/WoowaLang woowa.Benchmark [script] [반복 횟수]
+ * <p>
+ * 엔진마다 한 번 실행해 JIT 을 데운 뒤, 지정한 횟수만큼 반복 실행한 평균 시간을 출력한다. 스크립트의 출력은 버린다.
+ */
+public class Benchmark {
+
+    private static final int DEFAULT_REPEAT = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: benchmark [script] [repeat]");
+            System.exit(64);
+        }
+
+        String source = SourceFile.read(Paths.get(args[0])).toString();
+        int repeat = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_REPEAT;
+
+        PrintStream out = System.out;
+        for (Woowa.Engine engine : Woowa.Engine.values()) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                Woowa.run(source, engine); // 워밍업
+
+                long start = System.nanoTime();
+                for (int i = 0; i < repeat; i++) {
+                    Woowa.run(source, engine);
+                }
+                long elapsed = System.nanoTime() - start;
+
+                out.printf("%-8s %10.2f ms%n", engine.name().toLowerCase(),
+                    elapsed / 1_000_000.0 / repeat);
+            } finally {
+                System.setOut(out);
+            }
+
+            if (Woowa.hadError || Woowa.hadRuntimeError) {
+                System.err.println(engine.name().toLowerCase() + " 엔진 실행 중 에러가 발생했습니다.");
+                System.exit(70);
+            }
+        }
+    }
+}
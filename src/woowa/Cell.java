@@ -0,0 +1,15 @@
+package woowa;
+
+/**
+ * 클로저가 캡처한 지역 변수를 담는 상자
+ * <p>
+ * 캡처되지 않은 지역 변수는 프레임 배열에 바로 저장되고, 캡처된 변수만 Cell 로 힙에 올라간다.
+ */
+final class Cell {
+
+    Object value;
+
+    Cell(Object value) {
+        this.value = value;
+    }
+}
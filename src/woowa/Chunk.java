@@ -0,0 +1,66 @@
+package woowa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 바이트코드 묶음
+ * <p>
+ * 명령어 바이트, 명령어별 줄 번호, 상수 테이블을 함께 보관한다.
+ */
+final class Chunk {
+
+    byte[] code = new byte[64];
+    int[] lines = new int[64];
+    int count = 0;
+
+    Object[] constants;
+    // 전역 변수 명령이 처음 실행될 때 이름 상수 자리에 그 변수의 칸을 기억해 둔다.
+    Environment.Global[] globals;
+    private final List<Object> constantList = new ArrayList<>();
+    // 같은 숫자, 문자열 상수는 한 번만 저장
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+    void write(int value, int line) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+            lines = Arrays.copyOf(lines, count * 2);
+        }
+        code[count] = (byte) value;
+        lines[count] = line;
+        count++;
+    }
+
+    int addConstant(Object value) {
+        // 토큰, 함수처럼 값 비교가 의미 없는 상수는 매번 새로 추가
+        boolean shareable = value instanceof Double || value instanceof String;
+        if (shareable) {
+            Integer index = constantIndex.get(value);
+            if (index != null) {
+                return index;
+            }
+        }
+
+        constantList.add(value);
+        int index = constantList.size() - 1;
+        if (shareable) {
+            constantIndex.put(value, index);
+        }
+        return index;
+    }
+
+    int constantCount() {
+        return constantList.size();
+    }
+
+    // 컴파일이 끝나면 실행에 필요한 크기로 정리
+    void finish() {
+        code = Arrays.copyOf(code, count);
+        lines = Arrays.copyOf(lines, count);
+        constants = constantList.toArray();
+        globals = new Environment.Global[constants.length];
+    }
+}
@@ -0,0 +1,695 @@
+package woowa;
+
+import function.NativeFunctionRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 클로저 컴파일 실행 엔진
+ * <p>
+ * Resolver 가 분석한 AST 를 한 번 순회하며 미리 묶어 둔 람다 트리로 바꾼다. 연산자 종류, 변수 위치, 상수 피연산자는
+ * 컴파일할 때 정해지므로 실행 중에는 람다 호출만 남는다.
+ */
+final class ClosureCompiler implements Expr.Visitor<ClosureCompiler.Code>,
+    Stmt.Visitor<ClosureCompiler.Action> {
+
+    private static final Cell[] NO_UPVALUES = new Cell[0];
+
+    final Environment globals = new Environment();
+
+    ClosureCompiler() {
+        NativeFunctionRegistry registry = new NativeFunctionRegistry();
+        registry.registerAll(globals);
+    }
+
+    // 식을 컴파일한 결과
+    interface Code {
+
+        Object run(Frame frame);
+    }
+
+    // 문장을 컴파일한 결과. return 문을 만나면 true 를 돌려준다.
+    interface Action {
+
+        boolean run(Frame frame);
+    }
+
+    // 함수 호출 하나의 실행 상태
+    static final class Frame {
+
+        final Object[] slots;
+        final Cell[] upvalues;
+        Object returnValue;
+
+        Frame(Object[] slots, Cell[] upvalues) {
+            this.slots = slots;
+            this.upvalues = upvalues;
+        }
+    }
+
+    // 컴파일된 함수 본문과 호출에 필요한 정보
+    static final class FunctionCode {
+
+        final Stmt.Function declaration;
+        final Action[] body;
+        final int arity;
+        final int frameSize;
+        // 캡처되는 파라미터가 없으면 인자를 Cell 로 감싸지 않고 바로 넣는다.
+        final boolean plainParams;
+
+        FunctionCode(Stmt.Function declaration, Action[] body) {
+            this.declaration = declaration;
+            this.body = body;
+            this.arity = declaration.params.size();
+            this.frameSize = declaration.frameSize;
+            boolean plain = true;
+            for (boolean cell : declaration.cellParams) {
+                plain &= !cell;
+            }
+            this.plainParams = plain;
+        }
+
+        // 인자가 채워진 슬롯으로 본문을 실행하고 반환값을 돌려준다.
+        Object invoke(Object[] slots, Cell[] upvalues) {
+            Frame frame = new Frame(slots, upvalues);
+            for (Action action : body) {
+                if (action.run(frame)) {
+                    return frame.returnValue;
+                }
+            }
+            return null;
+        }
+    }
+
+    void interpret(List<Stmt> statements, int frameSize) {
+        Action[] actions = compile(statements);
+        Frame frame = new Frame(new Object[frameSize], NO_UPVALUES);
+        try {
+            for (Action action : actions) {
+                action.run(frame);
+            }
+        } catch (RuntimeError error) {
+            Woowa.runtimeError(error);
+        }
+    }
+
+    private Code compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    private Action compile(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    private Action[] compile(List<Stmt> statements) {
+        Action[] actions = new Action[statements.size()];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = compile(statements.get(i));
+        }
+        return actions;
+    }
+
+    private Code[] compileAll(List<Expr> expressions) {
+        Code[] codes = new Code[expressions.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = compile(expressions.get(i));
+        }
+        return codes;
+    }
+
+    @Override
+    public Action visitBlockStmt(Stmt.Block stmt) {
+        Action[] statements = compile(stmt.statements);
+        return frame -> {
+            for (Action statement : statements) {
+                if (statement.run(frame)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @Override
+    public Action visitClassStmt(Stmt.Class stmt) {
+        Token name = stmt.name;
+        Code superclassCode = stmt.superclass == null ? null : compile(stmt.superclass);
+        Action define = define(name, stmt.slot, stmt.cell, frame -> null);
+        int superSlot = stmt.superSlot;
+
+        List<FunctionCode> methods = new ArrayList<>();
+        for (Stmt.Function method : stmt.methods) {
+            methods.add(new FunctionCode(method, compile(method.body)));
+        }
+
+        return frame -> {
+            Object superclass = null;
+            if (superclassCode != null) {
+                superclass = superclassCode.run(frame);
+                if (!(superclass instanceof WoowaClass)) {
+                    throw new RuntimeError(stmt.superclass.name, "슈퍼클래스는 클래스여야 한다.");
+                }
+            }
+
+            define.run(frame);
+            if (superclassCode != null) {
+                frame.slots[superSlot] = new Cell(superclass);
+            }
+
+            Map<String, WoowaFunction> functions = new HashMap<>();
+            for (FunctionCode method : methods) {
+                String methodName = method.declaration.name.lexeme;
+                functions.put(methodName, new ClosureFunction(method,
+                    capture(frame, method.declaration.upvalues), methodName.equals("init")));
+            }
+
+            WoowaClass klass = new WoowaClass(name.lexeme, (WoowaClass) superclass, functions);
+            if (stmt.slot == -1) {
+                globals.assign(name, klass);
+            } else if (stmt.cell) {
+                ((Cell) frame.slots[stmt.slot]).value = klass;
+            } else {
+                frame.slots[stmt.slot] = klass;
+            }
+            return false;
+        };
+    }
+
+    @Override
+    public Action visitExpressionStmt(Stmt.Expression stmt) {
+        Code expression = compile(stmt.expression);
+        return frame -> {
+            expression.run(frame);
+            return false;
+        };
+    }
+
+    @Override
+    public Action visitForStmt(Stmt.For stmt) {
+        Action initializer = stmt.initializer == null ? null : compile(stmt.initializer);
+        Code condition = stmt.condition == null ? frame -> true : compile(stmt.condition);
+        Code increment = stmt.increment == null ? null : compile(stmt.increment);
+        Action body = compile(stmt.body);
+
+        return frame -> {
+            if (initializer != null) {
+                initializer.run(frame);
+            }
+            while (Interpreter.isTruthy(condition.run(frame))) {
+                if (body.run(frame)) {
+                    return true;
+                }
+                if (increment != null) {
+                    increment.run(frame);
+                }
+            }
+            return false;
+        };
+    }
+
+    @Override
+    public Action visitFunctionStmt(Stmt.Function stmt) {
+        FunctionCode code = new FunctionCode(stmt, compile(stmt.body));
+        int[] upvalues = stmt.upvalues;
+        return define(stmt.name, stmt.slot, stmt.cell,
+            frame -> new ClosureFunction(code, capture(frame, upvalues), false));
+    }
+
+    @Override
+    public Action visitIfStmt(Stmt.If stmt) {
+        Code condition = compile(stmt.condition);
+        Action thenBranch = compile(stmt.thenBranch);
+        Action elseBranch = stmt.elseBranch == null ? frame -> false : compile(stmt.elseBranch);
+        return frame -> Interpreter.isTruthy(condition.run(frame))
+            ? thenBranch.run(frame) : elseBranch.run(frame);
+    }
+
+    @Override
+    public Action visitPrintStmt(Stmt.Print stmt) {
+        Code expression = compile(stmt.expression);
+        return frame -> {
+            System.out.println(Interpreter.stringify(expression.run(frame)));
+            return false;
+        };
+    }
+
+    @Override
+    public Action visitReturnStmt(Stmt.Return stmt) {
+        Code value = stmt.value == null ? frame -> null : compile(stmt.value);
+        return frame -> {
+            frame.returnValue = value.run(frame);
+            return true;
+        };
+    }
+
+    @Override
+    public Action visitVarStmt(Stmt.Var stmt) {
+        Code initializer = stmt.initializer == null ? frame -> null : compile(stmt.initializer);
+        return define(stmt.name, stmt.slot, stmt.cell, initializer);
+    }
+
+    // 최상위에서는 전역 변수로, 그 외에는 프레임 슬롯에 정의한다.
+    private Action define(Token name, int slot, boolean cell, Code value) {
+        if (slot == -1) {
+            Environment.Global global = globals.global(name.lexeme);
+            return frame -> {
+                global.define(value.run(frame));
+                return false;
+            };
+        }
+        if (cell) {
+            return frame -> {
+                frame.slots[slot] = new Cell(value.run(frame));
+                return false;
+            };
+        }
+        return frame -> {
+            frame.slots[slot] = value.run(frame);
+            return false;
+        };
+    }
+
+    // Resolver 가 정해 준 위치에서 함수가 참조하는 바깥 변수의 Cell 을 모은다.
+    private static Cell[] capture(Frame frame, int[] sources) {
+        if (sources.length == 0) {
+            return NO_UPVALUES;
+        }
+
+        Cell[] captured = new Cell[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            captured[i] = source >= 0 ? (Cell) frame.slots[source] : frame.upvalues[~source];
+        }
+        return captured;
+    }
+
+    @Override
+    public Action visitWhileStmt(Stmt.While stmt) {
+        Code condition = compile(stmt.condition);
+        Action body = compile(stmt.body);
+        return frame -> {
+            while (Interpreter.isTruthy(condition.run(frame))) {
+                if (body.run(frame)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @Override
+    public Code visitArrayExpr(Expr.Array expr) {
+        Code[] elements = compileAll(expr.elements);
+        return frame -> {
+            List<Object> values = new ArrayList<>(elements.length);
+            for (Code element : elements) {
+                values.add(element.run(frame));
+            }
+            return new WoowaArray(values);
+        };
+    }
+
+    @Override
+    public Code visitAssignExpr(Expr.Assign expr) {
+        Code value = compile(expr.value);
+        int slot = expr.slot;
+        switch (expr.storage) {
+            case LOCAL:
+                return frame -> frame.slots[slot] = value.run(frame);
+            case CELL:
+                return frame -> ((Cell) frame.slots[slot]).value = value.run(frame);
+            case UPVALUE:
+                return frame -> frame.upvalues[slot].value = value.run(frame);
+            default:
+                Token name = expr.name;
+                Environment.Global global = globals.global(name.lexeme);
+                return frame -> {
+                    Object result = value.run(frame);
+                    global.assign(name, result);
+                    return result;
+                };
+        }
+    }
+
+    @Override
+    public Code visitBinaryExpr(Expr.Binary expr) {
+        Code left = compile(expr.left);
+        Token operator = expr.operator;
+
+        // 오른쪽이 숫자 상수면 상수를 람다에 묶어 둔다.
+        if (expr.right instanceof Expr.Literal && ((Expr.Literal) expr.right).value instanceof Double) {
+            double constant = (double) ((Expr.Literal) expr.right).value;
+            Code constantOperation = binaryWithConstant(operator, left, constant);
+            if (constantOperation != null) {
+                return constantOperation;
+            }
+        }
+
+        Code right = compile(expr.right);
+        switch (operator.type) {
+            case BANG_EQUAL:
+                return frame -> !Interpreter.isEqual(left.run(frame), right.run(frame));
+            case EQUAL_EQUAL:
+                return frame -> Interpreter.isEqual(left.run(frame), right.run(frame));
+            case GREATER:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    checkNumberOperands(operator, a, b);
+                    return (double) a > (double) b;
+                };
+            case GREATER_EQUAL:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    checkNumberOperands(operator, a, b);
+                    return (double) a >= (double) b;
+                };
+            case LESS:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    checkNumberOperands(operator, a, b);
+                    return (double) a < (double) b;
+                };
+            case LESS_EQUAL:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    checkNumberOperands(operator, a, b);
+                    return (double) a <= (double) b;
+                };
+            case MINUS:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    checkNumberOperands(operator, a, b);
+                    return Numbers.box((double) a - (double) b);
+                };
+            case SLASH:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    checkNumberOperands(operator, a, b);
+                    return Numbers.box((double) a / (double) b);
+                };
+            case STAR:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    checkNumberOperands(operator, a, b);
+                    return Numbers.box((double) a * (double) b);
+                };
+            default:
+                return frame -> add(operator, left.run(frame), right.run(frame));
+        }
+    }
+
+    // 오른쪽 피연산자가 숫자 상수인 연산. 해당하지 않으면 null
+    private static Code binaryWithConstant(Token operator, Code left, double constant) {
+        Object boxed = constant;
+        switch (operator.type) {
+            case GREATER:
+                return frame -> {
+                    Object a = left.run(frame);
+                    checkNumberOperands(operator, a, boxed);
+                    return (double) a > constant;
+                };
+            case GREATER_EQUAL:
+                return frame -> {
+                    Object a = left.run(frame);
+                    checkNumberOperands(operator, a, boxed);
+                    return (double) a >= constant;
+                };
+            case LESS:
+                return frame -> {
+                    Object a = left.run(frame);
+                    checkNumberOperands(operator, a, boxed);
+                    return (double) a < constant;
+                };
+            case LESS_EQUAL:
+                return frame -> {
+                    Object a = left.run(frame);
+                    checkNumberOperands(operator, a, boxed);
+                    return (double) a <= constant;
+                };
+            case MINUS:
+                return frame -> {
+                    Object a = left.run(frame);
+                    checkNumberOperands(operator, a, boxed);
+                    return Numbers.box((double) a - constant);
+                };
+            case PLUS:
+                return frame -> {
+                    Object a = left.run(frame);
+                    if (a instanceof Double) {
+                        return Numbers.box((double) a + constant);
+                    }
+                    return add(operator, a, boxed);
+                };
+            default:
+                return null;
+        }
+    }
+
+    private static Object add(Token operator, Object left, Object right) {
+        // 숫자일 경우 연산
+        if (left instanceof Double && right instanceof Double) {
+            return Numbers.box((double) left + (double) right);
+        }
+        // 문자일 경우 문자열 합치기
+        if (left instanceof String || right instanceof String) {
+            return Interpreter.stringify(left) + Interpreter.stringify(right);
+        }
+
+        throw new RuntimeError(operator,
+            "피연산자는 두개의 숫자거나 문자열 연결을 위한 하나 이상의 문자열이어야 합니다.");
+    }
+
+    private static void checkNumberOperands(Token operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return;
+        }
+        throw new RuntimeError(operator, "피연산자들은 숫자여야 합니다.");
+    }
+
+    @Override
+    public Code visitCallExpr(Expr.Call expr) {
+        Code[] arguments = compileAll(expr.arguments);
+        Token paren = expr.paren;
+
+        // 전역 함수 호출은 변수 람다를 거치지 않고 칸을 바로 읽는다.
+        if (expr.callee instanceof Expr.Variable
+            && ((Expr.Variable) expr.callee).storage == StorageType.GLOBAL) {
+            Token name = ((Expr.Variable) expr.callee).name;
+            Environment.Global global = globals.global(name.lexeme);
+            return frame -> call(global.get(name), frame, arguments, paren);
+        }
+
+        Code callee = compile(expr.callee);
+        return frame -> call(callee.run(frame), frame, arguments, paren);
+    }
+
+    private static Object call(Object function, Frame frame, Code[] arguments, Token paren) {
+        // 사용자 함수는 인자를 바로 새 프레임의 슬롯에 평가해 넣는다.
+        if (function instanceof ClosureFunction
+            && ((ClosureFunction) function).code.arity == arguments.length) {
+            try {
+                return ((ClosureFunction) function).call(frame, arguments);
+            } catch (StackOverflowError error) {
+                throw stackOverflow(paren);
+            }
+        }
+
+        List<Object> values = new ArrayList<>(arguments.length);
+        for (Code argument : arguments) {
+            values.add(argument.run(frame));
+        }
+
+        if (!(function instanceof WoowaCallable)) {
+            throw new RuntimeError(paren, "함수와 객체만 호출할 수 있습니다.");
+        }
+
+        WoowaCallable callable = (WoowaCallable) function;
+        if (values.size() != callable.arity()) {
+            throw new RuntimeError(paren,
+                callable.arity() + "개의 인자가 기대됬으나 " + values.size() + "개가 넘어왔습니다.");
+        }
+        try {
+            return callable.call(null, values);
+        } catch (StackOverflowError error) {
+            throw stackOverflow(paren);
+        }
+    }
+
+    // 재귀가 너무 깊어 Java 스택이 넘치면 vm 엔진처럼 호출한 줄의 런타임 에러로 바꾼다.
+    private static RuntimeError stackOverflow(Token paren) {
+        return new RuntimeError(paren, "스택 오버플로우.");
+    }
+
+    @Override
+    public Code visitGetExpr(Expr.Get expr) {
+        Code object = compile(expr.object);
+        Token name = expr.name;
+        return frame -> {
+            Object value = object.run(frame);
+            if (value instanceof WoowaInstance) {
+                return ((WoowaInstance) value).get(name);
+            }
+
+            throw new RuntimeError(name, "오직 인스턴스만이 속성을 가집니다.");
+        };
+    }
+
+    @Override
+    public Code visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.expression);
+    }
+
+    @Override
+    public Code visitIndexExpr(Expr.Index expr) {
+        Code object = compile(expr.object);
+        Code index = compile(expr.index);
+        return frame -> {
+            Object array = object.run(frame);
+            if (!(array instanceof WoowaArray)) {
+                throw new RuntimeError(new Token(null, "", null, -1),
+                    "인덱스 접근은 배열에만 가능합니다.");
+            }
+
+            Object indexValue = index.run(frame);
+            if (!(indexValue instanceof Double)) {
+                throw new RuntimeError(new Token(null, "", null, -1),
+                    "배열 인덱스는 숫자여야 합니다.");
+            }
+            return ((WoowaArray) array).get(((Double) indexValue).intValue());
+        };
+    }
+
+    @Override
+    public Code visitIndexSetExpr(Expr.IndexSet expr) {
+        Code object = compile(expr.object);
+        Code index = compile(expr.index);
+        Code value = compile(expr.value);
+        return frame -> {
+            Object array = object.run(frame);
+            if (!(array instanceof WoowaArray)) {
+                throw new RuntimeError(new Token(null, "", null, -1),
+                    "인덱스 할당은 배열에만 가능합니다.");
+            }
+
+            Object indexValue = index.run(frame);
+            if (!(indexValue instanceof Double)) {
+                throw new RuntimeError(new Token(null, "", null, -1),
+                    "배열 인덱스는 숫자여야 합니다.");
+            }
+
+            Object result = value.run(frame);
+            ((WoowaArray) array).set(((Double) indexValue).intValue(), result);
+            return result;
+        };
+    }
+
+    @Override
+    public Code visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.value;
+        return frame -> value;
+    }
+
+    @Override
+    public Code visitLogicalExpr(Expr.Logical expr) {
+        Code left = compile(expr.left);
+        Code right = compile(expr.right);
+        if (expr.operator.type == TokenType.OR) {
+            return frame -> {
+                Object value = left.run(frame);
+                return Interpreter.isTruthy(value) ? value : right.run(frame);
+            };
+        }
+        return frame -> {
+            Object value = left.run(frame);
+            return !Interpreter.isTruthy(value) ? value : right.run(frame);
+        };
+    }
+
+    @Override
+    public Code visitSetExpr(Expr.Set expr) {
+        Code object = compile(expr.object);
+        Code value = compile(expr.value);
+        Token name = expr.name;
+        return frame -> {
+            Object instance = object.run(frame);
+            if (!(instance instanceof WoowaInstance)) {
+                throw new RuntimeError(name, "오직 인스턴스만이 필드를 가집니다.");
+            }
+
+            Object result = value.run(frame);
+            ((WoowaInstance) instance).set(name, result);
+            return result;
+        };
+    }
+
+    @Override
+    public Code visitSuperExpr(Expr.Super expr) {
+        int slot = expr.slot;
+        Code receiver = load(expr.thisStorage, expr.thisSlot);
+        Token method = expr.method;
+        return frame -> {
+            // super 는 항상 메서드가 캡처한 변수다.
+            WoowaClass superclass = (WoowaClass) frame.upvalues[slot].value;
+            WoowaInstance object = (WoowaInstance) receiver.run(frame);
+            WoowaFunction function = superclass.findMethod(method.lexeme);
+
+            if (function == null) {
+                throw new RuntimeError(method, "정의되지 않은 속성 '" + method.lexeme + "'.");
+            }
+            return function.bind(object);
+        };
+    }
+
+    @Override
+    public Code visitThisExpr(Expr.This expr) {
+        return load(expr.storage, expr.slot);
+    }
+
+    @Override
+    public Code visitUnaryExpr(Expr.Unary expr) {
+        Code right = compile(expr.right);
+        Token operator = expr.operator;
+        if (operator.type == TokenType.BANG) {
+            return frame -> !Interpreter.isTruthy(right.run(frame));
+        }
+
+        return frame -> {
+            Object value = right.run(frame);
+            if (!(value instanceof Double)) {
+                throw new RuntimeError(operator, "피연산자는 숫자여야 합니다.");
+            }
+            return Numbers.box(-(double) value);
+        };
+    }
+
+    @Override
+    public Code visitVariableExpr(Expr.Variable expr) {
+        if (expr.storage == StorageType.GLOBAL) {
+            Token name = expr.name;
+            // 전역 변수 칸은 컴파일할 때 찾아 둔다.
+            Environment.Global global = globals.global(name.lexeme);
+            return frame -> global.get(name);
+        }
+        return load(expr.storage, expr.slot);
+    }
+
+    private static Code load(StorageType storage, int slot) {
+        switch (storage) {
+            case LOCAL:
+                return frame -> frame.slots[slot];
+            case CELL:
+                return frame -> ((Cell) frame.slots[slot]).value;
+            default:
+                return frame -> frame.upvalues[slot].value;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package woowa;
+
+import java.util.List;
+import woowa.ClosureCompiler.Code;
+import woowa.ClosureCompiler.Frame;
+import woowa.ClosureCompiler.FunctionCode;
+
+/**
+ * 클로저 컴파일 엔진의 사용자 함수
+ * <p>
+ * 클래스, 인스턴스는 트리 순회 인터프리터와 같은 것을 쓰므로 WoowaFunction 을 상속해 본문 실행만 바꾼다.
+ */
+final class ClosureFunction extends WoowaFunction {
+
+    final FunctionCode code;
+
+    ClosureFunction(FunctionCode code, Cell[] upvalues, boolean isInitializer) {
+        this(code, upvalues, null, isInitializer);
+    }
+
+    private ClosureFunction(FunctionCode code, Cell[] upvalues, WoowaInstance receiver,
+        boolean isInitializer) {
+        super(code.declaration, upvalues, receiver, isInitializer);
+        this.code = code;
+    }
+
+    @Override
+    WoowaFunction bind(WoowaInstance instance) {
+        return new ClosureFunction(code, upvalues, instance, isInitializer);
+    }
+
+    @Override
+    public int arity() {
+        return code.arity;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        Object[] slots = new Object[declaration.frameSize];
+        int slot = receiverSlot(slots);
+        for (Object argument : arguments) {
+            store(slots, slot++, argument);
+        }
+        return result(code.invoke(slots, upvalues));
+    }
+
+    // 호출한 쪽의 프레임에서 인자를 평가해 바로 새 프레임에 넣는다.
+    Object call(Frame caller, Code[] arguments) {
+        Object[] slots = new Object[code.frameSize];
+        if (receiver == null && code.plainParams) {
+            for (int i = 0; i < arguments.length; i++) {
+                slots[i] = arguments[i].run(caller);
+            }
+            return code.invoke(slots, upvalues);
+        }
+
+        int slot = receiverSlot(slots);
+        for (Code argument : arguments) {
+            store(slots, slot++, argument.run(caller));
+        }
+        return result(code.invoke(slots, upvalues));
+    }
+
+    // 메서드는 0번 슬롯에 this 를 받는다.
+    private int receiverSlot(Object[] slots) {
+        if (receiver == null) {
+            return 0;
+        }
+        store(slots, 0, receiver);
+        return 1;
+    }
+
+    private void store(Object[] slots, int slot, Object value) {
+        slots[slot] = declaration.cellParams[slot] ? new Cell(value) : value;
+    }
+
+    private Object result(Object returnValue) {
+        return isInitializer ? receiver : returnValue;
+    }
+}
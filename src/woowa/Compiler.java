@@ -0,0 +1,736 @@
+package woowa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 바이트코드 컴파일러
+ * <p>
+ * Resolver 검사를 통과한 AST 를 {@link VM} 이 실행할 바이트코드로 변환한다. 지역 변수는 스택 슬롯으로, 클로저가 캡처하는 변수는
+ * 업밸류로 컴파일하고 최상위 변수만 이름으로 찾는다.
+ */
+class Compiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+
+    private static final int MAX_U16 = 0xFFFF;
+
+    private enum FunctionType {
+        SCRIPT,
+        FUNCTION,
+        METHOD,
+        INITIALIZER
+    }
+
+    private static class Local {
+
+        final String name;
+        final int depth;
+        boolean isCaptured = false;
+
+        Local(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+
+    private static class Upvalue {
+
+        final int index;
+        final boolean isLocal;
+
+        Upvalue(int index, boolean isLocal) {
+            this.index = index;
+            this.isLocal = isLocal;
+        }
+    }
+
+    // 컴파일 중인 함수 하나의 상태
+    private static class FunctionState {
+
+        final FunctionState enclosing;
+        final VMFunction function;
+        final FunctionType type;
+        final List<Local> locals = new ArrayList<>();
+        final List<Upvalue> upvalues = new ArrayList<>();
+        int scopeDepth = 0;
+        int stackDepth = 0; // 현재 프레임 기준 스택 높이
+
+        FunctionState(FunctionState enclosing, VMFunction function, FunctionType type) {
+            this.enclosing = enclosing;
+            this.function = function;
+            this.type = type;
+        }
+    }
+
+    private FunctionState current;
+    private int line = 1; // 다음에 기록할 명령어의 줄 번호
+
+    VMFunction compile(List<Stmt> statements) {
+        beginFunction(new VMFunction(null, 0), FunctionType.SCRIPT);
+
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+
+        emitReturn();
+        return endFunction();
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        beginScope();
+        for (Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        // 트리 순회 인터프리터처럼 상위 클래스 검사를 클래스 이름 정의보다 먼저 한다.
+        if (stmt.superclass != null) {
+            compile(stmt.superclass);
+            line = stmt.superclass.name.line;
+            emit(OpCode.CHECK_SUPERCLASS, 0);
+            emit(OpCode.POP, -1);
+        }
+
+        line = stmt.name.line;
+        emit(OpCode.NIL, 1);
+        defineVariable(stmt.name);
+
+        // 메서드가 캡처할 수 있도록 상위 클래스를 'super' 지역 변수로 둔다.
+        if (stmt.superclass != null) {
+            beginScope();
+            compile(stmt.superclass);
+            addLocal("super");
+        }
+
+        for (Stmt.Function method : stmt.methods) {
+            FunctionType type = FunctionType.METHOD;
+            if (method.name.lexeme.equals("init")) {
+                type = FunctionType.INITIALIZER;
+            }
+            function(method, type);
+        }
+
+        line = stmt.name.line;
+        emit(OpCode.CLASS, 1 - stmt.methods.size());
+        emitShort(makeConstant(stmt.name.lexeme));
+        emitShort(checkU16(stmt.methods.size(), "메서드가 너무 많습니다."));
+        emitByte(stmt.superclass != null ? 1 : 0);
+
+        emitSet(stmt.name);
+        emit(OpCode.POP, -1);
+
+        if (stmt.superclass != null) {
+            endScope();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        compile(stmt.expression);
+        emit(OpCode.POP, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        beginScope();
+        if (stmt.initializer != null) {
+            compile(stmt.initializer);
+        }
+
+        int loopStart = chunk().count;
+        int exitJump = -1;
+        if (stmt.condition != null) {
+            compile(stmt.condition);
+            exitJump = emitJump(OpCode.JUMP_IF_FALSE);
+            emit(OpCode.POP, -1);
+        }
+
+        compile(stmt.body);
+        if (stmt.increment != null) {
+            compile(stmt.increment);
+            emit(OpCode.POP, -1);
+        }
+        emitLoop(loopStart);
+
+        if (exitJump != -1) {
+            patchJump(exitJump);
+            adjustStack(1);
+            emit(OpCode.POP, -1);
+        }
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        // 지역 함수는 본문보다 먼저 슬롯을 잡아 재귀 호출이 자기 자신을 찾게 한다.
+        if (isGlobalScope()) {
+            function(stmt, FunctionType.FUNCTION);
+            defineVariable(stmt.name);
+        } else {
+            addLocal(stmt.name.lexeme); // 슬롯은 CLOSURE 가 채운다.
+            function(stmt, FunctionType.FUNCTION);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        compile(stmt.condition);
+        int thenJump = emitJump(OpCode.JUMP_IF_FALSE);
+        emit(OpCode.POP, -1);
+        compile(stmt.thenBranch);
+
+        int elseJump = emitJump(OpCode.JUMP);
+        patchJump(thenJump);
+        adjustStack(1); // else 경로에는 조건 값이 남아 있다.
+        emit(OpCode.POP, -1);
+
+        if (stmt.elseBranch != null) {
+            compile(stmt.elseBranch);
+        }
+        patchJump(elseJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        compile(stmt.expression);
+        emit(OpCode.PRINT, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        line = stmt.keyword.line;
+        if (stmt.value == null) {
+            emitReturn();
+        } else {
+            compile(stmt.value);
+            emit(OpCode.RETURN, -1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        if (stmt.initializer != null) {
+            compile(stmt.initializer);
+        } else {
+            line = stmt.name.line;
+            emit(OpCode.NIL, 1);
+        }
+
+        defineVariable(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        int loopStart = chunk().count;
+        compile(stmt.condition);
+
+        int exitJump = emitJump(OpCode.JUMP_IF_FALSE);
+        emit(OpCode.POP, -1);
+        compile(stmt.body);
+        emitLoop(loopStart);
+
+        patchJump(exitJump);
+        adjustStack(1);
+        emit(OpCode.POP, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayExpr(Expr.Array expr) {
+        for (Expr element : expr.elements) {
+            compile(element);
+        }
+        emit(OpCode.ARRAY, 1 - expr.elements.size());
+        emitShort(checkU16(expr.elements.size(), "배열 리터럴의 요소가 너무 많습니다."));
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        compile(expr.value);
+        emitSet(expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        compile(expr.left);
+        compile(expr.right);
+
+        line = expr.operator.line;
+        switch (expr.operator.type) {
+            case BANG_EQUAL:
+                emit(OpCode.NOT_EQUAL, -1);
+                break;
+            case EQUAL_EQUAL:
+                emit(OpCode.EQUAL, -1);
+                break;
+            case GREATER:
+                emit(OpCode.GREATER, -1);
+                break;
+            case GREATER_EQUAL:
+                emit(OpCode.GREATER_EQUAL, -1);
+                break;
+            case LESS:
+                emit(OpCode.LESS, -1);
+                break;
+            case LESS_EQUAL:
+                emit(OpCode.LESS_EQUAL, -1);
+                break;
+            case MINUS:
+                emit(OpCode.SUBTRACT, -1);
+                break;
+            case PLUS:
+                emit(OpCode.ADD, -1);
+                break;
+            case SLASH:
+                emit(OpCode.DIVIDE, -1);
+                break;
+            case STAR:
+                emit(OpCode.MULTIPLY, -1);
+                break;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        int argCount = expr.arguments.size();
+
+        // 메서드 호출은 바운드 메서드를 만들지 않고 바로 호출한다.
+        // 인자 평가가 부수 효과나 에러를 낼 수 있으면 속성 조회를 먼저 해야 하므로 일반 호출로 컴파일한다.
+        if (expr.callee instanceof Expr.Get && allTrivial(expr.arguments)) {
+            Expr.Get get = (Expr.Get) expr.callee;
+            compile(get.object);
+            for (Expr argument : expr.arguments) {
+                compile(argument);
+            }
+            line = expr.paren.line;
+            emit(OpCode.INVOKE, -argCount);
+            emitShort(makeConstant(get.name));
+            emitByte(argCount);
+            return null;
+        }
+
+        compile(expr.callee);
+        for (Expr argument : expr.arguments) {
+            compile(argument);
+        }
+        line = expr.paren.line;
+        emit(OpCode.CALL, -argCount);
+        emitByte(argCount);
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        compile(expr.object);
+        line = expr.name.line;
+        emit(OpCode.GET_PROPERTY, 0);
+        emitShort(makeConstant(expr.name));
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        compile(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexExpr(Expr.Index expr) {
+        compile(expr.object);
+        if (!isTrivial(expr.index)) {
+            emit(OpCode.CHECK_ARRAY, 0);
+            emitByte(0);
+        }
+        compile(expr.index);
+        emit(OpCode.GET_INDEX, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(Expr.IndexSet expr) {
+        compile(expr.object);
+        if (!isTrivial(expr.index) || !isTrivial(expr.value)) {
+            emit(OpCode.CHECK_ARRAY, 0);
+            emitByte(1);
+        }
+        compile(expr.index);
+        if (!isTrivial(expr.value)) {
+            emit(OpCode.CHECK_INDEX, 0);
+        }
+        compile(expr.value);
+        emit(OpCode.SET_INDEX, -2);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        if (expr.value == null) {
+            emit(OpCode.NIL, 1);
+        } else if (expr.value instanceof Boolean) {
+            emit((Boolean) expr.value ? OpCode.TRUE : OpCode.FALSE, 1);
+        } else {
+            emit(OpCode.CONSTANT, 1);
+            emitShort(makeConstant(expr.value));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        compile(expr.left);
+
+        if (expr.operator.type == TokenType.OR) {
+            int elseJump = emitJump(OpCode.JUMP_IF_FALSE);
+            int endJump = emitJump(OpCode.JUMP);
+            patchJump(elseJump);
+            emit(OpCode.POP, -1);
+            compile(expr.right);
+            patchJump(endJump);
+        } else {
+            int endJump = emitJump(OpCode.JUMP_IF_FALSE);
+            emit(OpCode.POP, -1);
+            compile(expr.right);
+            patchJump(endJump);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        compile(expr.object);
+        line = expr.name.line;
+        if (!isTrivial(expr.value)) {
+            emit(OpCode.CHECK_FIELD_TARGET, 0);
+        }
+        compile(expr.value);
+        line = expr.name.line;
+        emit(OpCode.SET_PROPERTY, -1);
+        emitShort(makeConstant(expr.name));
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        line = expr.keyword.line;
+        emitGet("this", expr.keyword);
+        emitGet("super", expr.keyword);
+        line = expr.method.line;
+        emit(OpCode.GET_SUPER, -1);
+        emitShort(makeConstant(expr.method));
+        return null;
+    }
+
+    @Override
+    public Void visitThisExpr(Expr.This expr) {
+        line = expr.keyword.line;
+        emitGet("this", expr.keyword);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        compile(expr.right);
+
+        line = expr.operator.line;
+        if (expr.operator.type == TokenType.BANG) {
+            emit(OpCode.NOT, 0);
+        } else {
+            emit(OpCode.NEGATE, 0);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        line = expr.name.line;
+        emitGet(expr.name.lexeme, expr.name);
+        return null;
+    }
+
+    private void function(Stmt.Function stmt, FunctionType type) {
+        FunctionState state = beginFunction(
+            new VMFunction(stmt.name.lexeme, stmt.params.size()), type);
+
+        // 파라미터는 호출자가 스택에 올려 둔다.
+        beginScope();
+        for (Token param : stmt.params) {
+            addLocal(param.lexeme);
+            adjustStack(1);
+        }
+
+        for (Stmt statement : stmt.body) {
+            compile(statement);
+        }
+        emitReturn();
+
+        VMFunction function = endFunction();
+
+        line = stmt.name.line;
+        emit(OpCode.CLOSURE, 1);
+        emitShort(makeConstant(function));
+        for (Upvalue upvalue : state.upvalues) {
+            emitByte(upvalue.isLocal ? 1 : 0);
+            emitShort(upvalue.index);
+        }
+    }
+
+    private FunctionState beginFunction(VMFunction function, FunctionType type) {
+        current = new FunctionState(current, function, type);
+
+        // 0번 슬롯은 호출된 함수 자신, 메서드라면 수신 객체(this)가 차지한다.
+        if (type == FunctionType.METHOD || type == FunctionType.INITIALIZER) {
+            addLocal("this");
+        } else {
+            addLocal("");
+        }
+        adjustStack(1);
+        return current;
+    }
+
+    private VMFunction endFunction() {
+        VMFunction function = current.function;
+        function.upvalueCount = current.upvalues.size();
+        function.chunk.finish();
+        current = current.enclosing;
+        return function;
+    }
+
+    private void beginScope() {
+        current.scopeDepth++;
+    }
+
+    private void endScope() {
+        current.scopeDepth--;
+
+        List<Local> locals = current.locals;
+        while (!locals.isEmpty() && locals.get(locals.size() - 1).depth > current.scopeDepth) {
+            Local local = locals.remove(locals.size() - 1);
+            emit(local.isCaptured ? OpCode.CLOSE_UPVALUE : OpCode.POP, -1);
+        }
+    }
+
+    private boolean isGlobalScope() {
+        return current.type == FunctionType.SCRIPT && current.scopeDepth == 0;
+    }
+
+    // 스택 맨 위의 값을 변수로 정의한다.
+    private void defineVariable(Token name) {
+        if (isGlobalScope()) {
+            line = name.line;
+            emit(OpCode.DEFINE_GLOBAL, -1);
+            emitShort(makeConstant(name));
+            return;
+        }
+
+        // 지역 변수는 값이 놓인 스택 슬롯이 곧 변수다.
+        addLocal(name.lexeme);
+    }
+
+    // 스택의 다음 슬롯을 지역 변수로 등록한다.
+    private void addLocal(String name) {
+        checkU16(current.locals.size(), "지역 변수가 너무 많습니다.");
+        current.locals.add(new Local(name, current.scopeDepth));
+    }
+
+    private void emitGet(String name, Token token) {
+        int slot = resolveLocal(current, name);
+        if (slot != -1) {
+            emit(OpCode.GET_LOCAL, 1);
+            emitShort(slot);
+            return;
+        }
+
+        int index = resolveUpvalue(current, name);
+        if (index != -1) {
+            emit(OpCode.GET_UPVALUE, 1);
+            emitShort(index);
+            return;
+        }
+
+        emit(OpCode.GET_GLOBAL, 1);
+        emitShort(makeConstant(token));
+    }
+
+    private void emitSet(Token name) {
+        line = name.line;
+        int slot = resolveLocal(current, name.lexeme);
+        if (slot != -1) {
+            emit(OpCode.SET_LOCAL, 0);
+            emitShort(slot);
+            return;
+        }
+
+        int index = resolveUpvalue(current, name.lexeme);
+        if (index != -1) {
+            emit(OpCode.SET_UPVALUE, 0);
+            emitShort(index);
+            return;
+        }
+
+        emit(OpCode.SET_GLOBAL, 0);
+        emitShort(makeConstant(name));
+    }
+
+    private int resolveLocal(FunctionState state, String name) {
+        for (int i = state.locals.size() - 1; i >= 0; i--) {
+            if (state.locals.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 바깥 함수의 지역 변수를 찾으면 그 변수를 캡처하는 업밸류를 함수마다 추가한다.
+    private int resolveUpvalue(FunctionState state, String name) {
+        if (state.enclosing == null) {
+            return -1;
+        }
+
+        int local = resolveLocal(state.enclosing, name);
+        if (local != -1) {
+            state.enclosing.locals.get(local).isCaptured = true;
+            return addUpvalue(state, local, true);
+        }
+
+        int upvalue = resolveUpvalue(state.enclosing, name);
+        if (upvalue != -1) {
+            return addUpvalue(state, upvalue, false);
+        }
+        return -1;
+    }
+
+    private int addUpvalue(FunctionState state, int index, boolean isLocal) {
+        for (int i = 0; i < state.upvalues.size(); i++) {
+            Upvalue upvalue = state.upvalues.get(i);
+            if (upvalue.index == index && upvalue.isLocal == isLocal) {
+                return i;
+            }
+        }
+
+        checkU16(state.upvalues.size(), "클로저가 캡처하는 변수가 너무 많습니다.");
+        state.upvalues.add(new Upvalue(index, isLocal));
+        return state.upvalues.size() - 1;
+    }
+
+    // 평가해도 에러나 부수 효과가 생길 수 없는 식인지 확인
+    private boolean isTrivial(Expr expr) {
+        if (expr instanceof Expr.Literal || expr instanceof Expr.This) {
+            return true;
+        }
+        if (expr instanceof Expr.Grouping) {
+            return isTrivial(((Expr.Grouping) expr).expression);
+        }
+        if (expr instanceof Expr.Variable) {
+            // 전역 변수는 정의되지 않았을 수 있다.
+            String name = ((Expr.Variable) expr).name.lexeme;
+            return resolveLocal(current, name) != -1 || resolveUpvalue(current, name) != -1;
+        }
+        return false;
+    }
+
+    private boolean allTrivial(List<Expr> exprs) {
+        for (Expr expr : exprs) {
+            if (!isTrivial(expr)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Chunk chunk() {
+        return current.function.chunk;
+    }
+
+    private void emit(byte op, int stackEffect) {
+        chunk().write(op, line);
+        adjustStack(stackEffect);
+    }
+
+    private void emitByte(int value) {
+        chunk().write(value, line);
+    }
+
+    private void emitShort(int value) {
+        chunk().write((value >> 8) & 0xff, line);
+        chunk().write(value & 0xff, line);
+    }
+
+    private void emitReturn() {
+        if (current.type == FunctionType.INITIALIZER) {
+            emit(OpCode.GET_LOCAL, 1);
+            emitShort(0);
+        } else {
+            emit(OpCode.NIL, 1);
+        }
+        emit(OpCode.RETURN, -1);
+    }
+
+    private int emitJump(byte op) {
+        emit(op, 0);
+        emitShort(MAX_U16);
+        return chunk().count - 2;
+    }
+
+    private void patchJump(int offset) {
+        int jump = chunk().count - offset - 2;
+        if (jump > MAX_U16) {
+            Woowa.error(line, "건너뛸 코드가 너무 깁니다.");
+        }
+
+        chunk().code[offset] = (byte) ((jump >> 8) & 0xff);
+        chunk().code[offset + 1] = (byte) (jump & 0xff);
+    }
+
+    private void emitLoop(int loopStart) {
+        emit(OpCode.LOOP, 0);
+
+        int offset = chunk().count - loopStart + 2;
+        if (offset > MAX_U16) {
+            Woowa.error(line, "반복문 본문이 너무 깁니다.");
+        }
+        emitShort(offset);
+    }
+
+    private int makeConstant(Object value) {
+        int index = chunk().addConstant(value);
+        return checkU16(index, "한 함수에 상수가 너무 많습니다.");
+    }
+
+    private int checkU16(int value, String message) {
+        if (value > MAX_U16) {
+            Woowa.error(line, message);
+            return 0;
+        }
+        return value;
+    }
+
+    private void adjustStack(int effect) {
+        current.stackDepth += effect;
+        if (current.stackDepth > current.function.maxStack) {
+            current.function.maxStack = current.stackDepth;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package woowa;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AST 분기 방식별 순회 시간 비교
+ * <p>
+ * java -cp out/production/WoowaLang woowa.DispatchBenchmark [반복 횟수] [script...]
+ * <p>
+ * 스크립트를 리졸브까지 마친 뒤, 모든 노드를 세는 순회를 accept 와 Visitor 로 분기할 때와 switch (kind) 로 분기할 때
+ * 각각 반복해서 잰다. 노드를 방문해서 하는 일은 같고 분기 방식만 다르다. 스크립트를 주지 않으면 examples 의 스크립트를 쓴다.
+ */
+public class DispatchBenchmark {
+
+    private static final int DEFAULT_REPEAT = 100_000;
+    private static final int ROUNDS = 8;
+
+    public static void main(String[] args) throws IOException {
+        int repeat = args.length >= 1 ? Integer.parseInt(args[0]) : DEFAULT_REPEAT;
+        List<Path> scripts = new ArrayList<>();
+        if (args.length >= 2) {
+            for (int i = 1; i < args.length; i++) {
+                scripts.add(Paths.get(args[i]));
+            }
+        } else {
+            try (DirectoryStream<Path> examples = Files.newDirectoryStream(Paths.get("examples"), "*.woowa")) {
+                examples.forEach(scripts::add);
+            }
+        }
+
+        List<Stmt> statements = new ArrayList<>();
+        for (Path script : scripts) {
+            Program program = Woowa.resolve(SourceFile.read(script).toString());
+            if (program == null) {
+                System.err.println(script + " 를 리졸브하지 못해 건너뜁니다.");
+                Woowa.hadError = false;
+                continue;
+            }
+            statements.addAll(program.statements);
+        }
+
+        Walker visitor = new VisitorWalker();
+        Walker kind = new SwitchWalker();
+        // 두 방식을 번갈아 여러 번 재고 가장 빠른 시간을 쓴다. 첫 몇 번은 JIT 을 데우는 셈이다.
+        long visitorBest = Long.MAX_VALUE;
+        long kindBest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            visitorBest = Math.min(visitorBest, measure(visitor, statements, repeat));
+            kindBest = Math.min(kindBest, measure(kind, statements, repeat));
+        }
+
+        long nodes = (long) visitor.walk(statements) * repeat;
+        System.out.printf("%-8s %10.2f ms (%,d nodes)%n", "visitor", visitorBest / 1_000_000.0, nodes);
+        System.out.printf("%-8s %10.2f ms (%,d nodes)%n", "switch", kindBest / 1_000_000.0, nodes);
+    }
+
+    private static long measure(Walker walker, List<Stmt> statements, int repeat) {
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            walker.walk(statements);
+        }
+        return System.nanoTime() - start;
+    }
+
+    // 노드 수를 센다. 하위 노드로 내려갈 때의 분기 방식은 하위 클래스가 정한다.
+    private abstract static class Walker implements Expr.Visitor<Integer>, Stmt.Visitor<Integer> {
+
+        abstract int walk(Expr expr);
+
+        abstract int walk(Stmt stmt);
+
+        int walk(List<Stmt> statements) {
+            int count = 0;
+            for (Stmt statement : statements) {
+                count += walk(statement);
+            }
+            return count;
+        }
+
+        private int walkAll(List<Expr> exprs) {
+            int count = 0;
+            for (Expr expr : exprs) {
+                count += walk(expr);
+            }
+            return count;
+        }
+
+        private int walkIfPresent(Expr expr) {
+            return expr == null ? 0 : walk(expr);
+        }
+
+        private int walkIfPresent(Stmt stmt) {
+            return stmt == null ? 0 : walk(stmt);
+        }
+
+        @Override
+        public Integer visitBlockStmt(Stmt.Block stmt) {
+            return 1 + walk(stmt.statements);
+        }
+
+        @Override
+        public Integer visitClassStmt(Stmt.Class stmt) {
+            int count = 1 + walkIfPresent(stmt.superclass);
+            for (Stmt.Function method : stmt.methods) {
+                count += walk(method);
+            }
+            return count;
+        }
+
+        @Override
+        public Integer visitExpressionStmt(Stmt.Expression stmt) {
+            return 1 + walk(stmt.expression);
+        }
+
+        @Override
+        public Integer visitForStmt(Stmt.For stmt) {
+            return 1 + walkIfPresent(stmt.initializer) + walkIfPresent(stmt.condition)
+                + walkIfPresent(stmt.increment) + walk(stmt.body);
+        }
+
+        @Override
+        public Integer visitFunctionStmt(Stmt.Function stmt) {
+            return 1 + walk(stmt.body);
+        }
+
+        @Override
+        public Integer visitIfStmt(Stmt.If stmt) {
+            return 1 + walk(stmt.condition) + walk(stmt.thenBranch) + walkIfPresent(stmt.elseBranch);
+        }
+
+        @Override
+        public Integer visitPrintStmt(Stmt.Print stmt) {
+            return 1 + walk(stmt.expression);
+        }
+
+        @Override
+        public Integer visitReturnStmt(Stmt.Return stmt) {
+            return 1 + walkIfPresent(stmt.value);
+        }
+
+        @Override
+        public Integer visitVarStmt(Stmt.Var stmt) {
+            return 1 + walkIfPresent(stmt.initializer);
+        }
+
+        @Override
+        public Integer visitWhileStmt(Stmt.While stmt) {
+            return 1 + walk(stmt.condition) + walk(stmt.body);
+        }
+
+        @Override
+        public Integer visitArrayExpr(Expr.Array expr) {
+            return 1 + walkAll(expr.elements);
+        }
+
+        @Override
+        public Integer visitAssignExpr(Expr.Assign expr) {
+            return 1 + walk(expr.value);
+        }
+
+        @Override
+        public Integer visitBinaryExpr(Expr.Binary expr) {
+            return 1 + walk(expr.left) + walk(expr.right);
+        }
+
+        @Override
+        public Integer visitCallExpr(Expr.Call expr) {
+            return 1 + walk(expr.callee) + walkAll(expr.arguments);
+        }
+
+        @Override
+        public Integer visitGetExpr(Expr.Get expr) {
+            return 1 + walk(expr.object);
+        }
+
+        @Override
+        public Integer visitGroupingExpr(Expr.Grouping expr) {
+            return 1 + walk(expr.expression);
+        }
+
+        @Override
+        public Integer visitIndexExpr(Expr.Index expr) {
+            return 1 + walk(expr.object) + walk(expr.index);
+        }
+
+        @Override
+        public Integer visitIndexSetExpr(Expr.IndexSet expr) {
+            return 1 + walk(expr.object) + walk(expr.index) + walk(expr.value);
+        }
+
+        @Override
+        public Integer visitLiteralExpr(Expr.Literal expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitLogicalExpr(Expr.Logical expr) {
+            return 1 + walk(expr.left) + walk(expr.right);
+        }
+
+        @Override
+        public Integer visitSetExpr(Expr.Set expr) {
+            return 1 + walk(expr.object) + walk(expr.value);
+        }
+
+        @Override
+        public Integer visitSuperExpr(Expr.Super expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitThisExpr(Expr.This expr) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitUnaryExpr(Expr.Unary expr) {
+            return 1 + walk(expr.right);
+        }
+
+        @Override
+        public Integer visitVariableExpr(Expr.Variable expr) {
+            return 1;
+        }
+    }
+
+    private static final class VisitorWalker extends Walker {
+
+        @Override
+        int walk(Expr expr) {
+            return expr.accept(this);
+        }
+
+        @Override
+        int walk(Stmt stmt) {
+            return stmt.accept(this);
+        }
+    }
+
+    private static final class SwitchWalker extends Walker {
+
+        @Override
+        int walk(Expr expr) {
+            switch (expr.kind) {
+                case Expr.ARRAY:
+                    return visitArrayExpr((Expr.Array) expr);
+                case Expr.ASSIGN:
+                    return visitAssignExpr((Expr.Assign) expr);
+                case Expr.BINARY:
+                    return visitBinaryExpr((Expr.Binary) expr);
+                case Expr.CALL:
+                    return visitCallExpr((Expr.Call) expr);
+                case Expr.GET:
+                    return visitGetExpr((Expr.Get) expr);
+                case Expr.GROUPING:
+                    return visitGroupingExpr((Expr.Grouping) expr);
+                case Expr.INDEX:
+                    return visitIndexExpr((Expr.Index) expr);
+                case Expr.INDEX_SET:
+                    return visitIndexSetExpr((Expr.IndexSet) expr);
+                case Expr.LITERAL:
+                    return visitLiteralExpr((Expr.Literal) expr);
+                case Expr.LOGICAL:
+                    return visitLogicalExpr((Expr.Logical) expr);
+                case Expr.SET:
+                    return visitSetExpr((Expr.Set) expr);
+                case Expr.SUPER:
+                    return visitSuperExpr((Expr.Super) expr);
+                case Expr.THIS:
+                    return visitThisExpr((Expr.This) expr);
+                case Expr.UNARY:
+                    return visitUnaryExpr((Expr.Unary) expr);
+                case Expr.VARIABLE:
+                    return visitVariableExpr((Expr.Variable) expr);
+                default:
+                    throw new IllegalStateException("알 수 없는 표현식: " + expr.kind);
+            }
+        }
+
+        @Override
+        int walk(Stmt stmt) {
+            switch (stmt.kind) {
+                case Stmt.BLOCK:
+                    return visitBlockStmt((Stmt.Block) stmt);
+                case Stmt.CLASS:
+                    return visitClassStmt((Stmt.Class) stmt);
+                case Stmt.EXPRESSION:
+                    return visitExpressionStmt((Stmt.Expression) stmt);
+                case Stmt.FOR:
+                    return visitForStmt((Stmt.For) stmt);
+                case Stmt.FUNCTION:
+                    return visitFunctionStmt((Stmt.Function) stmt);
+                case Stmt.IF:
+                    return visitIfStmt((Stmt.If) stmt);
+                case Stmt.PRINT:
+                    return visitPrintStmt((Stmt.Print) stmt);
+                case Stmt.RETURN:
+                    return visitReturnStmt((Stmt.Return) stmt);
+                case Stmt.VAR:
+                    return visitVarStmt((Stmt.Var) stmt);
+                case Stmt.WHILE:
+                    return visitWhileStmt((Stmt.While) stmt);
+                default:
+                    throw new IllegalStateException("알 수 없는 문장: " + stmt.kind);
+            }
+        }
+    }
+}
@@ -3,67 +3,81 @@ package woowa;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * 전역 변수 환경
+ * <p>
+ * 지역 변수는 인터프리터의 프레임 배열에 저장되므로 여기에는 전역 변수만 남는다.
+ */
 public class Environment {
 
-    final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
-
-    Environment() {
-        enclosing = null;
-    }
-
-    Environment(Environment enclosing) {
-        this.enclosing = enclosing;
-    }
-
-
-    Object get(Token name) {
-        // 변수가 발견되면 해당 변수에 바인딩 된 값 return
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+    // 전역 변수는 이름마다 하나의 칸(Global)에 저장한다.
+    private final Map<String, Global> values = new HashMap<>();
+
+    /**
+     * 전역 변수 하나를 담는 칸
+     * <p>
+     * 한 번 만들어진 칸은 사라지지 않으므로, 변수 사용 위치에서 칸을 기억해 두면
+     * 이름으로 다시 찾지 않아도 된다. 재정의는 같은 칸의 값을 바꾼다.
+     */
+    static final class Global {
+
+        Object value;
+        boolean defined = false; // 아직 정의되지 않은 이름도 칸은 미리 만들 수 있다.
+
+        Object get(Token name) {
+            if (!defined) {
+                throw new RuntimeError(name, "정의되지 않은 변수 '" + name.lexeme + "'.");
+            }
+            return value;
         }
 
-        // 변수가 발결되지 않으면 주변 환경을 재귀적으로 탐색
-        if (enclosing != null) {
-            return enclosing.get(name);
+        // 토큰 없이 이름과 줄 번호만 들고 있는 쪽에서 쓴다.
+        Object get(String name, int line) {
+            if (!defined) {
+                throw undefined(name, line);
+            }
+            return value;
         }
 
-        // 정의되지 않은 변수면 에러 발생
-        throw new RuntimeError(name, "정의되지 않은 변수 '" + name.lexeme + "'.");
-    }
+        void define(Object value) {
+            this.value = value;
+            defined = true;
+        }
 
-    void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
-            return;
+        void assign(Token name, Object value) {
+            if (!defined) {
+                throw new RuntimeError(name, "정의되지 않은 변수 '" + name.lexeme + "'.");
+            }
+            this.value = value;
         }
 
-        if (enclosing != null) {
-            enclosing.assign(name, value);
-            return;
+        void assign(String name, int line, Object value) {
+            if (!defined) {
+                throw undefined(name, line);
+            }
+            this.value = value;
         }
 
-        throw new RuntimeError(name, "정의되지 않은 변수 '" + name.lexeme + "'.");
+        private static RuntimeError undefined(String name, int line) {
+            return new RuntimeError(new Token(TokenType.IDENTIFIER, name, null, line),
+                "정의되지 않은 변수 '" + name + "'.");
+        }
     }
 
-    public void define(String name, Object value) {
-        values.put(name, value);
+    // 이름에 해당하는 전역 변수 칸. 없으면 정의되지 않은 칸을 만든다.
+    Global global(String name) {
+        return values.computeIfAbsent(name, key -> new Global());
     }
 
-    Environment ancestor(int distance) {
-        Environment environment = this;
-        for (int i = 0; i < distance; i++) {
-            environment = environment.enclosing;
-        }
-
-        return environment;
+    Object get(Token name) {
+        return global(name.lexeme).get(name);
     }
 
-    Object getAt(int distance, String name) {
-        return ancestor(distance).values.get(name);
+    void assign(Token name, Object value) {
+        global(name.lexeme).assign(name, value);
     }
 
-    void assignAt(int distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme, value);
+    public void define(String name, Object value) {
+        global(name).define(value);
     }
 }
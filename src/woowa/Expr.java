@@ -2,7 +2,22 @@ package woowa;
 
 import java.util.List;
 
-abstract class Expr {
+abstract sealed class Expr permits
+    Expr.Array,
+    Expr.Assign,
+    Expr.Binary,
+    Expr.Call,
+    Expr.Get,
+    Expr.Grouping,
+    Expr.Index,
+    Expr.IndexSet,
+    Expr.Literal,
+    Expr.Logical,
+    Expr.Set,
+    Expr.Super,
+    Expr.This,
+    Expr.Unary,
+    Expr.Variable {
   interface Visitor<R> {
     R visitArrayExpr(Array expr);
     R visitAssignExpr(Assign expr);
@@ -21,10 +36,34 @@ abstract class Expr {
     R visitVariableExpr(Variable expr);
   }
 
+  // 노드 종류. switch (expr.kind) 로 분기할 때 쓴다.
+  static final int ARRAY = 0;
+  static final int ASSIGN = 1;
+  static final int BINARY = 2;
+  static final int CALL = 3;
+  static final int GET = 4;
+  static final int GROUPING = 5;
+  static final int INDEX = 6;
+  static final int INDEX_SET = 7;
+  static final int LITERAL = 8;
+  static final int LOGICAL = 9;
+  static final int SET = 10;
+  static final int SUPER = 11;
+  static final int THIS = 12;
+  static final int UNARY = 13;
+  static final int VARIABLE = 14;
+
+  final int kind;
+
+  Expr(int kind) {
+    this.kind = kind;
+  }
+
   // Nested Expr classes here...
 //> expr-array
-  static class Array extends Expr {
+  static final class Array extends Expr {
     Array(List<Expr> elements) {
+      super(ARRAY);
       this.elements = elements;
     }
 
@@ -37,8 +76,9 @@ abstract class Expr {
   }
 //< expr-array
 //> expr-assign
-  static class Assign extends Expr {
+  static final class Assign extends Expr {
     Assign(Token name, Expr value) {
+      super(ASSIGN);
       this.name = name;
       this.value = value;
     }
@@ -50,11 +90,17 @@ abstract class Expr {
 
     final Token name;
     final Expr value;
+
+    // 이후 단계가 채운다.
+    StorageType storage = StorageType.GLOBAL;
+    int slot;
+    Environment.Global global;
   }
 //< expr-assign
 //> expr-binary
-  static class Binary extends Expr {
+  static final class Binary extends Expr {
     Binary(Expr left, Token operator, Expr right) {
+      super(BINARY);
       this.left = left;
       this.operator = operator;
       this.right = right;
@@ -68,11 +114,18 @@ abstract class Expr {
     final Expr left;
     final Token operator;
     final Expr right;
+
+    // 이후 단계가 채운다.
+    boolean numeric;
+    boolean leftNumeric;
+    boolean rightNumeric;
+    int state;
   }
 //< expr-binary
 //> expr-call
-  static class Call extends Expr {
+  static final class Call extends Expr {
     Call(Expr callee, Token paren, List<Expr> arguments) {
+      super(CALL);
       this.callee = callee;
       this.paren = paren;
       this.arguments = arguments;
@@ -86,11 +139,19 @@ abstract class Expr {
     final Expr callee;
     final Token paren;
     final List<Expr> arguments;
+
+    // 이후 단계가 채운다.
+    int state;
+    Stmt.Function target;
+    Stmt.Function inline;
+    Expr inlineBody;
+    int inlineFrame;
   }
 //< expr-call
 //> expr-get
-  static class Get extends Expr {
+  static final class Get extends Expr {
     Get(Expr object, Token name) {
+      super(GET);
       this.object = object;
       this.name = name;
     }
@@ -105,8 +166,9 @@ abstract class Expr {
   }
 //< expr-get
 //> expr-grouping
-  static class Grouping extends Expr {
+  static final class Grouping extends Expr {
     Grouping(Expr expression) {
+      super(GROUPING);
       this.expression = expression;
     }
 
@@ -119,8 +181,9 @@ abstract class Expr {
   }
 //< expr-grouping
 //> expr-index
-  static class Index extends Expr {
+  static final class Index extends Expr {
     Index(Expr object, Expr index) {
+      super(INDEX);
       this.object = object;
       this.index = index;
     }
@@ -135,8 +198,9 @@ abstract class Expr {
   }
 //< expr-index
 //> expr-indexset
-  static class IndexSet extends Expr {
+  static final class IndexSet extends Expr {
     IndexSet(Expr object, Expr index, Expr value) {
+      super(INDEX_SET);
       this.object = object;
       this.index = index;
       this.value = value;
@@ -153,8 +217,9 @@ abstract class Expr {
   }
 //< expr-indexset
 //> expr-literal
-  static class Literal extends Expr {
+  static final class Literal extends Expr {
     Literal(Object value) {
+      super(LITERAL);
       this.value = value;
     }
 
@@ -167,8 +232,9 @@ abstract class Expr {
   }
 //< expr-literal
 //> expr-logical
-  static class Logical extends Expr {
+  static final class Logical extends Expr {
     Logical(Expr left, Token operator, Expr right) {
+      super(LOGICAL);
       this.left = left;
       this.operator = operator;
       this.right = right;
@@ -185,8 +251,9 @@ abstract class Expr {
   }
 //< expr-logical
 //> expr-set
-  static class Set extends Expr {
+  static final class Set extends Expr {
     Set(Expr object, Token name, Expr value) {
+      super(SET);
       this.object = object;
       this.name = name;
       this.value = value;
@@ -203,8 +270,9 @@ abstract class Expr {
   }
 //< expr-set
 //> expr-super
-  static class Super extends Expr {
+  static final class Super extends Expr {
     Super(Token keyword, Token method) {
+      super(SUPER);
       this.keyword = keyword;
       this.method = method;
     }
@@ -216,11 +284,17 @@ abstract class Expr {
 
     final Token keyword;
     final Token method;
+
+    // 이후 단계가 채운다.
+    int slot;
+    StorageType thisStorage;
+    int thisSlot;
   }
 //< expr-super
 //> expr-this
-  static class This extends Expr {
+  static final class This extends Expr {
     This(Token keyword) {
+      super(THIS);
       this.keyword = keyword;
     }
 
@@ -230,11 +304,16 @@ abstract class Expr {
     }
 
     final Token keyword;
+
+    // 이후 단계가 채운다.
+    StorageType storage;
+    int slot;
   }
 //< expr-this
 //> expr-unary
-  static class Unary extends Expr {
+  static final class Unary extends Expr {
     Unary(Token operator, Expr right) {
+      super(UNARY);
       this.operator = operator;
       this.right = right;
     }
@@ -249,8 +328,9 @@ abstract class Expr {
   }
 //< expr-unary
 //> expr-variable
-  static class Variable extends Expr {
+  static final class Variable extends Expr {
     Variable(Token name) {
+      super(VARIABLE);
       this.name = name;
     }
 
@@ -260,6 +340,11 @@ abstract class Expr {
     }
 
     final Token name;
+
+    // 이후 단계가 채운다.
+    StorageType storage = StorageType.GLOBAL;
+    int slot;
+    Environment.Global global;
   }
 //< expr-variable
 
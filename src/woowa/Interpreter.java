@@ -2,6 +2,7 @@ package woowa;
 
 import function.NativeFunctionRegistry;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,9 +17,42 @@ import woowa.Stmt.Function;
  */
 public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
+    private static final Cell[] NO_UPVALUES = new Cell[0];
+
     final Environment globals = initializeGlobals();
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
+
+    // 지역 변수 슬롯. 함수 호출마다 새 환경을 만드는 대신 이 배열의 구간을 프레임으로 쓴다.
+    private Object[] stack = new Object[256];
+    private int base = 0; // 현재 프레임의 시작 위치
+    private int top = 0; // 현재 프레임의 끝 (다음 프레임의 시작 위치)
+    private Cell[] upvalues = NO_UPVALUES; // 현재 함수가 캡처한 변수
+    private Stmt.Function function; // 실행 중인 함수. 최상위 코드면 null
+
+    // Binary 노드의 실행 상태. 처음 실행할 때 연산자와 피연산자 타입에 맞춰 정하고,
+    // 타입이 예상과 다르면 일반 상태로 되돌린다.
+    private static final int UNINITIALIZED = 0;
+    private static final int EQUAL = 1;
+    private static final int NOT_EQUAL = 2;
+    private static final int GREATER = 3;
+    private static final int GREATER_EQUAL = 4;
+    private static final int LESS = 5;
+    private static final int LESS_EQUAL = 6;
+    private static final int SUBTRACT = 7;
+    private static final int MULTIPLY = 8;
+    private static final int DIVIDE = 9;
+    private static final int ADD = 10;          // 아직 피연산자 타입을 보지 못한 '+'
+    private static final int ADD_NUMERIC = 11;  // Resolver 가 숫자 식으로 표시한 '+'
+    private static final int ADD_NUMBERS = 12;  // 숫자 + 숫자만 본 '+'
+    private static final int ADD_STRINGS = 13;  // 문자열 + 문자열만 본 '+'
+    private static final int ADD_GENERIC = 14;
+
+    // Call 노드의 실행 상태
+    private static final int CALL_FUNCTION = 1; // 한 사용자 함수만 호출해 온 지점
+    private static final int CALL_GENERIC = 2;
+
+    // evaluateOperands 의 결과. 평가가 끝난 직후에만 읽는다.
+    private double leftOperand;
+    private double rightOperand;
 
     private Environment initializeGlobals() {
         Environment globals = new Environment();
@@ -35,7 +69,10 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     /**
      * 1. 표현식을 평가(evaluate) 2. 결과를 문자열로 변환(stringify) 3. 콘솔에 출력 4. 런타임 에러 발생 시 에러 처리
      */
-    void interpret(List<Stmt> statements) {
+    void interpret(List<Stmt> statements, int frameSize) {
+        // 최상위 코드의 블록 안 지역 변수도 0번 슬롯부터 쓴다.
+        ensureStack(frameSize);
+        top = frameSize;
         try {
             for (Stmt statement : statements) {
                 execute(statement); // 각 문장 실행
@@ -45,6 +82,9 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
     }
 
+    // switch (expr.kind) 로 분기하면 evaluate 가 커져서 JIT 이 호출하는 쪽에 인라인하지 못하고 오히려 느려진다.
+    // accept 는 작아서 인라인되므로 실행할 때는 Visitor 로 분기한다. (DispatchBenchmark 참고)
+    // 함수 본문에 흔히 오는 블록, 식, 만약, 반환 문장은 재귀 한 단계마다 Java 프레임이 덜 쌓이도록 바로 accept 한다.
     private Object evaluate(Expr expr) {
         return expr.accept(this);
     }
@@ -53,13 +93,12 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         stmt.accept(this);
     }
 
-    void resolve(Expr expr, int depth) {
-        locals.put(expr, depth);
-    }
-
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
-        executeBlock(stmt.statements, new Environment(environment));
+        // 블록의 지역 변수는 Resolver 가 현재 프레임의 슬롯을 배정해 두었다.
+        for (Stmt statement : stmt.statements) {
+            statement.accept(this);
+        }
         return null;
     }
 
@@ -73,27 +112,29 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             }
         }
 
-        environment.define(stmt.name.lexeme, null);
+        define(stmt.name, stmt.slot, stmt.cell, null);
 
+        // 메서드들이 캡처할 수 있도록 super 는 Cell 에 담는다.
         if (stmt.superclass != null) {
-            environment = new Environment(environment);
-            environment.define("super", superclass);
+            stack[base + stmt.superSlot] = new Cell(superclass);
         }
 
         Map<String, WoowaFunction> methods = new HashMap<>();
         for (Function method : stmt.methods) {
-            WoowaFunction function = new WoowaFunction(method, environment,
+            WoowaFunction function = new WoowaFunction(method, capture(method),
                 method.name.lexeme.equals("init"));
             methods.put(method.name.lexeme, function);
         }
 
         WoowaClass klass = new WoowaClass(stmt.name.lexeme, (WoowaClass) superclass, methods);
 
-        if (superclass != null) {
-            environment = environment.enclosing;
+        if (stmt.slot == -1) {
+            globals.assign(stmt.name, klass);
+        } else if (stmt.cell) {
+            ((Cell) stack[base + stmt.slot]).value = klass;
+        } else {
+            stack[base + stmt.slot] = klass;
         }
-
-        environment.assign(stmt.name, klass);
         return null;
     }
 
@@ -159,42 +200,147 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return value;
     }
 
-    void executeBlock(List<Stmt> statements, Environment environment) {
-        // 블록 실행 후 원래 로 돌아가기 위해 현재 환경 백업
-        Environment previous = this.environment;
-        try {
-            // 새로운 환경으로 전환
-            this.environment = environment;
+    // 호출될 함수의 프레임을 스택 끝에 만들고 인자를 채운다.
+    int pushFrame(Stmt.Function declaration, WoowaInstance receiver, List<Object> arguments) {
+        if (declaration.lazyBody != null) {
+            parseLazyBody(declaration);
+        }
+        int frame = top;
+        ensureStack(frame + declaration.frameSize);
 
-            // 블록 내부 문장 순차적으로 실행
-            for (Stmt statement : statements) {
-                execute(statement);
+        // 메서드는 0번 슬롯에 this, 이어서 파라미터가 순서대로 들어간다.
+        int slot = 0;
+        if (receiver != null) {
+            storeParameter(declaration, frame, slot++, receiver);
+        }
+        for (Object argument : arguments) {
+            storeParameter(declaration, frame, slot++, argument);
+        }
+        return frame;
+    }
+
+    // 본문을 건너뛰고 파싱한 함수는 처음 호출될 때 본문을 파싱하고 리졸브한다.
+    private static void parseLazyBody(Stmt.Function declaration) {
+        Parser parser = new Parser(declaration.lazyBody, false);
+        List<Stmt> body = parser.functionBody();
+        if (body == null) {
+            // 구문 에러는 본문 토큰의 원래 줄 번호로 이미 보고됐다. 런타임 에러도 그 줄을 가리킨다.
+            throw new RuntimeError(new Token(null, "", null, parser.errorLine()), "함수 본문에 에러가 있습니다.");
+        }
+        if (!Woowa.hadError) {
+            declaration.body.clear();
+            declaration.body.addAll(body);
+            new Resolver().resolveLazyFunction(declaration);
+        }
+
+        if (Woowa.hadError) {
+            throw new RuntimeError(declaration.name, "함수 본문에 에러가 있습니다.");
+        }
+        declaration.lazyBody = null;
+        if (Woowa.optimizing) {
+            new Optimizer(false).optimize(declaration);
+        }
+    }
+
+    private void storeParameter(Stmt.Function declaration, int frame, int slot, Object value) {
+        stack[frame + slot] = declaration.cellParams[slot] ? new Cell(value) : value;
+    }
+
+    // 인자가 이미 채워진 프레임에서 함수 본문을 실행한다.
+    // 재귀 깊이가 Java 스택에 그대로 쌓이므로 호출 하나에 드는 Java 프레임을 줄이려고 본문 문장을 직접 accept 한다.
+    Object invoke(WoowaFunction callee, int frame) {
+        Stmt.Function declaration = callee.declaration;
+        if (callee.receiver == null) {
+            Object result = executeCompiled(declaration, frame);
+            if (result != Jit.FALLBACK) {
+                return result;
+            }
+        }
+
+        int previousBase = base;
+        int previousTop = top;
+        Cell[] previousUpvalues = this.upvalues;
+        Stmt.Function previousFunction = function;
+
+        base = frame;
+        top = frame + declaration.frameSize;
+        this.upvalues = callee.upvalues;
+        function = declaration;
+        Object returnValue = null;
+        try {
+            for (Stmt statement : declaration.body) {
+                statement.accept(this);
             }
+        } catch (Return returned) {
+            returnValue = returned.value;
         } finally {
-            // 환경 복원
-            this.environment = previous;
+            base = previousBase;
+            top = previousTop;
+            this.upvalues = previousUpvalues;
+            function = previousFunction;
+        }
+        return callee.isInitializer ? callee.receiver : returnValue;
+    }
+
+    // 호출과 루프 반복으로 충분히 뜨거워진 함수는 JIT 으로 컴파일한 코드로 실행한다.
+    // 컴파일된 코드로 실행하지 못하면 Jit.FALLBACK 을 돌려준다.
+    Object executeCompiled(Stmt.Function declaration, int frame) {
+        if (declaration.compiled == null) {
+            if (++declaration.hotness < Jit.THRESHOLD) {
+                return Jit.FALLBACK;
+            }
+            declaration.compiled = Jit.compile(declaration, globals);
+        }
+        return declaration.compiled.invoke(stack, frame, declaration.params.size());
+    }
+
+    private void backEdge() {
+        if (function != null) {
+            function.hotness++;
+        }
+    }
+
+    private void ensureStack(int size) {
+        if (size > stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(size, stack.length * 2));
         }
     }
 
+    // Resolver 가 정해 준 위치에서 함수가 참조하는 바깥 변수의 Cell 을 모은다.
+    private Cell[] capture(Stmt.Function declaration) {
+        int[] sources = declaration.upvalues;
+        if (sources.length == 0) {
+            return NO_UPVALUES;
+        }
+
+        Cell[] captured = new Cell[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            // 0 이상이면 현재 프레임의 슬롯, 음수면 현재 함수가 캡처한 변수
+            captured[i] = source >= 0 ? (Cell) stack[base + source] : upvalues[~source];
+        }
+        return captured;
+    }
+
     @Override
     public Void visitExpressionStmt(Stmt.Expression stmt) {
-        evaluate(stmt.expression);
+        stmt.expression.accept(this);
         return null;
     }
 
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
-        WoowaFunction function = new WoowaFunction(stmt, environment, false);
-        environment.define(stmt.name.lexeme, function);
+        WoowaFunction function = new WoowaFunction(stmt, capture(stmt), false);
+        define(stmt.name, stmt.slot, stmt.cell, function);
         return null;
     }
 
     @Override
     public Void visitIfStmt(Stmt.If stmt) {
-        if (isTruthy(evaluate(stmt.condition))) {
-            execute(stmt.thenBranch);
+        if (isTruthy(stmt.condition.accept(this))) {
+            stmt.thenBranch.accept(this);
         } else if (stmt.elseBranch != null) {
-            execute(stmt.elseBranch);
+            stmt.elseBranch.accept(this);
         }
         return null;
     }
@@ -211,7 +357,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         Object value = null;
         // return 값이 있으면 평가하고 없으면 nil 을 반환한다.
         if (stmt.value != null) {
-            value = evaluate(stmt.value);
+            value = stmt.value.accept(this);
         }
 
         throw new woowa.Return(value);
@@ -224,7 +370,35 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             value = evaluate(stmt.initializer);
         }
 
-        environment.define(stmt.name.lexeme, value);
+        define(stmt.name, stmt.slot, stmt.cell, value);
+        return null;
+    }
+
+    // 최상위에서는 전역 변수로, 그 외에는 현재 프레임의 슬롯에 정의한다.
+    private void define(Token name, int slot, boolean cell, Object value) {
+        if (slot == -1) {
+            globals.define(name.lexeme, value);
+        } else {
+            // 캡처되는 변수는 선언될 때마다 새 Cell 을 만든다.
+            stack[base + slot] = cell ? new Cell(value) : value;
+        }
+    }
+
+    // 루프 변수는 Resolver 가 현재 프레임에 슬롯을 잡아 두었으므로 반복마다 새로 만들 것이 없다.
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        if (stmt.initializer != null) {
+            execute(stmt.initializer);
+        }
+
+        // 조건이 없으면 무한 루프
+        while (stmt.condition == null || isTruthy(evaluate(stmt.condition))) {
+            execute(stmt.body);
+            if (stmt.increment != null) {
+                evaluate(stmt.increment);
+            }
+            backEdge();
+        }
         return null;
     }
 
@@ -232,6 +406,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Void visitWhileStmt(Stmt.While stmt) {
         while (isTruthy(evaluate(stmt.condition))) {
             execute(stmt.body);
+            backEdge();
         }
         return null;
     }
@@ -240,68 +415,227 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitAssignExpr(Expr.Assign expr) {
         Object value = evaluate(expr.value);
 
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            environment.assignAt(distance, expr.name, value);
-        } else {
-            globals.assign(expr.name, value);
+        switch (expr.storage) {
+            case LOCAL:
+                stack[base + expr.slot] = value;
+                break;
+            case CELL:
+                ((Cell) stack[base + expr.slot]).value = value;
+                break;
+            case UPVALUE:
+                upvalues[expr.slot].value = value;
+                break;
+            default:
+                global(expr).assign(expr.name, value);
         }
         return value;
     }
 
     @Override
     public Object visitBinaryExpr(Binary expr) {
-        Object left = evaluate(expr.left);
-        Object right = evaluate(expr.right);
+        switch (expr.state) {
+            case UNINITIALIZED:
+                expr.state = specialize(expr);
+                return visitBinaryExpr(expr);
+            case NOT_EQUAL:
+                return !isEqual(evaluate(expr.left), evaluate(expr.right));
+            case EQUAL:
+                return isEqual(evaluate(expr.left), evaluate(expr.right));
+            case GREATER:
+                evaluateOperands(expr);
+                return leftOperand > rightOperand;
+            case GREATER_EQUAL:
+                evaluateOperands(expr);
+                return leftOperand >= rightOperand;
+            case LESS:
+                evaluateOperands(expr);
+                return leftOperand < rightOperand;
+            case LESS_EQUAL:
+                evaluateOperands(expr);
+                return leftOperand <= rightOperand;
+            case SUBTRACT:
+            case DIVIDE:
+            case MULTIPLY:
+            case ADD_NUMERIC:
+                return Numbers.box(evaluateNumber(expr));
+            case ADD_NUMBERS: {
+                Object left = evaluate(expr.left);
+                Object right = evaluate(expr.right);
+                if (left instanceof Double && right instanceof Double) {
+                    return Numbers.box((double) left + (double) right);
+                }
+                expr.state = ADD_GENERIC; // 타입이 바뀌었으므로 일반 덧셈으로 되돌린다.
+                return add(expr, left, right);
+            }
+            case ADD_STRINGS: {
+                Object left = evaluate(expr.left);
+                Object right = evaluate(expr.right);
+                if (left instanceof String && right instanceof String) {
+                    return (String) left + (String) right;
+                }
+                expr.state = ADD_GENERIC;
+                return add(expr, left, right);
+            }
+            case ADD: {
+                // 처음 본 피연산자 타입에 맞춰 다음 실행부터 특수화한다.
+                Object left = evaluate(expr.left);
+                Object right = evaluate(expr.right);
+                if (left instanceof Double && right instanceof Double) {
+                    expr.state = ADD_NUMBERS;
+                } else if (left instanceof String && right instanceof String) {
+                    expr.state = ADD_STRINGS;
+                } else {
+                    expr.state = ADD_GENERIC;
+                }
+                return add(expr, left, right);
+            }
+            default:
+                return add(expr, evaluate(expr.left), evaluate(expr.right));
+        }
+    }
 
+    // 연산자에 맞는 첫 상태를 정한다. '+' 는 타입이 정해지지 않았으면 실행하면서 고른다.
+    private static int specialize(Binary expr) {
         switch (expr.operator.type) {
             case BANG_EQUAL:
-                return !isEqual(left, right);
+                return NOT_EQUAL;
             case EQUAL_EQUAL:
-                return isEqual(left, right);
+                return EQUAL;
             case GREATER:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left > (double) right;
+                return GREATER;
             case GREATER_EQUAL:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left >= (double) right;
+                return GREATER_EQUAL;
             case LESS:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left < (double) right;
+                return LESS;
             case LESS_EQUAL:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left <= (double) right;
+                return LESS_EQUAL;
             case MINUS:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left - (double) right;
-            case PLUS:
-                // 숫자일 경우 연산
-                if (left instanceof Double && right instanceof Double) {
-                    return (double) left + (double) right;
-                }
-                // 문자일 경우 문자열 합치기
-                if (left instanceof String || right instanceof String) {
-                    return stringify(left) + stringify(right);
-                }
-
-                throw new RuntimeError(expr.operator,
-                    "피연산자는 두개의 숫자거나 문자열 연결을 위한 하나 이상의 문자열이어야 합니다.");
+                return SUBTRACT;
             case SLASH:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left / (double) right;
+                return DIVIDE;
             case STAR:
-                checkNumberOperands(expr.operator, left, right);
-                return (double) left * (double) right;
+                return MULTIPLY;
+            default:
+                return expr.numeric ? ADD_NUMERIC : ADD;
         }
+    }
 
-        // 실행되지 않는 코드
-        return null;
+    private Object add(Binary expr, Object left, Object right) {
+        // 숫자일 경우 연산
+        if (left instanceof Double && right instanceof Double) {
+            return Numbers.box((double) left + (double) right);
+        }
+        // 문자일 경우 문자열 합치기
+        if (left instanceof String || right instanceof String) {
+            return stringify(left) + stringify(right);
+        }
+
+        throw new RuntimeError(expr.operator,
+            "피연산자는 두개의 숫자거나 문자열 연결을 위한 하나 이상의 문자열이어야 합니다.");
+    }
+
+    // Resolver 가 숫자 식으로 표시한 식을 박싱 없이 평가한다.
+    private double evaluateNumber(Expr expr) {
+        if (expr instanceof Binary) {
+            return evaluateNumber((Binary) expr);
+        }
+        if (expr instanceof Literal) {
+            return (double) ((Literal) expr).value;
+        }
+        if (expr instanceof Grouping) {
+            return evaluateNumber(((Grouping) expr).expression);
+        }
+
+        // 단항 '-'
+        Unary unary = (Unary) expr;
+        Object right = evaluate(unary.right);
+        checkNumberOperand(unary.operator, right);
+        return -(double) right;
+    }
+
+    private double evaluateNumber(Binary expr) {
+        if (expr.state == UNINITIALIZED) {
+            expr.state = specialize(expr);
+        }
+
+        evaluateOperands(expr);
+        switch (expr.state) {
+            case SUBTRACT:
+                return leftOperand - rightOperand;
+            case DIVIDE:
+                return leftOperand / rightOperand;
+            case MULTIPLY:
+                return leftOperand * rightOperand;
+            default:
+                // 양쪽이 숫자 식인 '+'
+                return leftOperand + rightOperand;
+        }
+    }
+
+    /**
+     * 양쪽 피연산자를 숫자로 평가해 leftOperand, rightOperand 에 둔다.
+     * 숫자 식인 피연산자는 박싱 없이 계산하고, 타입 검사는 양쪽을 모두 평가한 뒤에 한다.
+     */
+    private void evaluateOperands(Binary expr) {
+        double left = 0;
+        boolean leftIsNumber = true;
+        if (expr.leftNumeric) {
+            left = evaluateNumber(expr.left);
+        } else {
+            Object value = evaluate(expr.left);
+            if (value instanceof Double) {
+                left = (double) value;
+            } else {
+                leftIsNumber = false;
+            }
+        }
+
+        double right = 0;
+        boolean rightIsNumber = true;
+        if (expr.rightNumeric) {
+            right = evaluateNumber(expr.right);
+        } else {
+            Object value = evaluate(expr.right);
+            if (value instanceof Double) {
+                right = (double) value;
+            } else {
+                rightIsNumber = false;
+            }
+        }
+
+        if (!leftIsNumber || !rightIsNumber) {
+            throw new RuntimeError(expr.operator, "피연산자들은 숫자여야 합니다.");
+        }
+        leftOperand = left;
+        rightOperand = right;
     }
 
     @Override
     public Object visitCallExpr(Expr.Call expr) {
         Object callee = evaluate(expr.callee);
 
+        // -O 가 본문을 펼쳐 둔 호출 지점. 전역 변수가 아직 그 함수를 가리킬 때만 펼친 식을 평가한다.
+        if (expr.inline != null) {
+            if (callee instanceof WoowaFunction && ((WoowaFunction) callee).declaration == expr.inline) {
+                return callInline(expr);
+            }
+            expr.inline = null; // 다른 값이 대입됐으므로 다시는 펼치지 않는다.
+        }
+
+        // 같은 함수만 호출해 온 호출 지점은 인자를 바로 새 프레임에 평가해 넣는다.
+        if (expr.state == CALL_FUNCTION) {
+            if (callee instanceof WoowaFunction
+                && ((WoowaFunction) callee).declaration == expr.target) {
+                try {
+                    return callFunction((WoowaFunction) callee, expr.arguments);
+                } catch (StackOverflowError error) {
+                    throw stackOverflow(expr);
+                }
+            }
+            expr.state = CALL_GENERIC;
+            expr.target = null;
+        }
+
         List<Object> arguments = new ArrayList<>();
         for (Expr argument : expr.arguments) {
             arguments.add(evaluate(argument));
@@ -316,7 +650,71 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             throw new RuntimeError(expr.paren,
                 function.arity() + "개의 인자가 기대됬으나 " + arguments.size() + "개가 넘어왔습니다.");
         }
-        return function.call(this, arguments);
+
+        // 첫 호출의 대상이 사용자 함수면 다음부터 그 함수로 특수화한다.
+        if (expr.state == UNINITIALIZED) {
+            if (function instanceof WoowaFunction) {
+                expr.state = CALL_FUNCTION;
+                expr.target = ((WoowaFunction) function).declaration;
+            } else {
+                expr.state = CALL_GENERIC;
+            }
+        }
+        try {
+            return function.call(this, arguments);
+        } catch (StackOverflowError error) {
+            throw stackOverflow(expr);
+        }
+    }
+
+    // 재귀가 너무 깊어 Java 스택이 넘치면 vm 엔진처럼 호출한 줄의 런타임 에러로 바꾼다.
+    private static RuntimeError stackOverflow(Expr.Call expr) {
+        return new RuntimeError(expr.paren, "스택 오버플로우.");
+    }
+
+    // 인자 개수는 처음 호출할 때 이미 검사했다.
+    private Object callFunction(WoowaFunction function, List<Expr> arguments) {
+        Stmt.Function declaration = function.declaration;
+        if (declaration.lazyBody != null) {
+            parseLazyBody(declaration);
+        }
+        int frame = top;
+        ensureStack(frame + declaration.frameSize);
+
+        // 인자를 평가하다 호출되는 함수가 이 프레임을 덮어쓰지 않도록 자리를 먼저 잡는다.
+        top = frame + declaration.frameSize;
+        try {
+            int slot = 0;
+            if (function.receiver != null) {
+                storeParameter(declaration, frame, slot++, function.receiver);
+            }
+            for (Expr argument : arguments) {
+                Object value = argument.accept(this);
+                storeParameter(declaration, frame, slot++, value);
+            }
+        } finally {
+            top = frame;
+        }
+        return invoke(function, frame);
+    }
+
+    // 호출 지점에 잡아 둔 자리에 인자를 넣고, 그 자리를 프레임으로 삼아 반환 식을 평가한다.
+    // 펼친 함수는 캡처가 없고 식 하나만 반환하므로 Return 예외와 새 프레임이 필요 없다.
+    private Object callInline(Expr.Call expr) {
+        int frame = base + expr.inlineFrame;
+        List<Expr> arguments = expr.arguments;
+        for (int i = 0; i < arguments.size(); i++) {
+            Object value = evaluate(arguments.get(i)); // 인자를 평가하다 스택이 커질 수 있다.
+            stack[frame + i] = value;
+        }
+
+        int previousBase = base;
+        base = frame;
+        try {
+            return evaluate(expr.inlineBody);
+        } finally {
+            base = previousBase;
+        }
     }
 
     @Override
@@ -376,10 +774,10 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitSuperExpr(Expr.Super expr) {
-        int distance = locals.get(expr);
-        WoowaClass superclass = (WoowaClass) environment.getAt(distance, "super");
+        // super 는 항상 메서드가 캡처한 변수다.
+        WoowaClass superclass = (WoowaClass) upvalues[expr.slot].value;
 
-        WoowaInstance object = (WoowaInstance) environment.getAt(distance - 1, "this");
+        WoowaInstance object = (WoowaInstance) load(expr.thisStorage, expr.thisSlot);
 
         WoowaFunction method = superclass.findMethod(expr.method.lexeme);
 
@@ -392,7 +790,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitThisExpr(Expr.This expr) {
-        return lookUpVariable(expr.keyword, expr);
+        return load(expr.storage, expr.slot);
     }
 
     @Override
@@ -404,7 +802,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 return !isTruthy(right);
             case MINUS:
                 checkNumberOperand(expr.operator, right);
-                return -(double) right;
+                return Numbers.box(-(double) right);
         }
 
         // 실행되지 않는 코드
@@ -413,18 +811,38 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitVariableExpr(Expr.Variable expr) {
-        return lookUpVariable(expr.name, expr);
+        if (expr.storage == StorageType.GLOBAL) {
+            return global(expr).get(expr.name);
+        }
+        return load(expr.storage, expr.slot);
     }
 
-    private Object lookUpVariable(Token name, Expr expr) {
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            return environment.getAt(distance, name.lexeme);
-        } else {
-            return globals.get(name);
+    private Object load(StorageType storage, int slot) {
+        switch (storage) {
+            case LOCAL:
+                return stack[base + slot];
+            case CELL:
+                return ((Cell) stack[base + slot]).value;
+            default:
+                return upvalues[slot].value;
         }
     }
 
+    // 전역 변수 칸은 처음 실행될 때 찾아서 노드에 연결해 둔다.
+    private Environment.Global global(Expr.Variable expr) {
+        if (expr.global == null) {
+            expr.global = globals.global(expr.name.lexeme);
+        }
+        return expr.global;
+    }
+
+    private Environment.Global global(Expr.Assign expr) {
+        if (expr.global == null) {
+            expr.global = globals.global(expr.name.lexeme);
+        }
+        return expr.global;
+    }
+
     // 런타임 에러 감지용 메서드
     private void checkNumberOperand(Token operator, Object operand) {
         if (operand instanceof Double) {
@@ -433,14 +851,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         throw new RuntimeError(operator, "피연산자는 숫자여야 합니다.");
     }
 
-    private void checkNumberOperands(Token operator, Object left, Object right) {
-        if (left instanceof Double && right instanceof Double) {
-            return;
-        }
-        throw new RuntimeError(operator, "피연산자들은 숫자여야 합니다.");
-    }
-
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
         if (object == null) {
             return false;
         }
@@ -451,7 +862,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return true;
     }
 
-    private boolean isEqual(Object a, Object b) {
+    static boolean isEqual(Object a, Object b) {
         if (a == null && b == null) {
             return true;
         }
@@ -466,7 +877,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
      * 평가 결과를 사용자 친화적인 문자열로 변환 - null -> "nil" - 정수형 double -> 소수점 제거 (3.0 -> "3") - 그 외 ->
      * toString() 사용
      */
-    private String stringify(Object object) {
+    static String stringify(Object object) {
         if (object == null) {
             return "nil";
         }
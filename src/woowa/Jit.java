@@ -0,0 +1,754 @@
+package woowa;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import woowa.JvmClassWriter.Label;
+import woowa.JvmClassWriter.MethodWriter;
+
+/**
+ * 뜨거운 함수를 JVM 바이트코드로 컴파일하는 JIT
+ * <p>
+ * 숫자만 다루는 함수를 대상으로 한다. 파라미터와 지역 변수는 모두 double 로 두고, 전역 함수 호출은 컴파일할 때 그 전역 변수에
+ * 들어 있던 함수로 고정한다. 호출된 함수들도 함께 컴파일해 하나의 히든 클래스에 static 메서드로 넣는다.
+ * <p>
+ * 컴파일된 코드는 전역 변수를 바꾸거나 다른 코드를 호출하지 않으므로, 들어갈 때 인자가 숫자인지와 고정한 전역 함수가 그대로인지만
+ * 확인하면 된다. 가정이 맞지 않으면 인터프리터가 실행한다.
+ * <p>
+ * WoowaPack 도 같은 코드 생성기로 최상위 함수를 미리 컴파일한다. 이때는 전역 함수 호출을 스크립트에 선언된 함수로 고정한다.
+ */
+final class Jit {
+
+    // 호출 횟수와 루프 반복 횟수의 합이 이 값을 넘으면 컴파일한다.
+    static final int THRESHOLD = 1000;
+    // 컴파일된 코드로 실행하지 못했음을 나타내는 값
+    static final Object FALLBACK = new Object();
+
+    static final String CLASS_NAME = "woowa/JitCode";
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    // JVM 명령어
+    static final int ICONST_0 = 0x03;
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int LDC2_W = 0x14;
+    static final int DLOAD = 0x18;
+    static final int DSTORE = 0x39;
+    static final int POP2 = 0x58;
+    static final int DUP2 = 0x5c;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int DNEG = 0x77;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int GOTO = 0xa7;
+    static final int DRETURN = 0xaf;
+    static final int INVOKESTATIC = 0xb8;
+
+    /**
+     * 전역 함수 호출을 어떤 선언으로 고정할지, 컴파일한 함수를 어떤 메서드 이름으로 둘지 정한다.
+     */
+    interface Linker {
+
+        // 전역 변수 name 에 들어 있을 함수의 선언. 고정할 수 없으면 null
+        Stmt.Function target(String name);
+
+        String methodName(Stmt.Function function, int index);
+    }
+
+    /**
+     * 컴파일된 함수 하나로 들어가는 입구
+     */
+    static final class Entry {
+
+        // 컴파일할 수 없는 함수
+        static final Entry UNSUPPORTED = new Entry(null, null, null);
+
+        private MethodHandle handle; // (double[])double
+        private final Environment.Global[] cells;
+        private final Stmt.Function[] targets;
+
+        private Entry(MethodHandle handle, Environment.Global[] cells, Stmt.Function[] targets) {
+            this.handle = handle;
+            this.cells = cells;
+            this.targets = targets;
+        }
+
+        // stack[frame] 부터 놓인 인자로 실행한다. 가정이 맞지 않으면 FALLBACK
+        Object invoke(Object[] stack, int frame, int arity) {
+            if (handle == null) {
+                return FALLBACK;
+            }
+
+            // 고정한 전역 함수가 바뀌었으면 이 코드는 더 이상 쓰지 않는다.
+            for (int i = 0; i < cells.length; i++) {
+                if (declaration(cells[i].value) != targets[i]) {
+                    handle = null;
+                    return FALLBACK;
+                }
+            }
+
+            double[] arguments = new double[arity];
+            for (int i = 0; i < arity; i++) {
+                Object argument = stack[frame + i];
+                if (!(argument instanceof Double)) {
+                    return FALLBACK;
+                }
+                arguments[i] = (double) argument;
+            }
+
+            try {
+                return Numbers.box((double) handle.invokeExact(arguments));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final Linker linker;
+    // 함께 컴파일할 함수. 메서드 이름은 linker 가 정한다.
+    private final List<Stmt.Function> functions = new ArrayList<>();
+    private final Map<Stmt.Function, Integer> functionIndex = new HashMap<>();
+    private final Map<Expr.Call, Integer> callTargets = new HashMap<>();
+    // 고정한 전역 함수의 이름과 선언
+    private final List<String> names = new ArrayList<>();
+    private final List<Stmt.Function> targets = new ArrayList<>();
+
+    private Jit(Linker linker) {
+        this.linker = linker;
+    }
+
+    // 실행 중에는 전역 변수에 지금 들어 있는 함수로 고정한다. 메서드 이름은 f0, f1, ...
+    private static Linker running(Environment globals) {
+        return new Linker() {
+            @Override
+            public Stmt.Function target(String name) {
+                return declaration(globals.global(name).value);
+            }
+
+            @Override
+            public String methodName(Stmt.Function function, int index) {
+                return "f" + index;
+            }
+        };
+    }
+
+    // 미리 컴파일할 때는 최상위에 선언된 함수로 고정한다. 메서드 이름은 함수 이름이다.
+    private static Linker ahead(Map<String, Stmt.Function> functions) {
+        return new Linker() {
+            @Override
+            public Stmt.Function target(String name) {
+                return functions.get(name);
+            }
+
+            @Override
+            public String methodName(Stmt.Function function, int index) {
+                return function.name.lexeme;
+            }
+        };
+    }
+
+    // bind 되지 않은 트리 엔진의 사용자 함수면 그 선언, 아니면 null
+    private static Stmt.Function declaration(Object value) {
+        if (value == null || value.getClass() != WoowaFunction.class) {
+            return null;
+        }
+        WoowaFunction function = (WoowaFunction) value;
+        return function.receiver == null ? function.declaration : null;
+    }
+
+    /**
+     * 함수를 컴파일한다. 함께 컴파일된 함수들도 아직 입구가 없으면 입구를 받는다.
+     */
+    static Entry compile(Stmt.Function function, Environment globals) {
+        Jit jit = new Jit(running(globals));
+        if (!jit.add(function)) {
+            return Entry.UNSUPPORTED;
+        }
+
+        try {
+            JvmClassWriter writer = new JvmClassWriter(CLASS_NAME);
+            jit.generate(writer, CLASS_NAME);
+            MethodHandles.Lookup lookup = LOOKUP.defineHiddenClass(writer.toByteArray(), true);
+            Environment.Global[] cells = jit.cells(globals);
+            Stmt.Function[] targets = jit.targets.toArray(new Stmt.Function[0]);
+
+            Entry result = null;
+            for (int i = 0; i < jit.functions.size(); i++) {
+                Stmt.Function declaration = jit.functions.get(i);
+                MethodHandle handle = handle(lookup, lookup.lookupClass(),
+                    jit.linker.methodName(declaration, i), declaration.params.size());
+                Entry entry = new Entry(handle, cells, targets);
+                if (declaration == function) {
+                    result = entry;
+                } else if (declaration.compiled == null) {
+                    declaration.compiled = entry;
+                }
+            }
+            return result;
+        } catch (ReflectiveOperationException | LinkageError | IllegalStateException e) {
+            return Entry.UNSUPPORTED;
+        }
+    }
+
+    /**
+     * 최상위에 한 번만 선언된 함수 가운데 컴파일할 수 있는 것을 모두 writer 의 클래스에 static 메서드로 넣는다.
+     * <p>
+     * WoowaPack 이 쓴다. 메서드 이름은 함수 이름이다. 함께 컴파일되는 함수 가운데 메서드가 64KB 를 넘는 것이 있으면 그 함수는
+     * 넣지 않고 인터프리터에 맡긴다.
+     */
+    static void compileAhead(List<Stmt> statements, JvmClassWriter writer, String className) {
+        Map<String, Stmt.Function> functions = topLevelFunctions(statements);
+        Linker linker = ahead(functions);
+        Jit jit = new Jit(linker);
+        for (Stmt.Function function : functions.values()) {
+            // 실패하면 상태가 남으므로 따로 만들어 본 뒤에 넣는다.
+            Jit trial = new Jit(linker);
+            if (!trial.add(function)) {
+                continue;
+            }
+            try {
+                trial.generate(new JvmClassWriter(className), className);
+            } catch (IllegalStateException e) {
+                continue;
+            }
+            jit.add(function);
+        }
+        jit.generate(writer, className);
+    }
+
+    /**
+     * WoowaPack 이 만든 클래스에서 최상위 함수의 메서드를 찾아 입구로 붙인다.
+     * <p>
+     * 메서드가 없는 함수는 인터프리터가 실행하고, 뜨거워지면 평소처럼 JIT 한다. 붙인 입구도 고정한 함수가 바뀌었거나 인자가 숫자가
+     * 아니면 인터프리터로 돌아간다.
+     */
+    static void link(List<Stmt> statements, Class<?> owner, Environment globals) {
+        Map<String, Stmt.Function> functions = topLevelFunctions(statements);
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (Stmt.Function function : functions.values()) {
+            Jit jit = new Jit(ahead(functions));
+            if (!jit.add(function)) {
+                continue;
+            }
+            try {
+                MethodHandle handle = handle(lookup, owner, function.name.lexeme, function.params.size());
+                function.compiled = new Entry(handle, jit.cells(globals),
+                    jit.targets.toArray(new Stmt.Function[0]));
+            } catch (ReflectiveOperationException e) {
+                // 이 함수는 미리 컴파일되지 않았다.
+            }
+        }
+    }
+
+    // 같은 이름이 두 번 선언되면 어느 쪽을 부를지 실행해 봐야 알 수 있으므로 뺀다.
+    private static Map<String, Stmt.Function> topLevelFunctions(List<Stmt> statements) {
+        Map<String, Stmt.Function> functions = new LinkedHashMap<>();
+        Set<String> duplicated = new HashSet<>();
+        for (Stmt statement : statements) {
+            if (statement.kind != Stmt.FUNCTION || ((Stmt.Function) statement).slot != -1) {
+                continue;
+            }
+            Stmt.Function function = (Stmt.Function) statement;
+            if (functions.put(function.name.lexeme, function) != null) {
+                duplicated.add(function.name.lexeme);
+            }
+        }
+        functions.keySet().removeAll(duplicated);
+        return functions;
+    }
+
+    // (double, ...)double 메서드를 찾아 (double[])double 로 바꾼다.
+    private static MethodHandle handle(MethodHandles.Lookup lookup, Class<?> owner, String name, int arity)
+        throws ReflectiveOperationException {
+        Class<?>[] types = new Class<?>[arity];
+        Arrays.fill(types, double.class);
+        return lookup.findStatic(owner, name, MethodType.methodType(double.class, types))
+            .asSpreader(double[].class, arity);
+    }
+
+    // 고정한 전역 함수의 칸
+    private Environment.Global[] cells(Environment globals) {
+        Environment.Global[] cells = new Environment.Global[names.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = globals.global(names.get(i));
+        }
+        return cells;
+    }
+
+    // 지원 범위 검사
+
+    // 함수와 그 함수가 호출하는 전역 함수들을 모두 컴파일할 수 있으면 true
+    boolean add(Stmt.Function function) {
+        if (functionIndex.containsKey(function)) {
+            return true;
+        }
+
+        // 캡처한 변수가 없고, 파라미터가 캡처되지 않고, 모든 경로가 값을 반환해야 한다.
+        if (function.upvalues.length != 0 || function.frameSize * 2 > 0xffff
+            || function.params.size() > 127 || !returns(function.body)) {
+            return false;
+        }
+        for (boolean cell : function.cellParams) {
+            if (cell) {
+                return false;
+            }
+        }
+
+        functionIndex.put(function, functions.size());
+        functions.add(function);
+        for (Stmt statement : function.body) {
+            if (!statement(statement)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean returns(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (returns(statement)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean returns(Stmt stmt) {
+        if (stmt instanceof Stmt.Return) {
+            return true;
+        }
+        if (stmt instanceof Stmt.Block) {
+            return returns(((Stmt.Block) stmt).statements);
+        }
+        if (stmt instanceof Stmt.If) {
+            Stmt.If ifStmt = (Stmt.If) stmt;
+            return ifStmt.elseBranch != null && returns(ifStmt.thenBranch)
+                && returns(ifStmt.elseBranch);
+        }
+        return false;
+    }
+
+    private boolean statement(Stmt stmt) {
+        if (stmt instanceof Stmt.Block) {
+            for (Stmt statement : ((Stmt.Block) stmt).statements) {
+                if (!statement(statement)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (stmt instanceof Stmt.Expression) {
+            return numeric(((Stmt.Expression) stmt).expression);
+        }
+        if (stmt instanceof Stmt.Print) {
+            return numeric(((Stmt.Print) stmt).expression);
+        }
+        if (stmt instanceof Stmt.Var) {
+            Stmt.Var var = (Stmt.Var) stmt;
+            return var.slot != -1 && !var.cell && var.initializer != null
+                && numeric(var.initializer);
+        }
+        if (stmt instanceof Stmt.If) {
+            Stmt.If ifStmt = (Stmt.If) stmt;
+            return condition(ifStmt.condition) && statement(ifStmt.thenBranch)
+                && (ifStmt.elseBranch == null || statement(ifStmt.elseBranch));
+        }
+        if (stmt instanceof Stmt.While) {
+            Stmt.While whileStmt = (Stmt.While) stmt;
+            return condition(whileStmt.condition) && statement(whileStmt.body);
+        }
+        if (stmt instanceof Stmt.For) {
+            Stmt.For forStmt = (Stmt.For) stmt;
+            return (forStmt.initializer == null || statement(forStmt.initializer))
+                && (forStmt.condition == null || condition(forStmt.condition))
+                && (forStmt.increment == null || numeric(forStmt.increment))
+                && statement(forStmt.body);
+        }
+        if (stmt instanceof Stmt.Return) {
+            Expr value = ((Stmt.Return) stmt).value;
+            return value != null && numeric(value);
+        }
+        return false;
+    }
+
+    // 결과가 double 인 식
+    private boolean numeric(Expr expr) {
+        if (expr instanceof Expr.Literal) {
+            return ((Expr.Literal) expr).value instanceof Double;
+        }
+        if (expr instanceof Expr.Grouping) {
+            return numeric(((Expr.Grouping) expr).expression);
+        }
+        if (expr instanceof Expr.Variable) {
+            return ((Expr.Variable) expr).storage == StorageType.LOCAL;
+        }
+        if (expr instanceof Expr.Assign) {
+            Expr.Assign assign = (Expr.Assign) expr;
+            return assign.storage == StorageType.LOCAL && numeric(assign.value);
+        }
+        if (expr instanceof Expr.Unary) {
+            Expr.Unary unary = (Expr.Unary) expr;
+            return unary.operator.type == TokenType.MINUS && numeric(unary.right);
+        }
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            switch (binary.operator.type) {
+                case PLUS:
+                case MINUS:
+                case STAR:
+                case SLASH:
+                    return numeric(binary.left) && numeric(binary.right);
+                default:
+                    return false;
+            }
+        }
+        if (expr instanceof Expr.Call) {
+            return call((Expr.Call) expr);
+        }
+        return false;
+    }
+
+    // 조건식. 숫자는 항상 참이다.
+    private boolean condition(Expr expr) {
+        if (expr instanceof Expr.Literal && ((Expr.Literal) expr).value instanceof Boolean) {
+            return true;
+        }
+        if (expr instanceof Expr.Grouping) {
+            return condition(((Expr.Grouping) expr).expression);
+        }
+        if (expr instanceof Expr.Unary && ((Expr.Unary) expr).operator.type == TokenType.BANG) {
+            return condition(((Expr.Unary) expr).right);
+        }
+        if (expr instanceof Expr.Logical) {
+            Expr.Logical logical = (Expr.Logical) expr;
+            return condition(logical.left) && condition(logical.right);
+        }
+        if (expr instanceof Expr.Binary && comparison((Expr.Binary) expr)) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            return numeric(binary.left) && numeric(binary.right);
+        }
+        return numeric(expr);
+    }
+
+    private static boolean comparison(Expr.Binary expr) {
+        switch (expr.operator.type) {
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+            case EQUAL_EQUAL:
+            case BANG_EQUAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // 고정할 수 있는 전역 사용자 함수를 호출하는 식
+    private boolean call(Expr.Call expr) {
+        if (!(expr.callee instanceof Expr.Variable)) {
+            return false;
+        }
+        Expr.Variable callee = (Expr.Variable) expr.callee;
+        if (callee.storage != StorageType.GLOBAL) {
+            return false;
+        }
+
+        String name = callee.name.lexeme;
+        Stmt.Function target = linker.target(name);
+        if (target == null || target.params.size() != expr.arguments.size()) {
+            return false;
+        }
+
+        for (Expr argument : expr.arguments) {
+            if (!numeric(argument)) {
+                return false;
+            }
+        }
+        if (!add(target)) {
+            return false;
+        }
+
+        if (!names.contains(name)) {
+            names.add(name);
+            targets.add(target);
+        }
+        callTargets.put(expr, functionIndex.get(target));
+        return true;
+    }
+
+    // 코드 생성
+
+    private void generate(JvmClassWriter writer, String className) {
+        for (int i = 0; i < functions.size(); i++) {
+            Stmt.Function function = functions.get(i);
+            MethodWriter method = writer.method(JvmClassWriter.ACC_PUBLIC | JvmClassWriter.ACC_STATIC,
+                linker.methodName(function, i), descriptor(function.params.size()));
+            method.maxLocals(Math.max(function.frameSize, function.params.size()) * 2);
+
+            new Emitter(writer, method, className).function(function);
+        }
+    }
+
+    static String descriptor(int arity) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < arity; i++) {
+            builder.append('D');
+        }
+        return builder.append(")D").toString();
+    }
+
+    // 메서드 하나의 본문을 만든다. Woowa 지역 변수 슬롯 n 은 JVM 지역 변수 2n 에 둔다.
+    private final class Emitter {
+
+        private final JvmClassWriter writer;
+        private final MethodWriter method;
+        private final String className;
+
+        Emitter(JvmClassWriter writer, MethodWriter method, String className) {
+            this.writer = writer;
+            this.method = method;
+            this.className = className;
+        }
+
+        void function(Stmt.Function function) {
+            for (Stmt statement : function.body) {
+                statement(statement);
+            }
+            // 모든 경로가 반환하므로 여기는 실행되지 않지만, 코드 끝을 가리키는 점프가 있을 수 있다.
+            method.op(DCONST_0, 2);
+            method.op(DRETURN, -2);
+        }
+
+        private void statement(Stmt stmt) {
+            if (stmt instanceof Stmt.Block) {
+                for (Stmt statement : ((Stmt.Block) stmt).statements) {
+                    statement(statement);
+                }
+            } else if (stmt instanceof Stmt.Expression) {
+                Expr expression = ((Stmt.Expression) stmt).expression;
+                if (expression instanceof Expr.Assign) {
+                    Expr.Assign assign = (Expr.Assign) expression;
+                    number(assign.value);
+                    method.local(DSTORE, assign.slot * 2, -2);
+                } else {
+                    number(expression);
+                    method.op(POP2, -2);
+                }
+            } else if (stmt instanceof Stmt.Print) {
+                number(((Stmt.Print) stmt).expression);
+                method.op2(INVOKESTATIC, writer.methodRef("woowa/Woowa", "printNumber", "(D)V"), -2);
+            } else if (stmt instanceof Stmt.Var) {
+                Stmt.Var var = (Stmt.Var) stmt;
+                number(var.initializer);
+                method.local(DSTORE, var.slot * 2, -2);
+            } else if (stmt instanceof Stmt.If) {
+                Stmt.If ifStmt = (Stmt.If) stmt;
+                Label elseLabel = new Label();
+                Label end = new Label();
+                branchFalse(ifStmt.condition, elseLabel);
+                statement(ifStmt.thenBranch);
+                method.jump(GOTO, end, 0);
+                method.mark(elseLabel);
+                if (ifStmt.elseBranch != null) {
+                    statement(ifStmt.elseBranch);
+                }
+                method.mark(end);
+            } else if (stmt instanceof Stmt.While) {
+                Stmt.While whileStmt = (Stmt.While) stmt;
+                Label start = new Label();
+                Label end = new Label();
+                method.mark(start);
+                branchFalse(whileStmt.condition, end);
+                statement(whileStmt.body);
+                method.jump(GOTO, start, 0);
+                method.mark(end);
+            } else if (stmt instanceof Stmt.For) {
+                Stmt.For forStmt = (Stmt.For) stmt;
+                Label start = new Label();
+                Label end = new Label();
+                if (forStmt.initializer != null) {
+                    statement(forStmt.initializer);
+                }
+                method.mark(start);
+                if (forStmt.condition != null) {
+                    branchFalse(forStmt.condition, end);
+                }
+                statement(forStmt.body);
+                if (forStmt.increment != null) {
+                    statement(new Stmt.Expression(forStmt.increment));
+                }
+                method.jump(GOTO, start, 0);
+                method.mark(end);
+            } else {
+                number(((Stmt.Return) stmt).value);
+                method.op(DRETURN, -2);
+            }
+        }
+
+        // double 값을 스택에 올린다.
+        private void number(Expr expr) {
+            if (expr instanceof Expr.Literal) {
+                double value = (double) ((Expr.Literal) expr).value;
+                if (Double.doubleToRawLongBits(value) == 0L) {
+                    method.op(DCONST_0, 2);
+                } else if (value == 1.0) {
+                    method.op(DCONST_1, 2);
+                } else {
+                    method.op2(LDC2_W, writer.doubleConstant(value), 2);
+                }
+            } else if (expr instanceof Expr.Grouping) {
+                number(((Expr.Grouping) expr).expression);
+            } else if (expr instanceof Expr.Variable) {
+                method.local(DLOAD, ((Expr.Variable) expr).slot * 2, 2);
+            } else if (expr instanceof Expr.Assign) {
+                Expr.Assign assign = (Expr.Assign) expr;
+                number(assign.value);
+                method.op(DUP2, 2);
+                method.local(DSTORE, assign.slot * 2, -2);
+            } else if (expr instanceof Expr.Unary) {
+                number(((Expr.Unary) expr).right);
+                method.op(DNEG, 0);
+            } else if (expr instanceof Expr.Binary) {
+                Expr.Binary binary = (Expr.Binary) expr;
+                number(binary.left);
+                number(binary.right);
+                switch (binary.operator.type) {
+                    case PLUS:
+                        method.op(DADD, -2);
+                        break;
+                    case MINUS:
+                        method.op(DSUB, -2);
+                        break;
+                    case STAR:
+                        method.op(DMUL, -2);
+                        break;
+                    default:
+                        method.op(DDIV, -2);
+                }
+            } else {
+                Expr.Call call = (Expr.Call) expr;
+                for (Expr argument : call.arguments) {
+                    number(argument);
+                }
+                int arity = call.arguments.size();
+                int index = callTargets.get(call);
+                method.op2(INVOKESTATIC, writer.methodRef(className,
+                    linker.methodName(functions.get(index), index), descriptor(arity)), 2 - arity * 2);
+            }
+        }
+
+        // 조건이 거짓이면 target 으로 점프한다.
+        private void branchFalse(Expr expr, Label target) {
+            if (expr instanceof Expr.Literal && ((Expr.Literal) expr).value instanceof Boolean) {
+                if (!(boolean) ((Expr.Literal) expr).value) {
+                    method.jump(GOTO, target, 0);
+                }
+            } else if (expr instanceof Expr.Grouping) {
+                branchFalse(((Expr.Grouping) expr).expression, target);
+            } else if (expr instanceof Expr.Unary && ((Expr.Unary) expr).operator.type == TokenType.BANG) {
+                branchTrue(((Expr.Unary) expr).right, target);
+            } else if (expr instanceof Expr.Logical) {
+                Expr.Logical logical = (Expr.Logical) expr;
+                if (logical.operator.type == TokenType.AND) {
+                    branchFalse(logical.left, target);
+                    branchFalse(logical.right, target);
+                } else {
+                    Label isTrue = new Label();
+                    branchTrue(logical.left, isTrue);
+                    branchFalse(logical.right, target);
+                    method.mark(isTrue);
+                }
+            } else if (expr instanceof Expr.Binary && comparison((Expr.Binary) expr)) {
+                compare((Expr.Binary) expr, false, target);
+            } else {
+                // 숫자는 항상 참이므로 평가만 한다.
+                number(expr);
+                method.op(POP2, -2);
+            }
+        }
+
+        // 조건이 참이면 target 으로 점프한다.
+        private void branchTrue(Expr expr, Label target) {
+            if (expr instanceof Expr.Literal && ((Expr.Literal) expr).value instanceof Boolean) {
+                if ((boolean) ((Expr.Literal) expr).value) {
+                    method.jump(GOTO, target, 0);
+                }
+            } else if (expr instanceof Expr.Grouping) {
+                branchTrue(((Expr.Grouping) expr).expression, target);
+            } else if (expr instanceof Expr.Unary && ((Expr.Unary) expr).operator.type == TokenType.BANG) {
+                branchFalse(((Expr.Unary) expr).right, target);
+            } else if (expr instanceof Expr.Logical) {
+                Expr.Logical logical = (Expr.Logical) expr;
+                if (logical.operator.type == TokenType.OR) {
+                    branchTrue(logical.left, target);
+                    branchTrue(logical.right, target);
+                } else {
+                    Label isFalse = new Label();
+                    branchFalse(logical.left, isFalse);
+                    branchTrue(logical.right, target);
+                    method.mark(isFalse);
+                }
+            } else if (expr instanceof Expr.Binary && comparison((Expr.Binary) expr)) {
+                compare((Expr.Binary) expr, true, target);
+            } else {
+                number(expr);
+                method.op(POP2, -2);
+                method.jump(GOTO, target, 0);
+            }
+        }
+
+        /**
+         * 비교 결과가 jumpIf 와 같으면 target 으로 점프한다.
+         * NaN 이 섞이면 크기 비교는 모두 거짓이고, 같음 비교는 Double.equals 와 같이 비트로 비교한다.
+         */
+        private void compare(Expr.Binary expr, boolean jumpIf, Label target) {
+            number(expr.left);
+            number(expr.right);
+            switch (expr.operator.type) {
+                case LESS:
+                    method.op(DCMPG, -3);
+                    method.jump(jumpIf ? IFLT : IFGE, target, -1);
+                    break;
+                case LESS_EQUAL:
+                    method.op(DCMPG, -3);
+                    method.jump(jumpIf ? IFLE : IFGT, target, -1);
+                    break;
+                case GREATER:
+                    method.op(DCMPL, -3);
+                    method.jump(jumpIf ? IFGT : IFLE, target, -1);
+                    break;
+                case GREATER_EQUAL:
+                    method.op(DCMPL, -3);
+                    method.jump(jumpIf ? IFGE : IFLT, target, -1);
+                    break;
+                case EQUAL_EQUAL:
+                    method.op2(INVOKESTATIC, writer.methodRef("java/lang/Double", "compare", "(DD)I"), -3);
+                    method.jump(jumpIf ? IFEQ : IFNE, target, -1);
+                    break;
+                default:
+                    method.op2(INVOKESTATIC, writer.methodRef("java/lang/Double", "compare", "(DD)I"), -3);
+                    method.jump(jumpIf ? IFNE : IFEQ, target, -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package woowa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JVM 클래스 파일 작성기
+ * <p>
+ * 컴파일된 Woowa 함수를 담는 데 필요한 만큼만 지원한다. 클래스 파일 버전 49 로 만들어 StackMapTable 없이 타입 추론 검증기를
+ * 쓰게 한다.
+ */
+final class JvmClassWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int VERSION = 49;
+
+    private final List<byte[]> constants = new ArrayList<>();
+    private final Map<String, Integer> constantIndex = new HashMap<>();
+    private int constantCount = 1; // 0번은 쓰지 않는다.
+
+    private final int access;
+    private final int thisClass;
+    private final int superClass;
+    private final List<MethodWriter> methods = new ArrayList<>();
+
+    JvmClassWriter(String className) {
+        this(className, ACC_FINAL | ACC_SUPER);
+    }
+
+    JvmClassWriter(String className, int access) {
+        this.access = access;
+        this.thisClass = classRef(className);
+        this.superClass = classRef("java/lang/Object");
+    }
+
+    MethodWriter method(int access, String name, String descriptor) {
+        MethodWriter method = new MethodWriter(access, utf8(name), utf8(descriptor));
+        methods.add(method);
+        return method;
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int code = utf8("Code");
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+
+            out.writeShort(constantCount);
+            for (byte[] constant : constants) {
+                out.write(constant);
+            }
+
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // 인터페이스
+            out.writeShort(0); // 필드
+
+            out.writeShort(methods.size());
+            for (MethodWriter method : methods) {
+                method.write(out, code);
+            }
+            out.writeShort(0); // 클래스 속성
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // 상수 풀. 같은 상수는 한 번만 넣는다.
+
+    int utf8(String value) {
+        return constant("U" + value, 1, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, 1, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + descriptor, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant("M" + owner + "." + name + descriptor, 1, out -> {
+            out.writeByte(10);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + descriptor, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant("F" + owner + "." + name + descriptor, 1, out -> {
+            out.writeByte(9);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    int string(String value) {
+        int utf8 = utf8(value);
+        return constant("S" + value, 1, out -> {
+            out.writeByte(8);
+            out.writeShort(utf8);
+        });
+    }
+
+    // double 상수는 상수 풀에서 두 칸을 차지한다.
+    int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        return constant("D" + bits, 2, out -> {
+            out.writeByte(6);
+            out.writeLong(bits);
+        });
+    }
+
+    private interface ConstantBody {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int constant(String key, int size, ConstantBody body) {
+        Integer index = constantIndex.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            body.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        constants.add(bytes.toByteArray());
+
+        int result = constantCount;
+        constantCount += size;
+        if (constantCount > 0xffff) {
+            throw new IllegalStateException("상수 풀이 너무 큽니다.");
+        }
+        constantIndex.put(key, result);
+        return result;
+    }
+
+    // 점프 대상 위치
+    static final class Label {
+
+        private int position = -1;
+        private final List<Integer> jumps = new ArrayList<>(); // 오프셋을 채울 점프 명령 위치
+    }
+
+    /**
+     * 메서드 하나의 바이트코드
+     * <p>
+     * 명령어마다 스택 변화량을 받아 최대 스택 깊이를 계산한다.
+     */
+    final class MethodWriter {
+
+        // 클래스 파일이 허용하는 메서드 하나의 바이트코드 길이
+        private static final int MAX_CODE_LENGTH = 65535;
+
+        private final int access;
+        private final int name;
+        private final int descriptor;
+
+        private byte[] code = new byte[64];
+        private int length = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals = 0;
+
+        private MethodWriter(int access, int name, int descriptor) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        void op(int opcode, int stackDelta) {
+            write(opcode);
+            adjust(stackDelta);
+        }
+
+        void op(int opcode, int operand, int stackDelta) {
+            write(opcode);
+            write(operand);
+            adjust(stackDelta);
+        }
+
+        void op2(int opcode, int operand, int stackDelta) {
+            write(opcode);
+            write(operand >> 8);
+            write(operand);
+            adjust(stackDelta);
+        }
+
+        // 지역 변수 명령. 인덱스가 255 를 넘으면 wide 를 쓴다.
+        void local(int opcode, int index, int stackDelta) {
+            if (index > 0xff) {
+                write(0xc4);
+                op2(opcode, index, stackDelta);
+            } else {
+                op(opcode, index, stackDelta);
+            }
+        }
+
+        void jump(int opcode, Label label, int stackDelta) {
+            int at = length;
+            write(opcode);
+            write(0);
+            write(0);
+            adjust(stackDelta);
+            if (label.position != -1) {
+                patch(at, label.position);
+            } else {
+                label.jumps.add(at);
+            }
+        }
+
+        void mark(Label label) {
+            label.position = length;
+            for (int at : label.jumps) {
+                patch(at, length);
+            }
+            label.jumps.clear();
+        }
+
+        void maxLocals(int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        private void patch(int at, int target) {
+            int offset = target - at;
+            if (offset > Short.MAX_VALUE || offset < Short.MIN_VALUE) {
+                throw new IllegalStateException("점프 거리가 너무 깁니다.");
+            }
+            code[at + 1] = (byte) (offset >> 8);
+            code[at + 2] = (byte) offset;
+        }
+
+        private void write(int value) {
+            if (length == MAX_CODE_LENGTH) {
+                throw new IllegalStateException("메서드가 너무 큽니다.");
+            }
+            if (length == code.length) {
+                code = Arrays.copyOf(code, length * 2);
+            }
+            code[length++] = (byte) value;
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void write(DataOutputStream out, int codeAttribute) throws IOException {
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1); // 속성: Code
+
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(0); // 예외 테이블
+            out.writeShort(0); // Code 속성
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package woowa;
+
+import function.NativeFunction;
+import function.NativeFunction.Purity;
+import function.NativeFunctionRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * 루프 조건에서 반복마다 값이 같은 식을 루프 앞의 임시 변수로 옮긴다. (-O)
+ * <p>
+ * 조건은 본문보다 먼저, 적어도 한 번은 평가되므로 조건의 식을 루프 직전에 한 번 평가해도 에러가 나는 시점은 같다. 조건에서
+ * 그 식보다 먼저 평가되는 식이 에러를 낼 수 있으면 순서가 바뀌므로 옮기지 않는다. 본문의 식은 한 번도 평가되지 않을 수
+ * 있으므로 옮기지 않는다.
+ * <p>
+ * 루프 안(조건, 증감, 본문)에서 대입되지 않는 변수, 리터럴, 그 위의 연산과 순수한 내장 함수 호출로만 이루어진 식을 옮긴다.
+ * 전역 변수와 캡처된 변수는 루프 안에 사용자 함수 호출이 없을 때만 바뀌지 않는다고 본다. 내장 함수 이름은 스크립트 전체를
+ * 보았고 어디에서도 다시 정의되지 않을 때만 내장 함수로 본다. 배열 내용을 읽는 함수는 루프 안에서 배열이 바뀔 수 있으면
+ * (배열추가 같은 호출, 인덱스 대입) 옮기지 않는다.
+ */
+final class LoopInvariants {
+
+    private static final Map<String, Purity> NATIVES = purities();
+
+    private final IntSupplier newSlot;
+
+    // 스크립트 전체에서 전역으로 정의되거나 대입되는 이름. scanProgram 을 거치지 않았으면 null
+    private Set<String> rebound;
+    private boolean unknownCode = false; // 아직 파싱하지 않은 함수 본문이 있다.
+
+    // 루프 하나를 훑은 결과
+    private final Set<Integer> assignedSlots = new HashSet<>();
+    private final Set<Integer> assignedUpvalues = new HashSet<>();
+    private final Set<String> assignedGlobals = new HashSet<>();
+    private boolean impureCall;
+    private boolean arrayWrite;
+
+    // 조건을 평가 순서대로 내려가면서 에러를 낼 수 있는 식을 이미 지났는지
+    private boolean mayHaveThrown;
+    private List<Stmt> preheader;
+    private int temps = 0;
+
+    LoopInvariants(IntSupplier newSlot) {
+        this.newSlot = newSlot;
+    }
+
+    private static Map<String, Purity> purities() {
+        Map<String, Purity> purities = new HashMap<>();
+        for (NativeFunction function : new NativeFunctionRegistry().getNativeFunctions()) {
+            purities.put(function.getName(), function.purity());
+        }
+        return purities;
+    }
+
+    // 스크립트 전체를 훑어 다시 정의되는 전역 이름을 모은다. 이후에는 나머지 이름을 내장 함수로 본다.
+    void scanProgram(List<Stmt> statements) {
+        clear();
+        for (Stmt statement : statements) {
+            scan(statement);
+        }
+        rebound = new HashSet<>(assignedGlobals);
+    }
+
+    Stmt hoist(Stmt.While loop) {
+        scanLoop(loop.condition, null, loop.body);
+        List<Stmt> block = new ArrayList<>();
+        Expr condition = hoistCondition(loop.condition, block);
+        if (block.isEmpty()) {
+            return loop;
+        }
+        block.add(new Stmt.While(condition, loop.body));
+        return new Stmt.Block(block);
+    }
+
+    // 초기화는 조건보다 먼저 실행되므로 임시 변수 앞에 둔다. 초기화의 변수 범위는 블록이 이어 받는다.
+    Stmt hoist(Stmt.For loop) {
+        if (loop.condition == null) {
+            return loop;
+        }
+        scanLoop(loop.condition, loop.increment, loop.body);
+        List<Stmt> block = new ArrayList<>();
+        if (loop.initializer != null) {
+            block.add(loop.initializer);
+        }
+        int temps = block.size();
+        Expr condition = hoistCondition(loop.condition, block);
+        if (block.size() == temps) {
+            return loop;
+        }
+        block.add(new Stmt.For(null, condition, loop.increment, loop.body));
+        return new Stmt.Block(block);
+    }
+
+    private void clear() {
+        assignedSlots.clear();
+        assignedUpvalues.clear();
+        assignedGlobals.clear();
+        impureCall = false;
+        arrayWrite = false;
+    }
+
+    private void scanLoop(Expr condition, Expr increment, Stmt body) {
+        clear();
+        scan(condition);
+        if (increment != null) {
+            scan(increment);
+        }
+        scan(body);
+    }
+
+    // 루프 안에서 대입되는 변수와 부작용이 있는 호출을 찾는다. 중첩 함수의 본문도 보수적으로 함께 본다.
+    private void scan(Stmt stmt) {
+        switch (stmt.kind) {
+            case Stmt.BLOCK:
+                for (Stmt statement : ((Stmt.Block) stmt).statements) {
+                    scan(statement);
+                }
+                break;
+            case Stmt.CLASS: {
+                Stmt.Class declaration = (Stmt.Class) stmt;
+                define(declaration.name, declaration.slot);
+                if (declaration.superclass != null) {
+                    scan(declaration.superclass);
+                }
+                for (Stmt.Function method : declaration.methods) {
+                    scanFunction(method);
+                }
+                break;
+            }
+            case Stmt.EXPRESSION:
+                scan(((Stmt.Expression) stmt).expression);
+                break;
+            case Stmt.FOR: {
+                Stmt.For loop = (Stmt.For) stmt;
+                if (loop.initializer != null) {
+                    scan(loop.initializer);
+                }
+                scanOptional(loop.condition);
+                scanOptional(loop.increment);
+                scan(loop.body);
+                break;
+            }
+            case Stmt.FUNCTION: {
+                Stmt.Function function = (Stmt.Function) stmt;
+                define(function.name, function.slot);
+                scanFunction(function);
+                break;
+            }
+            case Stmt.IF: {
+                Stmt.If branch = (Stmt.If) stmt;
+                scan(branch.condition);
+                scan(branch.thenBranch);
+                if (branch.elseBranch != null) {
+                    scan(branch.elseBranch);
+                }
+                break;
+            }
+            case Stmt.PRINT:
+                scan(((Stmt.Print) stmt).expression);
+                break;
+            case Stmt.RETURN:
+                scanOptional(((Stmt.Return) stmt).value);
+                break;
+            case Stmt.VAR: {
+                Stmt.Var var = (Stmt.Var) stmt;
+                define(var.name, var.slot);
+                scanOptional(var.initializer);
+                break;
+            }
+            case Stmt.WHILE: {
+                Stmt.While loop = (Stmt.While) stmt;
+                scan(loop.condition);
+                scan(loop.body);
+                break;
+            }
+            default:
+                throw new IllegalStateException("알 수 없는 문장: " + stmt.kind);
+        }
+    }
+
+    private void define(Token name, int slot) {
+        if (slot == -1) {
+            assignedGlobals.add(name.lexeme);
+        } else {
+            assignedSlots.add(slot);
+        }
+    }
+
+    private void scanFunction(Stmt.Function function) {
+        if (function.lazyBody != null) {
+            unknownCode = true;
+        }
+        for (Stmt statement : function.body) {
+            scan(statement);
+        }
+    }
+
+    private void scanOptional(Expr expr) {
+        if (expr != null) {
+            scan(expr);
+        }
+    }
+
+    private void scan(Expr expr) {
+        switch (expr.kind) {
+            case Expr.ARRAY:
+                for (Expr element : ((Expr.Array) expr).elements) {
+                    scan(element);
+                }
+                break;
+            case Expr.ASSIGN: {
+                Expr.Assign assign = (Expr.Assign) expr;
+                if (assign.storage == StorageType.GLOBAL) {
+                    assignedGlobals.add(assign.name.lexeme);
+                } else if (assign.storage == StorageType.UPVALUE) {
+                    assignedUpvalues.add(assign.slot);
+                } else {
+                    assignedSlots.add(assign.slot);
+                }
+                scan(assign.value);
+                break;
+            }
+            case Expr.BINARY: {
+                Expr.Binary binary = (Expr.Binary) expr;
+                scan(binary.left);
+                scan(binary.right);
+                break;
+            }
+            case Expr.CALL: {
+                Expr.Call call = (Expr.Call) expr;
+                if (nativePurity(call.callee) == null) {
+                    impureCall = true;
+                }
+                scan(call.callee);
+                for (Expr argument : call.arguments) {
+                    scan(argument);
+                }
+                break;
+            }
+            case Expr.GET:
+                scan(((Expr.Get) expr).object);
+                break;
+            case Expr.GROUPING:
+                scan(((Expr.Grouping) expr).expression);
+                break;
+            case Expr.INDEX: {
+                Expr.Index index = (Expr.Index) expr;
+                scan(index.object);
+                scan(index.index);
+                break;
+            }
+            case Expr.INDEX_SET: {
+                Expr.IndexSet set = (Expr.IndexSet) expr;
+                arrayWrite = true;
+                scan(set.object);
+                scan(set.index);
+                scan(set.value);
+                break;
+            }
+            case Expr.LOGICAL: {
+                Expr.Logical logical = (Expr.Logical) expr;
+                scan(logical.left);
+                scan(logical.right);
+                break;
+            }
+            case Expr.SET: {
+                Expr.Set set = (Expr.Set) expr;
+                scan(set.object);
+                scan(set.value);
+                break;
+            }
+            case Expr.UNARY:
+                scan(((Expr.Unary) expr).right);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // 스크립트 어디에서도 다시 정의되지 않는 순수한 내장 함수면 그 순수성, 아니면 null
+    private Purity nativePurity(Expr callee) {
+        if (rebound == null || unknownCode || callee.kind != Expr.VARIABLE) {
+            return null;
+        }
+        Expr.Variable variable = (Expr.Variable) callee;
+        String name = variable.name.lexeme;
+        if (variable.storage != StorageType.GLOBAL || rebound.contains(name)) {
+            return null;
+        }
+        Purity purity = NATIVES.get(name);
+        return purity == Purity.IMPURE ? null : purity;
+    }
+
+    private Expr hoistCondition(Expr condition, List<Stmt> preheader) {
+        this.preheader = preheader;
+        mayHaveThrown = false;
+        return hoistExpr(condition);
+    }
+
+    // 조건을 평가 순서대로 내려가며 옮길 수 있는 가장 큰 식을 임시 변수 읽기로 바꾼다.
+    private Expr hoistExpr(Expr expr) {
+        if (!mayHaveThrown && isComputed(expr) && isInvariant(expr)) {
+            return temporary(expr);
+        }
+
+        switch (expr.kind) {
+            case Expr.BINARY: {
+                Expr.Binary binary = (Expr.Binary) expr;
+                Expr left = hoistExpr(binary.left);
+                Expr right = hoistExpr(binary.right);
+                TokenType operator = binary.operator.type;
+                if (operator != TokenType.EQUAL_EQUAL && operator != TokenType.BANG_EQUAL) {
+                    mayHaveThrown = true; // 피연산자 타입 에러
+                }
+                if (left == binary.left && right == binary.right) {
+                    return expr;
+                }
+                Expr.Binary hoisted = new Expr.Binary(left, binary.operator, right);
+                Resolver.markNumeric(hoisted);
+                return hoisted;
+            }
+            case Expr.LOGICAL: {
+                // 오른쪽은 평가되지 않을 수도 있으므로 옮기지 않는다.
+                Expr.Logical logical = (Expr.Logical) expr;
+                Expr left = hoistExpr(logical.left);
+                mayHaveThrown |= mayThrow(logical.right);
+                return left == logical.left ? expr : new Expr.Logical(left, logical.operator, logical.right);
+            }
+            case Expr.UNARY: {
+                Expr.Unary unary = (Expr.Unary) expr;
+                Expr right = hoistExpr(unary.right);
+                if (unary.operator.type == TokenType.MINUS) {
+                    mayHaveThrown = true;
+                }
+                return right == unary.right ? expr : new Expr.Unary(unary.operator, right);
+            }
+            case Expr.CALL: {
+                Expr.Call call = (Expr.Call) expr;
+                mayHaveThrown |= mayThrow(call.callee);
+                for (int i = 0; i < call.arguments.size(); i++) {
+                    call.arguments.set(i, hoistExpr(call.arguments.get(i)));
+                }
+                mayHaveThrown = true;
+                return expr;
+            }
+            default:
+                mayHaveThrown |= mayThrow(expr);
+                return expr;
+        }
+    }
+
+    private Expr temporary(Expr expr) {
+        Token name = new Token(TokenType.IDENTIFIER, "$불변" + temps++, null, 0);
+        Stmt.Var temp = new Stmt.Var(name, expr);
+        temp.slot = newSlot.getAsInt();
+        preheader.add(temp);
+
+        Expr.Variable variable = new Expr.Variable(name);
+        variable.storage = StorageType.LOCAL;
+        variable.slot = temp.slot;
+        return variable;
+    }
+
+    // 옮기면 이득이 있는 식. 변수나 리터럴 하나는 임시 변수를 읽는 것과 같다.
+    private static boolean isComputed(Expr expr) {
+        switch (expr.kind) {
+            case Expr.BINARY:
+            case Expr.CALL:
+            case Expr.LOGICAL:
+            case Expr.UNARY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isInvariant(Expr expr) {
+        switch (expr.kind) {
+            case Expr.LITERAL:
+            case Expr.THIS:
+                return true;
+            case Expr.VARIABLE: {
+                Expr.Variable variable = (Expr.Variable) expr;
+                switch (variable.storage) {
+                    case LOCAL:
+                        return !assignedSlots.contains(variable.slot);
+                    case CELL:
+                        return !assignedSlots.contains(variable.slot) && !impureCall;
+                    case UPVALUE:
+                        return !assignedUpvalues.contains(variable.slot) && !impureCall;
+                    default:
+                        return !assignedGlobals.contains(variable.name.lexeme) && !impureCall;
+                }
+            }
+            case Expr.BINARY: {
+                Expr.Binary binary = (Expr.Binary) expr;
+                return isInvariant(binary.left) && isInvariant(binary.right);
+            }
+            case Expr.LOGICAL: {
+                Expr.Logical logical = (Expr.Logical) expr;
+                return isInvariant(logical.left) && isInvariant(logical.right);
+            }
+            case Expr.UNARY:
+                return isInvariant(((Expr.Unary) expr).right);
+            case Expr.CALL: {
+                Expr.Call call = (Expr.Call) expr;
+                Purity purity = nativePurity(call.callee);
+                if (purity == null || purity == Purity.READS_ARRAYS && (arrayWrite || impureCall)) {
+                    return false;
+                }
+                for (Expr argument : call.arguments) {
+                    if (!isInvariant(argument)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    // 평가하다 에러가 날 수 있는 식. 정의되지 않은 전역 변수 읽기도 에러다.
+    private static boolean mayThrow(Expr expr) {
+        switch (expr.kind) {
+            case Expr.LITERAL:
+            case Expr.THIS:
+                return false;
+            case Expr.VARIABLE:
+                return ((Expr.Variable) expr).storage == StorageType.GLOBAL;
+            case Expr.LOGICAL: {
+                Expr.Logical logical = (Expr.Logical) expr;
+                return mayThrow(logical.left) || mayThrow(logical.right);
+            }
+            case Expr.BINARY: {
+                Expr.Binary binary = (Expr.Binary) expr;
+                TokenType operator = binary.operator.type;
+                return operator != TokenType.EQUAL_EQUAL && operator != TokenType.BANG_EQUAL
+                    || mayThrow(binary.left) || mayThrow(binary.right);
+            }
+            default:
+                return true;
+        }
+    }
+}
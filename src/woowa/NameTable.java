@@ -0,0 +1,70 @@
+package woowa;
+
+/**
+ * 식별자 문자열 인터닝 테이블
+ * <p>
+ * 소스 문자 배열의 구간을 바로 해시해서 찾으므로, 이미 본 이름이면 새 문자열을 만들지 않는다. 같은 이름은 항상 같은
+ * String 객체가 된다.
+ */
+final class NameTable {
+
+    private String[] names = new String[256];
+    private int[] hashes = new int[256];
+    private int size = 0;
+
+    String intern(char[] text, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + text[i];
+        }
+
+        int mask = names.length - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            String name = names[index];
+            if (name == null) {
+                name = new String(text, start, length);
+                names[index] = name;
+                hashes[index] = hash;
+                if (++size * 2 > names.length) {
+                    grow();
+                }
+                return name;
+            }
+            if (hashes[index] == hash && matches(name, text, start, length)) {
+                return name;
+            }
+        }
+    }
+
+    private static boolean matches(String name, char[] text, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != text[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] == null) {
+                continue;
+            }
+            int index = oldHashes[i] & mask;
+            while (names[index] != null) {
+                index = (index + 1) & mask;
+            }
+            names[index] = oldNames[i];
+            hashes[index] = oldHashes[i];
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package woowa;
+
+/**
+ * 숫자 값 박싱
+ * <p>
+ * 반복문 카운터처럼 작은 정수 값은 미리 만들어 둔 Double 을 재사용해 할당을 줄인다.
+ */
+final class Numbers {
+
+    private static final int MIN_CACHED = -128;
+    private static final int MAX_CACHED = 1023;
+    private static final Double[] CACHE = new Double[MAX_CACHED - MIN_CACHED + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = (double) (i + MIN_CACHED);
+        }
+    }
+
+    private Numbers() {
+    }
+
+    static Object box(double value) {
+        int integer = (int) value;
+        // -0.0 은 0.0 과 구분해야 하므로 캐시하지 않는다.
+        if (integer == value && integer >= MIN_CACHED && integer <= MAX_CACHED
+            && (integer != 0 || Double.doubleToRawLongBits(value) == 0L)) {
+            return CACHE[integer - MIN_CACHED];
+        }
+        return value;
+    }
+}
@@ -0,0 +1,63 @@
+package woowa;
+
+/**
+ * 바이트코드 명령어 목록
+ * <p>
+ * 피연산자는 명령어 바로 뒤에 붙는다. 별도 표기가 없으면 2바이트(u16) 피연산자이다.
+ */
+final class OpCode {
+
+    private OpCode() {
+    }
+
+    static final byte CONSTANT = 0;        // [상수 인덱스] 상수 적재
+    static final byte NIL = 1;
+    static final byte TRUE = 2;
+    static final byte FALSE = 3;
+    static final byte POP = 4;
+
+    static final byte GET_LOCAL = 5;       // [슬롯]
+    static final byte SET_LOCAL = 6;       // [슬롯]
+    static final byte GET_GLOBAL = 7;      // [이름 토큰 상수]
+    static final byte DEFINE_GLOBAL = 8;   // [이름 토큰 상수]
+    static final byte SET_GLOBAL = 9;      // [이름 토큰 상수]
+    static final byte GET_UPVALUE = 10;    // [업밸류 인덱스]
+    static final byte SET_UPVALUE = 11;    // [업밸류 인덱스]
+    static final byte GET_PROPERTY = 12;   // [이름 토큰 상수]
+    static final byte SET_PROPERTY = 13;   // [이름 토큰 상수]
+    static final byte GET_SUPER = 14;      // [메서드 토큰 상수]
+
+    static final byte EQUAL = 15;
+    static final byte NOT_EQUAL = 16;
+    static final byte GREATER = 17;
+    static final byte GREATER_EQUAL = 18;
+    static final byte LESS = 19;
+    static final byte LESS_EQUAL = 20;
+    static final byte ADD = 21;
+    static final byte SUBTRACT = 22;
+    static final byte MULTIPLY = 23;
+    static final byte DIVIDE = 24;
+    static final byte NOT = 25;
+    static final byte NEGATE = 26;
+
+    static final byte PRINT = 27;
+    static final byte JUMP = 28;           // [앞으로 건너뛸 거리]
+    static final byte JUMP_IF_FALSE = 29;  // [앞으로 건너뛸 거리] 조건은 스택에 남긴다.
+    static final byte LOOP = 30;           // [뒤로 돌아갈 거리]
+    static final byte CALL = 31;           // [인자 개수 u8]
+    static final byte INVOKE = 32;         // [이름 토큰 상수] [인자 개수 u8]
+    static final byte CLOSURE = 33;        // [함수 상수] 이후 업밸류마다 [isLocal u8] [인덱스]
+    static final byte CLOSE_UPVALUE = 34;
+    static final byte RETURN = 35;
+    static final byte CLASS = 36;          // [이름 상수] [메서드 개수] [상위 클래스 여부 u8]
+    static final byte CHECK_SUPERCLASS = 37;
+
+    static final byte ARRAY = 38;          // [요소 개수]
+    static final byte GET_INDEX = 39;
+    static final byte SET_INDEX = 40;
+
+    // 트리 순회 인터프리터와 같은 순서로 에러를 내기 위한 사전 검사
+    static final byte CHECK_FIELD_TARGET = 41;  // 필드 할당 대상이 인스턴스인지
+    static final byte CHECK_ARRAY = 42;         // [접근 종류 u8] 인덱스 대상이 배열인지
+    static final byte CHECK_INDEX = 43;         // 인덱스가 숫자인지
+}
@@ -0,0 +1,532 @@
+package woowa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 리졸브가 끝난 AST 를 실행 전에 단순하게 만든다. (-O)
+ * <p>
+ * 피연산자가 모두 리터럴인 산술, 비교, 논리 연산과 문자열 연결은 미리 계산해 리터럴로 바꾸고, 조건이 리터럴인 분기와
+ * 반환 뒤의 문장은 지운다. 실행하면 에러가 나는 식(숫자가 아닌 값의 산술 등)은 그대로 두어 같은 줄에서 같은 에러가 나게
+ * 한다. 리졸브 에러는 이 단계 전에 모두 보고되므로 지워지는 코드의 에러도 그대로 보인다.
+ * <p>
+ * 리졸브 결과(슬롯, 저장 위치)는 그대로 쓴다. 자식이 바뀐 노드는 새로 만들어 리졸브 결과를 옮기고, 블록과 함수 본문 같은
+ * 리스트는 제자리에서 고친다. 함수 선언 노드는 호출 지점과 JIT 이 가리키므로 새로 만들지 않는다.
+ * <p>
+ * 루프는 {@link LoopInvariants} 로 조건의 불변식을 루프 앞으로 옮긴다. 옮긴 값을 담을 임시 변수는 지금 고치는 프레임의
+ * 끝에 슬롯을 새로 잡는다.
+ * <p>
+ * 본문이 작은 식 하나를 반환하는 최상위 함수는 호출 지점에 본문을 펼쳐 둔다. 호출 지점마다 그 함수의 프레임만큼 자리를
+ * 호출하는 쪽 프레임에 잡아 두고, tree 엔진은 전역 변수가 아직 그 함수를 가리킬 때만 인자를 그 자리에 넣어 반환 식을 바로
+ * 평가한다. 다른 값이 대입됐으면 그 호출 지점은 보통 호출로 돌아간다. 다른 엔진은 펼친 정보를 쓰지 않는다.
+ */
+final class Optimizer {
+
+    private static final int INLINE_LIMIT = 20; // 펼칠 반환 식의 최대 노드 수
+
+    private final boolean wholeProgram;
+    private final LoopInvariants loops;
+    private int frameSize; // 지금 고치는 코드의 프레임 크기
+    // 호출 지점에 펼칠 최상위 함수. 이 함수들의 본문 안에서는 다시 펼치지 않는다.
+    private final Map<String, Stmt.Function> inlinable = new HashMap<>();
+    private boolean inInlinable = false;
+    // 본문을 이미 최적화한 함수. 같은 본문을 두 번 고치지 않는다.
+    private final Set<Stmt.Function> optimized = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // 스크립트 전체를 한 번에 받으면 true. 대화형이나 스트리밍 실행에서는 뒤에 올 코드가 내장 함수를 다시 정의할 수 있다.
+    Optimizer(boolean wholeProgram) {
+        this.wholeProgram = wholeProgram;
+        this.loops = new LoopInvariants(() -> frameSize++);
+    }
+
+    // 최상위 문장을 제자리에서 고치고, 임시 변수까지 담을 최상위 프레임 크기를 돌려준다.
+    int optimize(List<Stmt> statements, int frameSize) {
+        if (wholeProgram) {
+            loops.scanProgram(statements);
+        }
+        findInlinable(statements);
+        this.frameSize = frameSize;
+        optimizeBlock(statements);
+        return this.frameSize;
+    }
+
+    // 지연 파싱된 함수는 본문이 파싱된 뒤에 다시 불린다.
+    void optimize(Stmt.Function function) {
+        if (function.lazyBody == null) {
+            optimizeFunction(function);
+        }
+    }
+
+    private void optimizeFunction(Stmt.Function function) {
+        if (!optimized.add(function)) {
+            return;
+        }
+        int enclosing = frameSize;
+        frameSize = function.frameSize;
+        optimizeBlock(function.body);
+        function.frameSize = frameSize;
+        frameSize = enclosing;
+    }
+
+    /**
+     * 펼칠 함수를 고른다. 최상위에 한 번만 선언되고, 바깥 변수를 캡처하지 않고, 본문이 {@link #INLINE_LIMIT} 노드 이하의
+     * 식 하나를 반환하고, 그 식에서 자기를 부르지 않는 함수다. 본문은 먼저 최적화해 둔다.
+     */
+    private void findInlinable(List<Stmt> statements) {
+        Set<String> names = new HashSet<>();
+        Set<String> duplicated = new HashSet<>();
+        for (Stmt statement : statements) {
+            Token name = globalName(statement);
+            if (name != null && !names.add(name.lexeme)) {
+                duplicated.add(name.lexeme);
+            }
+        }
+
+        for (Stmt statement : statements) {
+            if (statement.kind != Stmt.FUNCTION) {
+                continue;
+            }
+            Stmt.Function function = (Stmt.Function) statement;
+            String name = function.name.lexeme;
+            if (function.slot != -1 || function.lazyBody != null || duplicated.contains(name)
+                || function.upvalues.length != 0) {
+                continue;
+            }
+
+            inInlinable = true;
+            optimizeFunction(function);
+            inInlinable = false;
+            Expr body = returnValue(function);
+            if (body != null && size(body, name) <= INLINE_LIMIT) {
+                inlinable.put(name, function);
+            }
+        }
+    }
+
+    private static Token globalName(Stmt stmt) {
+        switch (stmt.kind) {
+            case Stmt.CLASS:
+                return ((Stmt.Class) stmt).slot == -1 ? ((Stmt.Class) stmt).name : null;
+            case Stmt.FUNCTION:
+                return ((Stmt.Function) stmt).slot == -1 ? ((Stmt.Function) stmt).name : null;
+            case Stmt.VAR:
+                return ((Stmt.Var) stmt).slot == -1 ? ((Stmt.Var) stmt).name : null;
+            default:
+                return null;
+        }
+    }
+
+    // 본문이 '반환 식;' 하나뿐이면 그 식
+    private static Expr returnValue(Stmt.Function function) {
+        if (function.body.size() != 1 || function.body.get(0).kind != Stmt.RETURN) {
+            return null;
+        }
+        return ((Stmt.Return) function.body.get(0)).value;
+    }
+
+    // 식의 노드 수. 전역 변수 self 를 읽으면 펼칠 수 없으므로 한도보다 크게 센다.
+    private static int size(Expr expr, String self) {
+        switch (expr.kind) {
+            case Expr.ARRAY:
+                return 1 + size(((Expr.Array) expr).elements, self);
+            case Expr.ASSIGN:
+                return 1 + size(((Expr.Assign) expr).value, self);
+            case Expr.BINARY:
+                return 1 + size(((Expr.Binary) expr).left, self) + size(((Expr.Binary) expr).right, self);
+            case Expr.CALL:
+                return 1 + size(((Expr.Call) expr).callee, self) + size(((Expr.Call) expr).arguments, self);
+            case Expr.GET:
+                return 1 + size(((Expr.Get) expr).object, self);
+            case Expr.GROUPING:
+                return size(((Expr.Grouping) expr).expression, self);
+            case Expr.INDEX:
+                return 1 + size(((Expr.Index) expr).object, self) + size(((Expr.Index) expr).index, self);
+            case Expr.INDEX_SET: {
+                Expr.IndexSet set = (Expr.IndexSet) expr;
+                return 1 + size(set.object, self) + size(set.index, self) + size(set.value, self);
+            }
+            case Expr.LOGICAL:
+                return 1 + size(((Expr.Logical) expr).left, self) + size(((Expr.Logical) expr).right, self);
+            case Expr.SET:
+                return 1 + size(((Expr.Set) expr).object, self) + size(((Expr.Set) expr).value, self);
+            case Expr.UNARY:
+                return 1 + size(((Expr.Unary) expr).right, self);
+            case Expr.VARIABLE: {
+                Expr.Variable variable = (Expr.Variable) expr;
+                boolean recursive = variable.storage == StorageType.GLOBAL && variable.name.lexeme.equals(self);
+                return recursive ? INLINE_LIMIT + 1 : 1;
+            }
+            default:
+                return 1;
+        }
+    }
+
+    private static int size(List<Expr> exprs, String self) {
+        int size = 0;
+        for (Expr expr : exprs) {
+            size += size(expr, self);
+        }
+        return size;
+    }
+
+    // 펼칠 함수를 부르는 호출 지점이면 본문과, 인자를 넣을 프레임 자리를 적어 둔다.
+    private void inline(Expr.Call call) {
+        if (inInlinable || call.callee.kind != Expr.VARIABLE) {
+            return;
+        }
+        Expr.Variable callee = (Expr.Variable) call.callee;
+        Stmt.Function function = inlinable.get(callee.name.lexeme);
+        if (callee.storage != StorageType.GLOBAL || function == null
+            || call.arguments.size() != function.params.size()) {
+            return;
+        }
+
+        call.inline = function;
+        call.inlineBody = returnValue(function);
+        call.inlineFrame = frameSize;
+        frameSize += function.frameSize;
+    }
+
+    // 문장 리스트를 제자리에서 고친다.
+    private void optimizeBlock(List<Stmt> statements) {
+        List<Stmt> result = new ArrayList<>(statements.size());
+        for (Stmt statement : statements) {
+            Stmt optimized = optimize(statement);
+            if (optimized == null) {
+                continue;
+            }
+            result.add(optimized);
+            if (returns(optimized)) {
+                break; // 뒤의 문장은 실행될 수 없다.
+            }
+        }
+        statements.clear();
+        statements.addAll(result);
+    }
+
+    // 항상 반환으로 끝나는 문장
+    private static boolean returns(Stmt stmt) {
+        switch (stmt.kind) {
+            case Stmt.RETURN:
+                return true;
+            case Stmt.BLOCK: {
+                List<Stmt> statements = ((Stmt.Block) stmt).statements;
+                return !statements.isEmpty() && returns(statements.get(statements.size() - 1));
+            }
+            case Stmt.IF: {
+                Stmt.If branch = (Stmt.If) stmt;
+                return branch.elseBranch != null && returns(branch.thenBranch) && returns(branch.elseBranch);
+            }
+            default:
+                return false;
+        }
+    }
+
+    // 실행할 것이 없어진 문장은 null
+    private Stmt optimize(Stmt stmt) {
+        switch (stmt.kind) {
+            case Stmt.BLOCK:
+                optimizeBlock(((Stmt.Block) stmt).statements);
+                return stmt;
+            case Stmt.CLASS:
+                for (Stmt.Function method : ((Stmt.Class) stmt).methods) {
+                    optimize(method);
+                }
+                return stmt;
+            case Stmt.EXPRESSION: {
+                Stmt.Expression expression = (Stmt.Expression) stmt;
+                Expr value = optimize(expression.expression);
+                if (value.kind == Expr.LITERAL) {
+                    return null;
+                }
+                return value == expression.expression ? stmt : new Stmt.Expression(value);
+            }
+            case Stmt.FOR:
+                return optimizeFor((Stmt.For) stmt);
+            case Stmt.FUNCTION:
+                optimize((Stmt.Function) stmt);
+                return stmt;
+            case Stmt.IF:
+                return optimizeIf((Stmt.If) stmt);
+            case Stmt.PRINT: {
+                Stmt.Print print = (Stmt.Print) stmt;
+                Expr value = optimize(print.expression);
+                return value == print.expression ? stmt : new Stmt.Print(value);
+            }
+            case Stmt.RETURN: {
+                Stmt.Return ret = (Stmt.Return) stmt;
+                Expr value = optimizeOptional(ret.value);
+                return value == ret.value ? stmt : new Stmt.Return(ret.keyword, value);
+            }
+            case Stmt.VAR: {
+                Stmt.Var var = (Stmt.Var) stmt;
+                Expr value = optimizeOptional(var.initializer);
+                if (value == var.initializer) {
+                    return stmt;
+                }
+                Stmt.Var optimized = new Stmt.Var(var.name, value);
+                optimized.slot = var.slot;
+                optimized.cell = var.cell;
+                return optimized;
+            }
+            case Stmt.WHILE: {
+                Stmt.While loop = (Stmt.While) stmt;
+                Expr condition = optimize(loop.condition);
+                if (isFalse(condition)) {
+                    return null;
+                }
+                Stmt body = branch(loop.body);
+                if (condition != loop.condition || body != loop.body) {
+                    loop = new Stmt.While(condition, body);
+                }
+                return loops.hoist(loop);
+            }
+            default:
+                throw new IllegalStateException("알 수 없는 문장: " + stmt.kind);
+        }
+    }
+
+    // 분기나 루프 본문처럼 문장이 하나 있어야 하는 자리. 지워졌으면 빈 블록을 둔다.
+    private Stmt branch(Stmt stmt) {
+        Stmt optimized = optimize(stmt);
+        return optimized == null ? new Stmt.Block(new ArrayList<>()) : optimized;
+    }
+
+    private Stmt optimizeIf(Stmt.If stmt) {
+        Expr condition = optimize(stmt.condition);
+        if (condition.kind == Expr.LITERAL) {
+            if (Interpreter.isTruthy(((Expr.Literal) condition).value)) {
+                return optimize(stmt.thenBranch);
+            }
+            return stmt.elseBranch == null ? null : optimize(stmt.elseBranch);
+        }
+
+        Stmt thenBranch = branch(stmt.thenBranch);
+        Stmt elseBranch = stmt.elseBranch == null ? null : optimize(stmt.elseBranch);
+        if (condition == stmt.condition && thenBranch == stmt.thenBranch && elseBranch == stmt.elseBranch) {
+            return stmt;
+        }
+        return new Stmt.If(condition, thenBranch, elseBranch);
+    }
+
+    private Stmt optimizeFor(Stmt.For stmt) {
+        Stmt initializer = stmt.initializer == null ? null : optimize(stmt.initializer);
+        Expr condition = optimizeOptional(stmt.condition);
+        if (isFalse(condition)) {
+            // 초기화는 한 번 실행된다. 초기화에서 선언한 변수의 범위는 블록으로 남긴다.
+            if (initializer == null) {
+                return null;
+            }
+            List<Stmt> statements = new ArrayList<>();
+            statements.add(initializer);
+            return new Stmt.Block(statements);
+        }
+
+        Expr increment = optimizeOptional(stmt.increment);
+        if (increment != null && increment.kind == Expr.LITERAL) {
+            increment = null;
+        }
+        Stmt body = branch(stmt.body);
+        if (initializer != stmt.initializer || condition != stmt.condition || increment != stmt.increment
+            || body != stmt.body) {
+            stmt = new Stmt.For(initializer, condition, increment, body);
+        }
+        return loops.hoist(stmt);
+    }
+
+    private static boolean isFalse(Expr condition) {
+        return condition != null && condition.kind == Expr.LITERAL
+            && !Interpreter.isTruthy(((Expr.Literal) condition).value);
+    }
+
+    private Expr optimizeOptional(Expr expr) {
+        return expr == null ? null : optimize(expr);
+    }
+
+    private void optimizeAll(List<Expr> exprs) {
+        for (int i = 0; i < exprs.size(); i++) {
+            exprs.set(i, optimize(exprs.get(i)));
+        }
+    }
+
+    private Expr optimize(Expr expr) {
+        switch (expr.kind) {
+            case Expr.ARRAY:
+                optimizeAll(((Expr.Array) expr).elements);
+                return expr;
+            case Expr.ASSIGN: {
+                Expr.Assign assign = (Expr.Assign) expr;
+                Expr value = optimize(assign.value);
+                if (value == assign.value) {
+                    return expr;
+                }
+                Expr.Assign optimized = new Expr.Assign(assign.name, value);
+                optimized.storage = assign.storage;
+                optimized.slot = assign.slot;
+                optimized.global = assign.global;
+                return optimized;
+            }
+            case Expr.BINARY:
+                return optimizeBinary((Expr.Binary) expr);
+            case Expr.CALL: {
+                Expr.Call call = (Expr.Call) expr;
+                Expr callee = optimize(call.callee);
+                optimizeAll(call.arguments);
+                if (callee != call.callee) {
+                    call = new Expr.Call(callee, call.paren, call.arguments);
+                }
+                inline(call);
+                return call;
+            }
+            case Expr.GET: {
+                Expr.Get get = (Expr.Get) expr;
+                Expr object = optimize(get.object);
+                return object == get.object ? expr : new Expr.Get(object, get.name);
+            }
+            case Expr.GROUPING:
+                // 괄호는 파싱이 끝나면 의미가 없다.
+                return optimize(((Expr.Grouping) expr).expression);
+            case Expr.INDEX: {
+                Expr.Index index = (Expr.Index) expr;
+                Expr object = optimize(index.object);
+                Expr position = optimize(index.index);
+                if (object == index.object && position == index.index) {
+                    return expr;
+                }
+                return new Expr.Index(object, position);
+            }
+            case Expr.INDEX_SET: {
+                Expr.IndexSet set = (Expr.IndexSet) expr;
+                Expr object = optimize(set.object);
+                Expr position = optimize(set.index);
+                Expr value = optimize(set.value);
+                if (object == set.object && position == set.index && value == set.value) {
+                    return expr;
+                }
+                return new Expr.IndexSet(object, position, value);
+            }
+            case Expr.LOGICAL:
+                return optimizeLogical((Expr.Logical) expr);
+            case Expr.SET: {
+                Expr.Set set = (Expr.Set) expr;
+                Expr object = optimize(set.object);
+                Expr value = optimize(set.value);
+                if (object == set.object && value == set.value) {
+                    return expr;
+                }
+                return new Expr.Set(object, set.name, value);
+            }
+            case Expr.UNARY:
+                return optimizeUnary((Expr.Unary) expr);
+            case Expr.LITERAL:
+            case Expr.SUPER:
+            case Expr.THIS:
+            case Expr.VARIABLE:
+                return expr;
+            default:
+                throw new IllegalStateException("알 수 없는 표현식: " + expr.kind);
+        }
+    }
+
+    private Expr optimizeBinary(Expr.Binary expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+        if (left.kind == Expr.LITERAL && right.kind == Expr.LITERAL) {
+            Expr folded = fold(expr.operator, ((Expr.Literal) left).value, ((Expr.Literal) right).value);
+            if (folded != null) {
+                return folded;
+            }
+        }
+
+        if (left == expr.left && right == expr.right) {
+            return expr;
+        }
+        Expr.Binary optimized = new Expr.Binary(left, expr.operator, right);
+        Resolver.markNumeric(optimized);
+        return optimized;
+    }
+
+    // 실행할 때와 같은 값. 실행하면 에러가 나는 조합이면 null
+    private static Expr fold(Token operator, Object left, Object right) {
+        switch (operator.type) {
+            case EQUAL_EQUAL:
+                return new Expr.Literal(Interpreter.isEqual(left, right));
+            case BANG_EQUAL:
+                return new Expr.Literal(!Interpreter.isEqual(left, right));
+            case PLUS:
+                if (left instanceof Double && right instanceof Double) {
+                    return number((double) left + (double) right);
+                }
+                if (left instanceof String || right instanceof String) {
+                    return new Expr.Literal(Interpreter.stringify(left) + Interpreter.stringify(right));
+                }
+                return null;
+            default:
+                break;
+        }
+
+        if (!(left instanceof Double) || !(right instanceof Double)) {
+            return null;
+        }
+        double a = (double) left;
+        double b = (double) right;
+        switch (operator.type) {
+            case MINUS:
+                return number(a - b);
+            case STAR:
+                return number(a * b);
+            case SLASH:
+                return number(a / b);
+            case GREATER:
+                return new Expr.Literal(a > b);
+            case GREATER_EQUAL:
+                return new Expr.Literal(a >= b);
+            case LESS:
+                return new Expr.Literal(a < b);
+            case LESS_EQUAL:
+                return new Expr.Literal(a <= b);
+            default:
+                return null;
+        }
+    }
+
+    private static Expr number(double value) {
+        return new Expr.Literal(Numbers.box(value));
+    }
+
+    // 왼쪽이 리터럴이면 어느 쪽 값이 결과인지 미리 안다.
+    private Expr optimizeLogical(Expr.Logical expr) {
+        Expr left = optimize(expr.left);
+        if (left.kind == Expr.LITERAL) {
+            boolean truthy = Interpreter.isTruthy(((Expr.Literal) left).value);
+            boolean shortCircuit = expr.operator.type == TokenType.OR ? truthy : !truthy;
+            return shortCircuit ? left : optimize(expr.right);
+        }
+
+        Expr right = optimize(expr.right);
+        if (left == expr.left && right == expr.right) {
+            return expr;
+        }
+        return new Expr.Logical(left, expr.operator, right);
+    }
+
+    private Expr optimizeUnary(Expr.Unary expr) {
+        Expr right = optimize(expr.right);
+        if (right.kind == Expr.LITERAL) {
+            Object value = ((Expr.Literal) right).value;
+            if (expr.operator.type == TokenType.BANG) {
+                return new Expr.Literal(!Interpreter.isTruthy(value));
+            }
+            if (value instanceof Double) {
+                return number(-(double) value);
+            }
+        }
+        return right == expr.right ? expr : new Expr.Unary(expr.operator, right);
+    }
+}
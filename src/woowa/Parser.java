@@ -3,44 +3,283 @@ package woowa;
 import static woowa.TokenType.*;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 import woowa.Expr.Variable;
 
 /**
  * Parser (구문 분석기) 토큰 리스트를 AST로 변환
  * <p>
- * 연산자 우선순위 (높은 것부터): 1. primary    -> 숫자, 문자열, 괄호 2. unary      -> !, - 3. factor     -> *, / 4.
- * term -> +, - 5. comparison -> >, >=, <, <= 6. equality   -> ==, !=
+ * 연산자 우선순위 (높은 것부터): 1. call       -> (), ., [] 2. unary      -> !, - 3. factor     -> *, / 4.
+ * term -> +, - 5. comparison -> >, >=, <, <= 6. equality   -> ==, != 7. and 8. or 9. assignment -> =
+ * <p>
+ * 표현식은 우선순위마다 메서드를 두지 않고 토큰 종류별 결합력 표를 보며 {@link #expression(int)} 하나로 파싱한다.
  */
 public class Parser {
 
+    // 연산자 결합력. 클수록 먼저 묶이고, 0 이면 표현식을 이어 가지 않는 토큰이다.
+    private static final int POWER_ASSIGNMENT = 1;
+    private static final int POWER_OR = 2;
+    private static final int POWER_AND = 3;
+    private static final int POWER_EQUALITY = 4;
+    private static final int POWER_COMPARISON = 5;
+    private static final int POWER_TERM = 6;
+    private static final int POWER_FACTOR = 7;
+    private static final int POWER_UNARY = 8;
+    private static final int POWER_CALL = 9;
+
+    // 왼쪽 피연산자 뒤에 오는 토큰 종류별 결합력
+    private static final int[] BINDING_POWER = new int[TokenType.values().length];
+
+    static {
+        bind(POWER_ASSIGNMENT, EQUAL);
+        bind(POWER_OR, OR);
+        bind(POWER_AND, AND);
+        bind(POWER_EQUALITY, BANG_EQUAL, EQUAL_EQUAL);
+        bind(POWER_COMPARISON, GREATER, GREATER_EQUAL, LESS, LESS_EQUAL);
+        bind(POWER_TERM, MINUS, PLUS);
+        bind(POWER_FACTOR, SLASH, STAR);
+        bind(POWER_CALL, LEFT_PAREN, DOT, LEFT_BRACKET);
+    }
+
+    private static void bind(int power, TokenType... types) {
+        for (TokenType type : types) {
+            BINDING_POWER[type.ordinal()] = power;
+        }
+    }
+
     private static class ParseError extends RuntimeException {
 
     }
 
-    private final List<Token> tokens; // 파싱할 토큰 리스트
-    private int current = 0; // 현재 처리중이 토큰의 위치
+    // 파싱할 토큰. 보통은 토큰 버퍼를 인덱스로 읽고, 스트리밍할 때는 스캐너에서 하나씩 꺼낸다.
+    private final TokenBuffer buffer;
+    private int current = 0; // 버퍼에서 현재 처리중인 토큰의 위치
+    private final Supplier<Token> tokens;
+    private Token next; // 스트리밍할 때 현재 처리중인 토큰
+    private Token previous; // 스트리밍할 때 직전에 소비한 토큰
+    // 최상위 함수의 본문은 괄호 짝과 문장 모양만 확인해 두고 처음 호출될 때 파싱한다.
+    private final boolean lazy;
+    private int errorLine = -1; // 처음 보고한 구문 에러의 줄 번호
 
     public Parser(List<Token> tokens) {
+        this(tokens.iterator()::next, false);
+    }
+
+    Parser(TokenBuffer buffer, boolean lazy) {
+        this.buffer = buffer;
+        this.tokens = null;
+        this.lazy = lazy;
+    }
+
+    // 스캐너가 토큰을 만드는 대로 파싱한다.
+    Parser(Scanner scanner, boolean lazy) {
+        this(scanner::nextToken, lazy);
+    }
+
+    private Parser(Supplier<Token> tokens, boolean lazy) {
+        this.buffer = null;
         this.tokens = tokens;
+        this.lazy = lazy;
+        this.next = tokens.get();
     }
 
     // 초기 메서드 정의
     List<Stmt> parse() {
         List<Stmt> statements = new ArrayList<>();
-        while (!isAtEnd()) {
-            statements.add(declaration());
+        while (hasNext()) {
+            statements.add(next());
         }
 
         return statements;
     }
 
+    boolean hasNext() {
+        return !isAtEnd();
+    }
+
+    // 최상위 선언 하나를 파싱한다. 구문 에러가 있으면 null
+    Stmt next() {
+        return lazy && check(FUN) ? lazyFunction() : declaration();
+    }
+
+    /**
+     * 지연 파싱된 함수의 본문을 파싱한다.
+     * <p>
+     * 버퍼는 {@link #lazyFunction} 이 저장해 둔 '{' 다음부터 짝이 맞는 '}' 와 EOF 까지다.
+     */
+    List<Stmt> functionBody() {
+        try {
+            List<Stmt> body = block();
+            return errorLine == -1 ? body : null;
+        } catch (ParseError error) {
+            return null;
+        }
+    }
+
+    // 에러가 없으면 -1
+    int errorLine() {
+        return errorLine;
+    }
+
+    private Stmt lazyFunction() {
+        try {
+            advance();
+            Stmt.Function function = functionHeader("function");
+            return skipBody(function) ? function : null;
+        } catch (ParseError error) {
+            synchronize();
+            return null;
+        }
+    }
+
     /**
-     * 표현식 파싱 시작점 가잔 낮은 우선순위 equality 부터 시작
+     * 괄호 짝과 문장 모양만 확인하며 본문을 건너뛰고, 건너뛴 토큰을 lazyBody 에 둔다.
+     * <p>
+     * 모양이 이상한 본문은 미루지 않고 바로 파싱해서 파서의 에러를 원래 줄 번호로 보고한다. 파싱해 보니 문제가 없으면 본문을 그대로
+     * 쓴다. 본문에 에러가 있으면 false 이고, 이미 '}' 뒤까지 읽었으므로 synchronize 하지 않는다.
+     */
+    private boolean skipBody(Stmt.Function function) {
+        int start = current;
+        TokenBuffer body = buffer == null ? new TokenBuffer() : null;
+        // 닫는 괄호들. 'for' 의 '(' 는 안에 ';' 가 올 수 있으므로 FOR 로 표시한다.
+        List<TokenType> closers = new ArrayList<>();
+        closers.add(RIGHT_BRACE);
+        TokenType last = LEFT_BRACE;
+        boolean suspicious = false;
+        while (!closers.isEmpty()) {
+            if (isAtEnd()) {
+                // 끝나지 않은 본문. EOF 까지 넣고 파싱하면 앞쪽의 실제 에러와 '}' 가 없다는 에러가 함께 보고된다.
+                if (body != null) {
+                    body.add(next);
+                }
+                if (parseSkipped(body != null ? body : buffer.slice(start, current + 1)) != null) {
+                    error(peek(), "블럭 뒤에는 '}' 이 필요합니다.");
+                }
+                throw new ParseError();
+            }
+
+            TokenType type = peekType();
+            if (body != null) {
+                body.add(next);
+            }
+            advance();
+            suspicious |= malformed(last, type, closers.get(closers.size() - 1));
+            switch (type) {
+                case LEFT_BRACE:
+                    closers.add(RIGHT_BRACE);
+                    break;
+                case LEFT_PAREN:
+                    closers.add(last == FOR ? FOR : RIGHT_PAREN);
+                    break;
+                case LEFT_BRACKET:
+                    closers.add(RIGHT_BRACKET);
+                    break;
+                case RIGHT_BRACE:
+                case RIGHT_PAREN:
+                case RIGHT_BRACKET:
+                    TokenType closer = closers.remove(closers.size() - 1);
+                    if (closer != type && !(closer == FOR && type == RIGHT_PAREN)) {
+                        // 짝이 어긋난 곳보다 앞에서 파서가 실제 에러를 찾는다.
+                        if (parseSkipped(skipped(start, body)) != null) {
+                            error(previous(), "괄호의 짝이 맞지 않습니다.");
+                        }
+                        throw new ParseError();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            last = type;
+        }
+
+        TokenBuffer tokens = skipped(start, body);
+        if (!suspicious) {
+            function.lazyBody = tokens;
+            return true;
+        }
+
+        List<Stmt> statements = parseSkipped(tokens);
+        if (statements == null) {
+            return false;
+        }
+        function.body.addAll(statements);
+        return true;
+    }
+
+    // 본문에서 방금 읽은 토큰이 앞 토큰과 이어질 수 없어 보이면 true
+    private static boolean malformed(TokenType last, TokenType type, TokenType closer) {
+        switch (type) {
+            case SEMICOLON:
+                // ';' 는 'for' 가 아닌 괄호 안에 올 수 없다.
+                if (closer == RIGHT_PAREN || closer == RIGHT_BRACKET) {
+                    return true;
+                }
+                return isOperator(last);
+            case RIGHT_PAREN:
+            case RIGHT_BRACKET:
+            case RIGHT_BRACE:
+                return isOperator(last);
+            case PRINT:
+            case VAR:
+            case RETURN:
+            case IF:
+            case WHILE:
+            case FOR:
+            case FUN:
+            case CLASS:
+                // 문장은 ';', 블록, 조건 괄호, else 뒤에서 시작한다.
+                return last != SEMICOLON && last != LEFT_BRACE && last != RIGHT_BRACE
+                    && last != LEFT_PAREN && last != RIGHT_PAREN && last != ELSE;
+            default:
+                return false;
+        }
+    }
+
+    // 뒤에 피연산자가 와야 하는 토큰
+    private static boolean isOperator(TokenType type) {
+        switch (type) {
+            case MINUS:
+            case PLUS:
+            case SLASH:
+            case STAR:
+            case BANG:
+            case BANG_EQUAL:
+            case EQUAL:
+            case EQUAL_EQUAL:
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+            case AND:
+            case OR:
+            case DOT:
+            case COMMA:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // 본문의 '{' 다음부터 지금까지 읽은 토큰 뒤에 EOF 를 붙인다.
+    private TokenBuffer skipped(int start, TokenBuffer body) {
+        if (body == null) {
+            return buffer.slice(start, current);
+        }
+        body.add(new Token(EOF, "", null, previous.line));
+        return body;
+    }
+
+    // 건너뛴 본문을 지금 파싱한다. 에러는 각 토큰의 원래 줄 번호로 보고되고, 에러가 있으면 null
+    private static List<Stmt> parseSkipped(TokenBuffer tokens) {
+        return new Parser(tokens, false).functionBody();
+    }
+
+    /**
+     * 표현식 파싱 시작점 가장 낮은 우선순위인 할당부터 시작
      */
     private Expr expression() {
-        return assignment();
+        return expression(POWER_ASSIGNMENT);
     }
 
     private Stmt declaration() {
@@ -67,11 +306,11 @@ public class Parser {
 
         Expr.Variable superclass = null;
         if (match(LESS)) {
-            consume(IDENTIFIER, "슈퍼 클래스 이름이 필요합니다.");
+            expect(IDENTIFIER, "슈퍼 클래스 이름이 필요합니다.");
             superclass = new Expr.Variable(previous());
         }
 
-        consume(LEFT_BRACE, "클래스 바디 이전에 '{'가 필요합니다.");
+        expect(LEFT_BRACE, "클래스 바디 이전에 '{'가 필요합니다.");
 
         // 닫는 중괄호를 만날 때 까지 메서드 계속 파싱
         List<Stmt.Function> methods = new ArrayList<>();
@@ -79,7 +318,7 @@ public class Parser {
             methods.add(function("method"));
         }
 
-        consume(RIGHT_BRACE, "클래스 바디 이후에 '}' 가 필요합니다.");
+        expect(RIGHT_BRACE, "클래스 바디 이후에 '}' 가 필요합니다.");
 
         return new Stmt.Class(name, superclass, methods);
     }
@@ -114,7 +353,7 @@ public class Parser {
     }
 
     private Stmt forStatement() {
-        consume(LEFT_PAREN, "'for' 뒤에는 '(' 가 필요합니다.");
+        expect(LEFT_PAREN, "'for' 뒤에는 '(' 가 필요합니다.");
 
         // 다음의 토큰이 세미콜론이면 초기자가 생략된 것이다.
         // 그게 아니라면 var 키워드를 보고 변수 선언인지 확인
@@ -132,41 +371,23 @@ public class Parser {
         if (!check(SEMICOLON)) {
             condition = expression();
         }
-        consume(SEMICOLON, "루프 뒤에는 ';'가 필요합니다..");
+        expect(SEMICOLON, "루프 뒤에는 ';'가 필요합니다..");
 
         Expr increment = null;
         if (!check(RIGHT_PAREN)) {
             increment = expression();
         }
-        consume(RIGHT_PAREN, "for 절 뒤에 ')' 가 필요합니다.");
+        expect(RIGHT_PAREN, "for 절 뒤에 ')' 가 필요합니다.");
         Stmt body = statement();
 
-        // 증분은 루프가 반복될 때 마다 바디 다음에 실행된다.
-        if (increment != null) {
-            body = new Stmt.Block(
-                Arrays.asList(
-                    body,
-                    new Stmt.Expression(increment)));
-        }
-
-        // 조건과 바디를 가져와서 원시 while 루프를 만든다. 조건이 없으면 true 를 넣어 무한 루프로 만든다.
-        if (condition == null) {
-            condition = new Expr.Literal(true);
-        }
-        body = new Stmt.While(condition, body);
-
-        // 초기자가 있으면 전체 루프를 실행하기 전에 한번 실행한다.
-        if (initializer != null) {
-            body = new Stmt.Block(Arrays.asList(initializer, body));
-        }
-
-        return body;
+        // while 로 풀어 쓰지 않고 그대로 둔다. 생략된 절은 null 이다.
+        return new Stmt.For(initializer, condition, increment, body);
     }
 
     private Stmt ifStatement() {
-        consume(LEFT_PAREN, "'if' 뒤에는 '('가 필요합니다.");
+        expect(LEFT_PAREN, "'if' 뒤에는 '('가 필요합니다.");
         Expr condition = expression();
-        consume(RIGHT_PAREN, "'if' 문 뒤에는 ')'가 필요합니다.");
+        expect(RIGHT_PAREN, "'if' 문 뒤에는 ')'가 필요합니다.");
 
         Stmt thenBranch = statement();
         Stmt elseBranch = null;
@@ -181,7 +402,7 @@ public class Parser {
     // print 문 처리
     private Stmt printStatement() {
         Expr value = expression();
-        consume(SEMICOLON, "값 뒤에 ';'이 필요합니다.");
+        expect(SEMICOLON, "값 뒤에 ';'이 필요합니다.");
         return new Stmt.Print(value);
     }
 
@@ -192,7 +413,7 @@ public class Parser {
             value = expression();
         }
 
-        consume(SEMICOLON, "return 값 뒤에 ';' 가 필요합니다.");
+        expect(SEMICOLON, "return 값 뒤에 ';' 가 필요합니다.");
         return new Stmt.Return(keyword, value);
     }
 
@@ -207,14 +428,14 @@ public class Parser {
             initializer = expression();
         }
 
-        consume(SEMICOLON, "변수 선언 뒤에 ';' 이 필요합니다.");
+        expect(SEMICOLON, "변수 선언 뒤에 ';' 이 필요합니다.");
         return new Stmt.Var(name, initializer);
     }
 
     private Stmt whileStatement() {
-        consume(LEFT_PAREN, "'while' 뒤에 '(' 가 필요합니다.");
+        expect(LEFT_PAREN, "'while' 뒤에 '(' 가 필요합니다.");
         Expr condition = expression();
-        consume(RIGHT_PAREN, "'while' 문 뒤에 ')' 가 필요합니다.");
+        expect(RIGHT_PAREN, "'while' 문 뒤에 ')' 가 필요합니다.");
 
         Stmt body = statement();
 
@@ -223,14 +444,21 @@ public class Parser {
 
     private Stmt expressionStatement() {
         Expr expr = expression();
-        consume(SEMICOLON, "표현식 뒤에 ';'이 필요합니다.");
+        expect(SEMICOLON, "표현식 뒤에 ';'이 필요합니다.");
         return new Stmt.Expression(expr);
     }
 
     // kind 에 메서드 명 전달
     private Stmt.Function function(String kind) {
+        Stmt.Function function = functionHeader(kind);
+        function.body.addAll(block());
+        return function;
+    }
+
+    // 이름, 파라미터, 여는 중괄호까지 파싱한다. 본문은 빈 리스트로 남긴다.
+    private Stmt.Function functionHeader(String kind) {
         Token name = consume(IDENTIFIER, kind + " 명이 필요합니다.");
-        consume(LEFT_PAREN, kind + " 명 뒤에 '(' 가 필요합니다.");
+        expect(LEFT_PAREN, kind + " 명 뒤에 '(' 가 필요합니다.");
         List<Token> parameters = new ArrayList<>();
         if (!check(RIGHT_PAREN)) {
             // 더 이상 쉼표가 없을 때 까지 파싱
@@ -243,11 +471,10 @@ public class Parser {
             } while (match(COMMA));
         }
 
-        consume(RIGHT_PAREN, "파라미터 뒤에 ')' 가 필요합니다.");
+        expect(RIGHT_PAREN, "파라미터 뒤에 ')' 가 필요합니다.");
 
-        consume(LEFT_BRACE, kind + " 바디 전에 '{' 가 필요합니다.");
-        List<Stmt> body = block();
-        return new Stmt.Function(name, parameters, body);
+        expect(LEFT_BRACE, kind + " 바디 전에 '{' 가 필요합니다.");
+        return new Stmt.Function(name, parameters, new ArrayList<>());
     }
 
     private List<Stmt> block() {
@@ -257,152 +484,105 @@ public class Parser {
             statements.add(declaration());
         }
 
-        consume(RIGHT_BRACE, "블럭 뒤에는 '}' 이 필요합니다.");
+        expect(RIGHT_BRACE, "블럭 뒤에는 '}' 이 필요합니다.");
         return statements;
     }
 
     /**
-     * 할당 표현식 파싱 (Assignment Expression) 문법: assignment -> IDENTIFIER "=" assignment | equality ;
+     * 결합력이 minPower 이상인 연산자까지 묶어 표현식을 파싱한다. (Pratt 파서)
      * <p>
-     * 할당은 우결합(right-associative) 연산자 예: a = b = c = 5; → a = (b = (c = 5))
+     * 피연산자 하나를 읽은 뒤, 다음 토큰의 결합력이 minPower 이상인 동안 지금까지의 결과를 그 연산자의 왼쪽 피연산자로 삼는다.
+     * 좌결합 연산자는 오른쪽을 한 단계 높은 결합력으로 읽고, 우결합인 할당은 같은 결합력으로 읽는다.
      * <p>
-     * 예시: - x = 10;        → Assign(x, 10) - x = y = 5;     → Assign(x, Assign(y, 5)) - x + 1 = 10;
-     * → 에러: "잘못된 할당 대상입니다."
+     * 예시: 1 + 2 * 3 - 4 → Binary(Binary(1, +, Binary(2, *, 3)), -, 4)
      */
-    private Expr assignment() {
-        // equality 표현식으로 파싱 (좌변이 될 수 있는 표현식)
-        Expr expr = or();
+    private Expr expression(int minPower) {
+        Expr expr = prefix();
 
-        // "=" 토큰이 있으면 할당으로 판단
-        if (match(EQUAL)) {
-            Token equals = previous();
-            // 우번을 재귀적으로 할당
-            Expr value = assignment();
-
-            // 좌변이 변수인지 검증
-            if (expr instanceof Expr.Variable) {
-                Token name = ((Variable) expr).name;
-                // Assign 노드 생성후 반환
-                return new Expr.Assign(name, value);
-            } else if (expr instanceof Expr.Get) {
-                Expr.Get get = (Expr.Get) expr;
-                return new Expr.Set(get.object, get.name, value);
-            } else if (expr instanceof Expr.Index) {
-                Expr.Index index = (Expr.Index)expr;
-                return new Expr.IndexSet(index.object, index.index, value);
+        while (true) {
+            TokenType type = peekType();
+            int power = BINDING_POWER[type.ordinal()];
+            if (power < minPower) {
+                return expr;
             }
+            advance();
 
-            error(equals, "잘못된 할당 대상입니다.");
-        }
-
-        return expr;
-    }
-
-    private Expr or() {
-        Expr expr = and();
-
-        while (match(OR)) {
-            Token operator = previous();
-            Expr right = and();
-            expr = new Expr.Logical(expr, operator, right);
-        }
-        return expr;
-    }
-
-    private Expr and() {
-        Expr expr = equality();
-
-        while (match(AND)) {
-            Token operator = previous();
-            Expr right = equality();
-            expr = new Expr.Logical(expr, operator, right);
+            switch (type) {
+                case EQUAL:
+                    return assignment(expr);
+                case AND:
+                case OR: {
+                    Token operator = previous();
+                    Expr right = expression(power + 1);
+                    expr = new Expr.Logical(expr, operator, right);
+                    break;
+                }
+                // '(' 가 나올때 마다 앞서 파싱한 표현식을 피 호출자로 사용해 호출식을 파싱
+                case LEFT_PAREN:
+                    expr = finishCall(expr);
+                    break;
+                case DOT: {
+                    Token name = consume(IDENTIFIER, "'.' 이후에 속성이름이 와야 합니다.");
+                    expr = new Expr.Get(expr, name);
+                    break;
+                }
+                case LEFT_BRACKET: {
+                    Expr index = expression();
+                    expect(RIGHT_BRACKET, "인덱스 접근 끝에 ']'가 필요합니다.");
+                    expr = new Expr.Index(expr, index);
+                    break;
+                }
+                default: {
+                    Token operator = previous(); // 방금 소비한 이항 연산자
+                    Expr right = expression(power + 1); // 더 강하게 묶이는 연산자만 오른쪽 피연산자로
+                    expr = new Expr.Binary(expr, operator, right);
+                    break;
+                }
+            }
         }
-        return expr;
     }
 
     /**
-     * 동등 비교 연산자 파싱(==, !=) equality -> comparison ( ( "!=" | "==" ) comparison )* ;
+     * 할당 표현식 파싱 (Assignment Expression) 문법: assignment -> IDENTIFIER "=" assignment | logic_or ;
+     * <p>
+     * 할당은 우결합(right-associative) 연산자 예: a = b = c = 5; → a = (b = (c = 5))
+     * <p>
+     * 예시: - x = 10;        → Assign(x, 10) - x = y = 5;     → Assign(x, Assign(y, 5)) - x + 1 = 10;
+     * → 에러: "잘못된 할당 대상입니다."
      */
-    private Expr equality() {
-        Expr expr = comparison(); // 먼저 더 높은 우선순위 파싱
-
-        // ==, != 연산자가 계속 나오는 동안 반복
-        while (match(BANG_EQUAL, EQUAL_EQUAL)) {
-            Token operator = previous(); // 방금 매치된 연산자 가져오기
-            Expr right = comparison(); // 오른쪽 피연산자 파싱
-            expr = new Expr.Binary(expr, operator, right); // 왼쪽 결과를 새로운 Binary 노드로 감싸기
-        }
-
+    private Expr assignment(Expr expr) {
+        Token equals = previous();
+        // 우번을 재귀적으로 할당
+        Expr value = expression(POWER_ASSIGNMENT);
+
+        // 좌변이 변수인지 검증
+        if (expr instanceof Expr.Variable) {
+            Token name = ((Variable) expr).name;
+            // Assign 노드 생성후 반환
+            return new Expr.Assign(name, value);
+        } else if (expr instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get) expr;
+            return new Expr.Set(get.object, get.name, value);
+        } else if (expr instanceof Expr.Index) {
+            Expr.Index index = (Expr.Index)expr;
+            return new Expr.IndexSet(index.object, index.index, value);
+        }
+
+        error(equals, "잘못된 할당 대상입니다.");
         return expr;
     }
 
-    private Expr comparison() {
-        Expr expr = term();
-
-        while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
-            Token operator = previous();
-            Expr right = term();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr term() {
-        Expr expr = factor();
-
-        while (match(MINUS, PLUS)) {
-            Token operator = previous();
-            Expr right = factor();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr factor() {
-        Expr expr = unary();
-
-        while (match(SLASH, STAR)) {
-            Token operator = previous();
-            Expr right = unary();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr unary() {
-        if (match(BANG, MINUS)) {
+    // 단항 연산자 (!, -) 는 뒤의 피연산자를 호출, 속성, 인덱스 접근까지만 묶는다.
+    private Expr prefix() {
+        TokenType type = peekType();
+        if (type == BANG || type == MINUS) {
+            advance();
             Token operator = previous();
-            Expr right = unary();
+            Expr right = expression(POWER_UNARY);
             return new Expr.Unary(operator, right);
         }
 
-        return call();
-    }
-
-    private Expr call() {
-        Expr expr = primary();
-
-        while (true) {
-            // 좌측 피 연산자를 먼저 파싱
-            // '(' 가 나올때 마다 앞서 파싱한 표현식을 피 호출자로 사용해 호출식을 파싱
-            if (match(LEFT_PAREN)) {
-                expr = finishCall(expr);
-            } else if (match(DOT)) {
-                Token name = consume(IDENTIFIER, "'.' 이후에 속성이름이 와야 합니다.");
-                expr = new Expr.Get(expr, name);
-            } else if (match(LEFT_BRACKET)) {
-                Expr index = expression();
-                consume(RIGHT_BRACKET, "인덱스 접근 끝에 ']'가 필요합니다.");
-                expr = new Expr.Index(expr, index); //
-            } else {
-                break;
-            }
-        }
-
-        return expr;
+        return primary();
     }
 
     private Expr finishCall(Expr callee) {
@@ -446,7 +626,7 @@ public class Parser {
 
         if (match(SUPER)) {
             Token keyword = previous();
-            consume(DOT, "'super' 뒤에는 '.' 이 필요합니다.");
+            expect(DOT, "'super' 뒤에는 '.' 이 필요합니다.");
             Token method = consume(IDENTIFIER, "슈퍼클래스 메서드 이름이 필요합니다.");
             return new Expr.Super(keyword, method);
         }
@@ -473,14 +653,14 @@ public class Parser {
                     elements.add(expression());
                 }
             }
-            consume(RIGHT_BRACKET, "배열 리터럴 끝에 ']'가 필요합니다.");
+            expect(RIGHT_BRACKET, "배열 리터럴 끝에 ']'가 필요합니다.");
             return new Expr.Array(elements);
         }
 
         // 괄호로 묶인 표현식 (그룹)
         if (match(LEFT_PAREN)) {
             Expr expr = expression(); // 괄호 안의 표현식 재귀 파싱
-            consume(RIGHT_PAREN, "표현식 다음에 ')'가 필요합니다."); // ')' 필수!
+            expect(RIGHT_PAREN, "표현식 다음에 ')'가 필요합니다."); // ')' 필수!
             return new Expr.Grouping(expr); // (1 + 2) -> Grouping(Binary(1, +, 2))
         }
 
@@ -503,41 +683,62 @@ public class Parser {
     }
 
     private Token consume(TokenType type, String message) {
-        if (check(type)) {
-            return advance();
-        }
+        expect(type, message);
+        return previous();
+    }
 
-        throw error(peek(), message);
+    // 결과 토큰이 필요 없는 consume
+    private void expect(TokenType type, String message) {
+        if (!check(type)) {
+            throw error(peek(), message);
+        }
+        advance();
     }
 
     private boolean check(TokenType type) {
         if (isAtEnd()) {
             return false;
         }
-        return peek().type == type;
+        return peekType() == type;
     }
 
-    private Token advance() {
-        if (!isAtEnd()) {
+    private void advance() {
+        if (isAtEnd()) {
+            return;
+        }
+        if (buffer != null) {
             current++;
+        } else {
+            previous = next;
+            next = tokens.get();
         }
-        return previous();
     }
 
     private boolean isAtEnd() {
-        return peek().type == EOF;
+        return peekType() == EOF;
+    }
+
+    private TokenType peekType() {
+        return buffer != null ? buffer.type(current) : next.type;
     }
 
     private Token peek() {
-        return tokens.get(current);
+        return buffer != null ? buffer.token(current) : next;
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return buffer != null ? buffer.token(current - 1) : previous;
+    }
+
+    private TokenType previousType() {
+        return buffer != null ? buffer.type(current - 1) : previous.type;
     }
 
     private ParseError error(Token token, String message) {
         Woowa.error(token, message);
+        if (errorLine == -1) {
+            errorLine = token.line;
+        }
         return new ParseError();
     }
 
@@ -551,12 +752,12 @@ public class Parser {
 
         while (!isAtEnd()) {
             // 세미 콜론을 만나면 문장의 끝
-            if (previous().type == SEMICOLON) {
+            if (previousType() == SEMICOLON) {
                 return;
             }
 
             // 다음 토큰이 새로운 문장의 시작이면 복구 완료
-            switch (peek().type) {
+            switch (peekType()) {
                 case CLASS:
                 case FUN:
                 case VAR:
@@ -0,0 +1,83 @@
+package woowa;
+
+/**
+ * 큰 표현식의 파싱 시간 비교
+ * <p>
+ * java -cp out/production/WoowaLang woowa.ParserBenchmark [연산자 수] [반복 횟수]
+ * <p>
+ * 코드 생성기가 만든 것 같은 긴 표현식, 깊게 중첩된 표현식, 호출과 속성 접근이 섞인 표현식을 모양별로 만들어 한 번 스캔해 두고,
+ * 파싱에만 걸리는 평균 시간을 잰다.
+ */
+public class ParserBenchmark {
+
+    private static final int DEFAULT_SIZE = 200_000;
+    private static final int DEFAULT_REPEAT = 5;
+    private static final int NESTING_DEPTH = 200; // 중첩 표현식 한 문장의 괄호 깊이
+
+    private static final String[] OPERATORS = {"+", "*", "-", "/", "<", "==", "그리고", "또는"};
+
+    public static void main(String[] args) {
+        if (args.length > 2) {
+            System.out.println("Usage: parser_benchmark [operators] [repeat]");
+            System.exit(64);
+        }
+        int size = args.length >= 1 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int repeat = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_REPEAT;
+
+        measure("flat", repeat, flat(size));
+        measure("nested", repeat, nested(size));
+        measure("postfix", repeat, postfix(size));
+    }
+
+    // 연산자가 size 개인 한 줄짜리 표현식
+    private static String flat(int size) {
+        StringBuilder source = new StringBuilder("출력 0");
+        for (int i = 0; i < size; i++) {
+            source.append(' ').append(OPERATORS[i % OPERATORS.length]).append(' ').append(i + 1);
+        }
+        return source.append(";\n").toString();
+    }
+
+    // 괄호가 NESTING_DEPTH 단계 중첩된 문장들. 단항 연산자도 섞는다.
+    private static String nested(int size) {
+        StringBuilder source = new StringBuilder();
+        for (int statement = 0; statement < size / NESTING_DEPTH; statement++) {
+            source.append("출력 ");
+            for (int i = 0; i < NESTING_DEPTH; i++) {
+                source.append(i % 2 == 0 ? "(" : "-(");
+            }
+            source.append('1');
+            for (int i = 0; i < NESTING_DEPTH; i++) {
+                source.append(" ").append(OPERATORS[i % OPERATORS.length]).append(' ').append(i).append(')');
+            }
+            source.append(";\n");
+        }
+        return source.toString();
+    }
+
+    // 호출, 속성, 인덱스 접근과 할당이 섞인 문장들
+    private static String postfix(int size) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < size / 8; i++) {
+            source.append("a.b[").append(i).append("] = f(x, -y.z)[2].c(1) + !g(h[i * 2]).d - 3;\n");
+        }
+        return source.toString();
+    }
+
+    private static void measure(String name, int repeat, String source) {
+        TokenBuffer tokens = new Scanner(source).scanBuffer();
+        new Parser(tokens, false).parse(); // 워밍업
+
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            new Parser(tokens, false).parse();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (Woowa.hadError) {
+            System.err.println(name + " 표현식 파싱 중 에러가 발생했습니다.");
+            System.exit(65);
+        }
+        System.out.printf("%-8s %10.2f ms (%,d tokens)%n", name, elapsed / 1_000_000.0 / repeat, tokens.size());
+    }
+}
@@ -0,0 +1,19 @@
+package woowa;
+
+import java.util.List;
+
+/**
+ * 스캔, 파싱, 리졸브까지 끝난 스크립트
+ * <p>
+ * 최상위 코드의 지역 변수 슬롯 수를 함께 들고 있어 바로 실행할 수 있다.
+ */
+final class Program {
+
+    final List<Stmt> statements;
+    final int topLevelSlots;
+
+    Program(List<Stmt> statements, int topLevelSlots) {
+        this.statements = statements;
+        this.topLevelSlots = topLevelSlots;
+    }
+}
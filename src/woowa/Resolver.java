@@ -1,5 +1,6 @@
 package woowa;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,20 +9,17 @@ import java.util.Stack;
 /**
  * Resolver
  *
- * 코드 실행 전에 변수 스코프를 미리 분석하여 각 변수가 몇 단계 위 스코프에 있는지 계산
+ * 코드 실행 전에 변수 스코프를 미리 분석하여 각 변수가 저장될 위치를 계산
+ * <p>
+ * 지역 변수는 함수 프레임의 슬롯에 저장하고, 안쪽 함수가 캡처하는 변수만 Cell 에 담는다.
  */
 public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
-    private final Interpreter interpreter;
-    // 활성 스코프를 저장 <변수이름 초기화 여부>
-    private final Stack<Map<String, Boolean>> scopes = new Stack<>();
+    // 활성 스코프를 저장 <변수이름, 슬롯과 초기화 여부>
+    private final Stack<Map<String, Local>> scopes = new Stack<>();
     // 함수 컨텍스트 추적
     private FunctionType currentFunction = FunctionType.NONE;
 
-    Resolver(Interpreter interpreter) {
-        this.interpreter = interpreter;
-    }
-
     private enum FunctionType {
         NONE, // 최상위 레벨
         FUNCTION, // 함수 레벨
@@ -37,21 +35,80 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     private ClassType currentClass = ClassType.NONE;
 
+    // 스코프 안의 지역 변수 하나
+    private static class Local {
+
+        final int slot; // 함수 프레임 안의 슬롯 번호
+        boolean defined = false;
+        boolean captured = false; // 안쪽 함수가 참조하면 Cell 에 담아야 한다.
+        // 같은 함수 안에서 이 변수를 읽고 쓰는 노드. 스코프가 끝날 때 저장 위치를 확정한다.
+        final List<Expr> uses = new ArrayList<>();
+        // 캡처되었을 때 선언 쪽에 표시하는 동작
+        Runnable markCaptured;
+
+        Local(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    // 분석 중인 함수 하나. 최상위 코드도 하나의 함수로 본다.
+    private static class FunctionScope {
+
+        final FunctionScope enclosing;
+        final int scopeBase; // scopes 에서 이 함수의 첫 스코프 위치
+        int slotCount = 0; // 현재 사용 중인 슬롯 수
+        int maxSlots = 0; // 프레임 크기
+        // 캡처한 변수. 0 이상이면 바깥 함수의 슬롯, 음수면 바깥 함수 업밸류의 ~인덱스
+        final List<Integer> upvalues = new ArrayList<>();
+
+        FunctionScope(FunctionScope enclosing, int scopeBase) {
+            this.enclosing = enclosing;
+            this.scopeBase = scopeBase;
+        }
+    }
+
+    private FunctionScope currentScope = new FunctionScope(null, 0);
+
+    // 최상위 코드가 사용하는 프레임 크기
+    int topLevelSlots() {
+        return currentScope.maxSlots;
+    }
+
     // 블록문은 자신이 포함한 문장들에 해당하는 새로운 스코프를 시작한다.
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
+        // 선언이 없는 블록(for 문의 본문 + 증감식 등)은 스코프를 만들 필요가 없다.
+        if (!declaresVariable(stmt.statements)) {
+            resolve(stmt.statements);
+            return null;
+        }
+
         beginScope(); // 새 스코프 시작
         resolve(stmt.statements); // 블록 내부 분석
         endScope(); // 스코프 종료
         return null;
     }
 
+    private static boolean declaresVariable(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Stmt.Var || statement instanceof Stmt.Function
+                || statement instanceof Stmt.Class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Void visitClassStmt(Stmt.Class stmt) {
         ClassType enclosingClass = currentClass;
         currentClass = ClassType.CLASS;
-        declare(stmt.name);
+        Local name = declare(stmt.name);
         define(stmt.name);
+        if (name != null) {
+            stmt.slot = name.slot;
+            name.markCaptured = () -> stmt.cell = true;
+        }
 
         if (stmt.superclass != null && stmt.name.lexeme.equals(stmt.superclass.name.lexeme)) {
             Woowa.error(stmt.superclass.name, "클래스는 스스로를 상복받을 수 없습니다.");
@@ -62,14 +119,14 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             resolve(stmt.superclass);
         }
 
+        // super 는 메서드에서만 쓰이므로 항상 Cell 에 담는다.
         if (stmt.superclass != null) {
             beginScope();
-            scopes.peek().put("super", true);
+            Local superLocal = defineInternal("super");
+            superLocal.captured = true;
+            stmt.superSlot = superLocal.slot;
         }
 
-        beginScope();
-        scopes.peek().put("this", true);
-
         for (Stmt.Function method : stmt.methods) {
             FunctionType declaration = FunctionType.METHOD;
 
@@ -79,8 +136,6 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             resolveFunction(method, declaration);
         }
 
-        endScope();
-
         if (stmt.superclass != null) {
             endScope();
         }
@@ -98,13 +153,27 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     // 재귀 호출을 허용하기 위해 선언과 동시에 정의
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
-        declare(stmt.name); // 함수 이름 선언
+        Local name = declare(stmt.name); // 함수 이름 선언
         define(stmt.name); // 즉시 정의
+        if (name != null) {
+            stmt.slot = name.slot;
+            name.markCaptured = () -> stmt.cell = true;
+        }
 
+        // 지연 파싱된 최상위 함수는 캡처할 것이 없으므로 본문은 처음 호출될 때 리졸브한다.
+        if (stmt.lazyBody != null) {
+            stmt.upvalues = new int[0];
+            return null;
+        }
         resolveFunction(stmt, FunctionType.FUNCTION);
         return null;
     }
 
+    // 지연 파싱된 최상위 함수의 본문을 리졸브한다.
+    void resolveLazyFunction(Stmt.Function function) {
+        resolveFunction(function, FunctionType.FUNCTION);
+    }
+
     @Override
     public Void visitIfStmt(Stmt.If stmt) {
         resolve(stmt.condition); // 조건식
@@ -131,17 +200,48 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             if (currentFunction == FunctionType.INITIALIZER) {
                 Woowa.error(stmt.keyword, "초기자에서 값을 리턴할 수 없습니다.");
             }
+
+            resolve(stmt.value); // 반환값 분석
         }
         return null;
     }
 
     @Override
     public Void visitVarStmt(Stmt.Var stmt) {
-        declare(stmt.name); // 선언
+        Local name = declare(stmt.name); // 선언
         if (stmt.initializer != null) { // 초기식 계산
             resolve(stmt.initializer);
         }
         define(stmt.name); // 정의
+        if (name != null) {
+            stmt.slot = name.slot;
+            name.markCaptured = () -> stmt.cell = true;
+        }
+        return null;
+    }
+
+    // for 문의 초기자에서 선언한 변수는 루프 전체에서 하나의 스코프에 있다.
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        boolean scoped = stmt.initializer instanceof Stmt.Var;
+        if (scoped) {
+            beginScope();
+        }
+
+        if (stmt.initializer != null) {
+            resolve(stmt.initializer);
+        }
+        if (stmt.condition != null) {
+            resolve(stmt.condition);
+        }
+        resolve(stmt.body);
+        if (stmt.increment != null) {
+            resolve(stmt.increment);
+        }
+
+        if (scoped) {
+            endScope();
+        }
         return null;
     }
 
@@ -155,7 +255,8 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitAssignExpr(Expr.Assign expr) {
         resolve(expr.value); // 우변 먼저
-        resolveLocal(expr, expr.name); // 좌변 변수 위치 계산
+
+        resolveVariable(expr, expr.name.lexeme); // 좌변 변수 위치 계산
         return null;
     }
 
@@ -163,9 +264,45 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visitBinaryExpr(Expr.Binary expr) {
         resolve(expr.left);
         resolve(expr.right);
+        markNumeric(expr);
         return null;
     }
 
+    // 결과가 항상 숫자인 식은 인터프리터가 박싱 없이 계산할 수 있다. Optimizer 가 새로 만든 식에도 쓴다.
+    static void markNumeric(Expr.Binary expr) {
+        expr.leftNumeric = isNumeric(expr.left);
+        expr.rightNumeric = isNumeric(expr.right);
+        switch (expr.operator.type) {
+            case MINUS:
+            case STAR:
+            case SLASH:
+                expr.numeric = true;
+                break;
+            case PLUS:
+                expr.numeric = expr.leftNumeric && expr.rightNumeric;
+                break;
+            default:
+                expr.numeric = false;
+        }
+    }
+
+    // 평가가 끝나면 반드시 숫자인 식 (숫자가 아니면 평가 도중 에러가 난다)
+    private static boolean isNumeric(Expr expr) {
+        if (expr instanceof Expr.Literal) {
+            return ((Expr.Literal) expr).value instanceof Double;
+        }
+        if (expr instanceof Expr.Grouping) {
+            return isNumeric(((Expr.Grouping) expr).expression);
+        }
+        if (expr instanceof Expr.Unary) {
+            return ((Expr.Unary) expr).operator.type == TokenType.MINUS;
+        }
+        if (expr instanceof Expr.Binary) {
+            return ((Expr.Binary) expr).numeric;
+        }
+        return false;
+    }
+
     @Override
     public Void visitCallExpr(Expr.Call expr) {
         resolve(expr.callee);
@@ -239,7 +376,12 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             Woowa.error(expr.keyword, "슈퍼 클래스 없이 'super' 를 사용 할 수 없습니다.");
         }
 
-        resolveLocal(expr, expr.keyword);
+        // super 는 항상 바깥 함수에 있고, this 는 메서드 프레임 또는 바깥 함수에 있다.
+        int superclass = resolveUpvalue(currentScope, "super");
+        if (superclass != -1) {
+            expr.slot = superclass;
+            resolveVariable(expr, "this");
+        }
         return null;
     }
 
@@ -249,7 +391,8 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
             Woowa.error(expr.keyword, "클래스 외부에서 'this' 를 사용할 수 없습니다.");
             return null;
         }
-        resolveLocal(expr, expr.keyword);
+
+        resolveVariable(expr, "this"); // '자신' 도 같은 this 슬롯을 쓴다.
         return null;
     }
 
@@ -262,11 +405,14 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     @Override
     public Void visitVariableExpr(Expr.Variable expr) {
         // 변수가 선언은 됐지만 초기화는 안 된 상태인지 확인
-        if (!scopes.isEmpty() && scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
-            Woowa.error(expr.name, "초기자에서 지역 변수를 읽을 수 없습니다.");
+        if (!scopes.isEmpty()) {
+            Local local = scopes.peek().get(expr.name.lexeme);
+            if (local != null && !local.defined) {
+                Woowa.error(expr.name, "초기자에서 지역 변수를 읽을 수 없습니다.");
+            }
         }
 
-        resolveLocal(expr, expr.name);
+        resolveVariable(expr, expr.name.lexeme);
         return null;
     }
 
@@ -277,66 +423,256 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         }
     }
 
+    // 방문자를 거치지 않고 노드 종류로 바로 분기한다.
     private void resolve(Stmt stmt) {
-        stmt.accept(this);
+        switch (stmt.kind) {
+            case Stmt.BLOCK:
+                visitBlockStmt((Stmt.Block) stmt);
+                break;
+            case Stmt.CLASS:
+                visitClassStmt((Stmt.Class) stmt);
+                break;
+            case Stmt.EXPRESSION:
+                visitExpressionStmt((Stmt.Expression) stmt);
+                break;
+            case Stmt.FOR:
+                visitForStmt((Stmt.For) stmt);
+                break;
+            case Stmt.FUNCTION:
+                visitFunctionStmt((Stmt.Function) stmt);
+                break;
+            case Stmt.IF:
+                visitIfStmt((Stmt.If) stmt);
+                break;
+            case Stmt.PRINT:
+                visitPrintStmt((Stmt.Print) stmt);
+                break;
+            case Stmt.RETURN:
+                visitReturnStmt((Stmt.Return) stmt);
+                break;
+            case Stmt.VAR:
+                visitVarStmt((Stmt.Var) stmt);
+                break;
+            case Stmt.WHILE:
+                visitWhileStmt((Stmt.While) stmt);
+                break;
+            default:
+                throw new IllegalStateException("알 수 없는 문장: " + stmt.kind);
+        }
     }
 
     private void resolve(Expr expr) {
-        expr.accept(this);
+        switch (expr.kind) {
+            case Expr.ARRAY:
+                visitArrayExpr((Expr.Array) expr);
+                break;
+            case Expr.ASSIGN:
+                visitAssignExpr((Expr.Assign) expr);
+                break;
+            case Expr.BINARY:
+                visitBinaryExpr((Expr.Binary) expr);
+                break;
+            case Expr.CALL:
+                visitCallExpr((Expr.Call) expr);
+                break;
+            case Expr.GET:
+                visitGetExpr((Expr.Get) expr);
+                break;
+            case Expr.GROUPING:
+                visitGroupingExpr((Expr.Grouping) expr);
+                break;
+            case Expr.INDEX:
+                visitIndexExpr((Expr.Index) expr);
+                break;
+            case Expr.INDEX_SET:
+                visitIndexSetExpr((Expr.IndexSet) expr);
+                break;
+            case Expr.LITERAL:
+                visitLiteralExpr((Expr.Literal) expr);
+                break;
+            case Expr.LOGICAL:
+                visitLogicalExpr((Expr.Logical) expr);
+                break;
+            case Expr.SET:
+                visitSetExpr((Expr.Set) expr);
+                break;
+            case Expr.SUPER:
+                visitSuperExpr((Expr.Super) expr);
+                break;
+            case Expr.THIS:
+                visitThisExpr((Expr.This) expr);
+                break;
+            case Expr.UNARY:
+                visitUnaryExpr((Expr.Unary) expr);
+                break;
+            case Expr.VARIABLE:
+                visitVariableExpr((Expr.Variable) expr);
+                break;
+            default:
+                throw new IllegalStateException("알 수 없는 표현식: " + expr.kind);
+        }
     }
 
     private void resolveFunction(Stmt.Function function, FunctionType type) {
         FunctionType enclosingFunction = currentFunction; // 백업
         currentFunction = type; // 현재 함수 타입 설정
+        currentScope = new FunctionScope(currentScope, scopes.size());
 
         beginScope();
+        // 메서드는 0번 슬롯에 this 를 받는다.
+        boolean method = type == FunctionType.METHOD || type == FunctionType.INITIALIZER;
+        function.cellParams = new boolean[function.params.size() + (method ? 1 : 0)];
+        if (method) {
+            defineInternal("this").markCaptured = () -> function.cellParams[0] = true;
+        }
         // 파라미터들을 스코프에 추가
         for (Token param : function.params) {
-            declare(param);
+            Local local = declare(param);
             define(param);
+            if (local != null) {
+                local.markCaptured = () -> function.cellParams[local.slot] = true;
+            }
         }
         resolve(function.body);
         endScope();
+
+        function.frameSize = currentScope.maxSlots;
+        function.upvalues = new int[currentScope.upvalues.size()];
+        for (int i = 0; i < function.upvalues.length; i++) {
+            function.upvalues[i] = currentScope.upvalues.get(i);
+        }
+
+        currentScope = currentScope.enclosing;
         currentFunction = enclosingFunction; // 복원
     }
 
     private void beginScope() {
-        scopes.push(new HashMap<String, Boolean>());
+        scopes.push(new HashMap<String, Local>());
     }
 
+    // 스코프가 끝나면 캡처 여부가 확정되므로 변수를 쓰는 노드에 저장 위치를 기록한다.
     private void endScope() {
-        scopes.pop();
+        Map<String, Local> scope = scopes.pop();
+        for (Local local : scope.values()) {
+            StorageType storage = local.captured ? StorageType.CELL : StorageType.LOCAL;
+            for (Expr use : local.uses) {
+                bind(use, storage, local.slot);
+            }
+            if (local.captured && local.markCaptured != null) {
+                local.markCaptured.run();
+            }
+        }
+        // 블록이 끝나면 그 슬롯들은 다음 변수가 다시 쓴다.
+        currentScope.slotCount -= scope.size();
     }
 
-    // 현재 스코프에 변수를 false 로 추가
-    private void declare(Token name) {
+    // 현재 스코프에 변수를 초기화 전 상태로 추가하고 다음 슬롯을 배정
+    private Local declare(Token name) {
         if (scopes.isEmpty()) {
-            return;
+            return null;
         }
-        Map<String, Boolean> scope = scopes.peek();
+        Map<String, Local> scope = scopes.peek();
 
         if (scope.containsKey(name.lexeme)) {
             Woowa.error(name, "같은 스코프에 이미 변수가 존재합니다.");
+            return null;
         }
-        // false 로 바인딩해서 아직 준비 중 표시
-        scope.put(name.lexeme, false);
+        // 아직 준비 중 표시
+        Local local = new Local(nextSlot());
+        scope.put(name.lexeme, local);
+        return local;
     }
 
 
-    // true 로 변경해서 초기화 완료 및 사용가능 변수 표기
+    // 초기화 완료 및 사용가능 변수 표기
     private void define(Token name) {
         if (scopes.isEmpty()) {
             return;
         }
-        scopes.peek().put(name.lexeme, true);
+        scopes.peek().get(name.lexeme).defined = true;
+    }
+
+    // this, super 처럼 인터프리터가 직접 넣어 주는 변수
+    private Local defineInternal(String name) {
+        Local local = new Local(nextSlot());
+        local.defined = true;
+        scopes.peek().put(name, local);
+        return local;
+    }
+
+    private int nextSlot() {
+        int slot = currentScope.slotCount++;
+        currentScope.maxSlots = Math.max(currentScope.maxSlots, currentScope.slotCount);
+        return slot;
+    }
+
+    // 현재 함수의 지역 변수, 바깥 함수의 변수(업밸류), 전역 변수 순으로 찾는다.
+    private void resolveVariable(Expr expr, String name) {
+        Local local = findLocal(currentScope.scopeBase, scopes.size(), name);
+        if (local != null) {
+            local.uses.add(expr);
+            return;
+        }
+
+        int upvalue = resolveUpvalue(currentScope, name);
+        if (upvalue != -1) {
+            bind(expr, StorageType.UPVALUE, upvalue);
+        }
     }
 
-    private void resolveLocal(Expr expr, Token name) {
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name.lexeme)) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
-                return;
+    private Local findLocal(int from, int to, String name) {
+        for (int i = to - 1; i >= from; i--) {
+            Local local = scopes.get(i).get(name);
+            if (local != null) {
+                return local;
             }
         }
+        return null;
+    }
+
+    // 바깥 함수에서 변수를 찾아 function 의 업밸류로 등록하고 인덱스를 돌려준다. 없으면 -1
+    private int resolveUpvalue(FunctionScope function, String name) {
+        FunctionScope enclosing = function.enclosing;
+        if (enclosing == null) {
+            return -1;
+        }
+
+        Local local = findLocal(enclosing.scopeBase, function.scopeBase, name);
+        if (local != null) {
+            local.captured = true;
+            return addUpvalue(function, local.slot);
+        }
+
+        int upvalue = resolveUpvalue(enclosing, name);
+        if (upvalue != -1) {
+            return addUpvalue(function, ~upvalue);
+        }
+        return -1;
+    }
+
+    private int addUpvalue(FunctionScope function, int source) {
+        int index = function.upvalues.indexOf(source);
+        if (index != -1) {
+            return index;
+        }
+        function.upvalues.add(source);
+        return function.upvalues.size() - 1;
+    }
+
+    private static void bind(Expr expr, StorageType storage, int slot) {
+        if (expr instanceof Expr.Variable) {
+            ((Expr.Variable) expr).storage = storage;
+            ((Expr.Variable) expr).slot = slot;
+        } else if (expr instanceof Expr.Assign) {
+            ((Expr.Assign) expr).storage = storage;
+            ((Expr.Assign) expr).slot = slot;
+        } else if (expr instanceof Expr.This) {
+            ((Expr.This) expr).storage = storage;
+            ((Expr.This) expr).slot = slot;
+        } else if (expr instanceof Expr.Super) {
+            // super 식 안의 this
+            ((Expr.Super) expr).thisStorage = storage;
+            ((Expr.Super) expr).thisSlot = slot;
+        }
     }
 }
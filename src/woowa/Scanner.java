@@ -2,14 +2,33 @@ package woowa;
 
 import static woowa.TokenType.*;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 소스를 토큰으로 나눈다.
+ * <p>
+ * 문자열이나 CharBuffer 전체를 받거나 Reader 에서 문자를 조금씩 읽을 수 있다. Reader 를 쓰면 버퍼에는 현재 렉심부터 읽은 곳까지만 남기므로,
+ * {@link #nextToken} 으로 토큰을 하나씩 꺼내면 소스 크기와 상관없이 적은 메모리로 스캔한다.
+ */
 public class Scanner {
 
+    private static final int BUFFER_SIZE = 8192;
+    private static final int PARALLEL_THRESHOLD = 1 << 20; // 이보다 작은 소스는 나눠 스캔해도 이득이 없다.
+    private static final int CHUNKS_PER_THREAD = 4; // 조각마다 걸리는 시간이 달라도 스레드가 놀지 않게 잘게 나눈다.
+
     private static final Map<String, TokenType> keywords;
+    // keywords 를 글자 단위로 펼친 트라이. 소스 문자에서 바로 키워드를 찾는다.
+    private static final KeywordNode keywordTrie = new KeywordNode();
 
 
     static {
@@ -61,30 +80,234 @@ public class Scanner {
 
         keywords.put("while", WHILE);
         keywords.put("하는동안", WHILE);
+
+        for (Map.Entry<String, TokenType> keyword : keywords.entrySet()) {
+            keywordTrie.add(keyword.getKey(), keyword.getValue());
+        }
+    }
+
+    // 키워드 트라이의 노드. 자식은 글자 순으로 정렬해 두고 이진 탐색한다.
+    private static final class KeywordNode {
+
+        private char[] labels = new char[0];
+        private KeywordNode[] children = new KeywordNode[0];
+        private TokenType type; // 여기서 끝나는 키워드
+
+        void add(String keyword, TokenType type) {
+            KeywordNode node = this;
+            for (int i = 0; i < keyword.length(); i++) {
+                KeywordNode child = node.child(keyword.charAt(i));
+                if (child == null) {
+                    child = node.insert(keyword.charAt(i));
+                }
+                node = child;
+            }
+            node.type = type;
+        }
+
+        // 글자 순서를 유지하며 자식을 넣는다.
+        private KeywordNode insert(char c) {
+            int index = -Arrays.binarySearch(labels, c) - 1;
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(labels, index, labels, index + 1, labels.length - index - 1);
+            System.arraycopy(children, index, children, index + 1, children.length - index - 1);
+            labels[index] = c;
+            children[index] = new KeywordNode();
+            return children[index];
+        }
+
+        private KeywordNode child(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            return index < 0 ? null : children[index];
+        }
+
+        // text[start, end) 가 키워드면 그 종류, 아니면 null
+        static TokenType match(KeywordNode root, char[] text, int start, int end) {
+            KeywordNode node = root;
+            for (int i = start; i < end && node != null; i++) {
+                node = node.child(text[i]);
+            }
+            return node == null ? null : node.type;
+        }
     }
 
-    private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    private Reader reader; // 다 읽었거나 문자열 소스면 null
+    private char[] buffer;
+    private int limit; // buffer 에서 읽어 둔 문자 수
+    private Token token; // 방금 스캔한 토큰
+    private final NameTable names = new NameTable(); // nextToken 으로 만드는 식별자 이름
+    private TokenBuffer tokens; // scanBuffer 로 스캔할 때 토큰을 담는 곳
+    private List<ScanError> errors; // 병렬 스캔의 조각은 에러를 모아 뒀다가 소스 순서대로 알린다.
 
     private int start = 0; // 렉심의 첫 번째 문자
     private int current = 0; // 현재 처리중인 문자
     private int line = 1; // 소스 줄 번호
 
     public Scanner(String source) {
-        this.source = source;
+        this.buffer = source.toCharArray();
+        this.limit = buffer.length;
+    }
+
+    // 이미 읽어 둔 문자를 복사하지 않고 스캔한다.
+    Scanner(CharBuffer source) {
+        if (source.hasArray()) {
+            this.buffer = source.array();
+            this.start = this.current = source.arrayOffset() + source.position();
+            this.limit = source.arrayOffset() + source.limit();
+        } else {
+            this.buffer = source.toString().toCharArray();
+            this.limit = buffer.length;
+        }
+    }
+
+    // 병렬 스캔의 한 조각. 소스 배열의 [from, to) 를 line 번째 줄부터 스캔한다.
+    private Scanner(char[] buffer, int from, int to, int line) {
+        this.buffer = buffer;
+        this.start = this.current = from;
+        this.limit = to;
+        this.line = line;
+        this.errors = new ArrayList<>();
+    }
+
+    Scanner(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
     }
 
     public List<Token> scanTokens() {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.type != EOF);
+        return tokens;
+    }
+
+    /**
+     * 소스 전체를 스캔해 토큰 버퍼에 담는다. 렉심은 소스 배열의 위치로만 기록한다.
+     * <p>
+     * 스캔하는 동안 버퍼가 소스 배열을 가리키므로 Reader 로 만든 스캐너에서는 쓸 수 없다. 소스가 크고 쓸 수 있는 코어가
+     * 여럿이면 {@link #scanParallel} 로 나눠서 스캔한다.
+     */
+    TokenBuffer scanBuffer() {
+        if (reader != null) {
+            throw new IllegalStateException("Reader 로 읽는 스캐너는 nextToken 을 써야 합니다.");
+        }
+
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (limit - current >= PARALLEL_THRESHOLD && parallelism > 1) {
+            return scanParallel(parallelism * CHUNKS_PER_THREAD);
+        }
+
+        TokenBuffer tokens = scanRest();
+        tokens.add(EOF, current, 0, line);
+        return tokens;
+    }
+
+    /**
+     * 소스를 최대 chunks 개의 조각으로 나눠 ForkJoinPool 에서 함께 스캔한다.
+     * <p>
+     * 조각은 문자열과 주석 밖의 줄바꿈 바로 뒤에서만 나누므로 토큰이 조각 경계에 걸치지 않는다. 경계를 찾는 동안 줄 수도 세어
+     * 두기 때문에 각 조각은 자기 시작 줄 번호부터 스캔하고, 조각의 토큰을 차례로 이어 붙이면 한 번에 스캔한 것과 같다.
+     */
+    TokenBuffer scanParallel(int chunks) {
+        int[] bounds = new int[chunks + 1];
+        int[] startLines = new int[chunks + 1];
+        int count = split(bounds, startLines);
+
+        List<Scanner> scanners = new ArrayList<>(count);
+        List<ForkJoinTask<TokenBuffer>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Scanner scanner = new Scanner(buffer, bounds[i], bounds[i + 1], startLines[i]);
+            scanners.add(scanner);
+            tasks.add(ForkJoinTask.adapt(scanner::scanRest).fork());
+        }
+
+        List<TokenBuffer> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parts.add(tasks.get(i).join());
+            for (ScanError error : scanners.get(i).errors) {
+                Woowa.error(error.line, error.message);
+            }
+        }
+
+        current = start = limit;
+        line = scanners.get(count - 1).line;
+        TokenBuffer tokens = TokenBuffer.concat(buffer, parts);
+        tokens.add(EOF, current, 0, line);
+        return tokens;
+    }
+
+    /**
+     * 남은 소스를 조각으로 나눌 경계를 찾는다. bounds[i] 에서 시작하는 조각의 첫 줄 번호를 startLines[i] 에 적고 조각 수를
+     * 돌려준다. 마지막 경계는 소스 끝이다.
+     * <p>
+     * 큰따옴표의 짝과 주석 여부만 따라가므로 스캔보다 훨씬 가볍다. 문자열이 닫히지 않으면 그 뒤로는 나누지 않는다.
+     */
+    private int split(int[] bounds, int[] startLines) {
+        int chunks = bounds.length - 1;
+        int chunkSize = Math.max(1, (limit - current) / chunks);
+        int count = 0;
+        bounds[0] = current;
+        startLines[0] = line;
+
+        boolean inString = false;
+        boolean inComment = false;
+        int lines = line;
+        int next = current + chunkSize;
+        for (int i = current; i < limit && count < chunks - 1; i++) {
+            char c = buffer[i];
+            if (c == '\n') {
+                lines++;
+                inComment = false;
+                if (!inString && i + 1 >= next && i + 1 < limit) {
+                    count++;
+                    bounds[count] = i + 1;
+                    startLines[count] = lines;
+                    next = i + 1 + chunkSize;
+                }
+            } else if (inComment) {
+                continue;
+            } else if (c == '"') {
+                inString = !inString;
+            } else if (c == '/' && !inString && i + 1 < limit && buffer[i + 1] == '/') {
+                inComment = true;
+                i++;
+            }
+        }
+
+        bounds[count + 1] = limit;
+        return count + 1;
+    }
+
+    // 남은 소스를 모두 스캔한다. EOF 는 붙이지 않는다.
+    private TokenBuffer scanRest() {
+        // 토큰은 대략 네 글자에 하나 정도 나온다.
+        tokens = new TokenBuffer(buffer, (limit - current) / 4);
         while (!isAtEnd()) {
-            // 다음 렉심의 시작부에 있다
             start = current;
             scanToken();
         }
-
-        tokens.add(new Token(EOF, "", null, line));
         return tokens;
     }
 
+    // 다음 토큰. 소스가 끝나면 EOF 토큰을 돌려준다.
+    Token nextToken() {
+        while (!isAtEnd()) {
+            // 다음 렉심의 시작부에 있다
+            start = current;
+            scanToken();
+            if (token != null) {
+                Token result = token;
+                token = null;
+                return result;
+            }
+        }
+        return new Token(EOF, "", null, line);
+    }
+
     private void scanToken() {
         char c = advance();
 
@@ -174,7 +397,7 @@ public class Scanner {
                 } else if (isAlpha(c)) {
                     identifier();
                 } else {
-                    Woowa.error(line, "예상되지 않은 특수문자.");
+                    error("예상되지 않은 특수문자.");
                     break;
                 }
         }
@@ -185,8 +408,8 @@ public class Scanner {
             advance();
         }
 
-        String text = source.substring(start, current);
-        TokenType type = keywords.get(text); // 키워드 맵에서 찾기
+        // 문자열을 만들지 않고 소스 문자에서 바로 키워드를 찾는다.
+        TokenType type = KeywordNode.match(keywordTrie, buffer, start, current);
         if (type == null) {
             type = IDENTIFIER; // 키워드가 아니면 식별자
         }
@@ -204,16 +427,14 @@ public class Scanner {
 
         // 문자열이 닫히지 않은 채 파일이 끝난 경우
         if (isAtEnd()) {
-            Woowa.error(line, "문자열이 종료되지 않았습니다.");
+            error("문자열이 종료되지 않았습니다.");
             return;
         }
 
         // 닫는 " 소비
         advance();
 
-        // 앞뒤 큰따옴표를 제거한 실제 문자열 값
-        String value = source.substring(start + 1, current - 1);
-        addToken(STRING, value);
+        addToken(STRING);
     }
 
     private void number() {
@@ -230,8 +451,7 @@ public class Scanner {
             }
         }
 
-        // 숫자 부분을 double 로 변환한다
-        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+        addToken(NUMBER);
     }
 
     private boolean isDigit(char c) {
@@ -255,7 +475,7 @@ public class Scanner {
         if (isAtEnd()) {
             return false;
         }
-        if (source.charAt(current) != expected) {
+        if (buffer[current] != expected) {
             return false;
         }
         current++;
@@ -266,30 +486,98 @@ public class Scanner {
         if (isAtEnd()) {
             return '\0';
         }
-        return source.charAt(current);
+        return buffer[current];
     }
 
     private char peekNext() {
-        if (current + 1 >= source.length()) {
+        if (!fill(current + 1)) {
             return '\0';
         }
-        return source.charAt(current + 1);
+        return buffer[current + 1];
     }
 
     private boolean isAtEnd() {
-        return current >= source.length();
+        return !fill(current);
     }
 
     private char advance() {
-        return source.charAt(current++);
+        return buffer[current++];
     }
 
-    private void addToken(TokenType type) {
-        addToken(type, null);
+    /**
+     * buffer[index] 까지 읽어 둔다. 소스가 그 전에 끝나면 false
+     * <p>
+     * 더 읽어야 하면 현재 렉심 앞부분을 버리고 당기므로 index 와 start, current 가 함께 옮겨진다.
+     */
+    private boolean fill(int index) {
+        while (index >= limit) {
+            if (reader == null) {
+                return false;
+            }
+
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                current -= start;
+                index -= start;
+                start = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            int read;
+            try {
+                read = reader.read(buffer, limit, buffer.length - limit);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (read < 0) {
+                reader = null;
+                return false;
+            }
+            limit += read;
+        }
+        return true;
     }
 
-    private void addToken(TokenType type, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+    private void error(String message) {
+        if (errors != null) {
+            errors.add(new ScanError(line, message));
+            return;
+        }
+        Woowa.error(line, message);
+    }
+
+    private static final class ScanError {
+
+        final int line;
+        final String message;
+
+        ScanError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+
+    private String text(int from, int to) {
+        return new String(buffer, from, to - from);
+    }
+
+    private void addToken(TokenType type) {
+        if (tokens != null) {
+            tokens.add(type, start, current - start, line);
+            return;
+        }
+
+        Object literal = null;
+        if (type == STRING) {
+            literal = text(start + 1, current - 1); // 앞뒤 큰따옴표를 제거한 실제 문자열 값
+        } else if (type == NUMBER) {
+            literal = Double.parseDouble(text(start, current)); // 숫자 부분을 double 로 변환한다
+        }
+        String lexeme = type == IDENTIFIER
+            ? names.intern(buffer, start, current - start) : text(start, current);
+        token = new Token(type, lexeme, literal, line);
     }
 }
@@ -0,0 +1,68 @@
+package woowa;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 소스 읽기 방식별 수행 시간 비교
+ * <p>
+ * java -cp out/production/WoowaLang woowa.SourceBenchmark [줄 수] [반복 횟수]
+ * <p>
+ * 한글 키워드와 주석이 섞인 큰 스크립트를 임시 파일로 만든 뒤, 파일을 읽고 토큰으로 나누기까지의 평균 시간을 잰다.
+ */
+public class SourceBenchmark {
+
+    private static final int DEFAULT_LINES = 1_000_000;
+    private static final int DEFAULT_REPEAT = 5;
+
+    private interface Loader {
+
+        Scanner load(Path path) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 2) {
+            System.out.println("Usage: source_benchmark [lines] [repeat]");
+            System.exit(64);
+        }
+        int lines = args.length >= 1 ? Integer.parseInt(args[0]) : DEFAULT_LINES;
+        int repeat = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_REPEAT;
+
+        Path path = Files.createTempFile("source-benchmark", ".woowa");
+        try {
+            generate(path, lines);
+            System.out.printf("%,d bytes%n", Files.size(path));
+
+            measure("readAllBytes", repeat, path,
+                file -> new Scanner(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)));
+            measure("mmap", repeat, path, file -> new Scanner(SourceFile.read(file)));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void generate(Path path, int lines) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("변수 합계 = 0;\n");
+            for (int i = 0; i < lines; i++) {
+                writer.write("합계 = 합계 + " + i + " * 2; // 반복 " + i + "\n");
+            }
+            writer.write("출력 합계;\n");
+        }
+    }
+
+    private static void measure(String name, int repeat, Path path, Loader loader) throws IOException {
+        int tokens = loader.load(path).scanTokens().size(); // 워밍업
+
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            tokens = loader.load(path).scanTokens().size();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-14s %10.2f ms (%,d tokens)%n", name, elapsed / 1_000_000.0 / repeat, tokens);
+    }
+}
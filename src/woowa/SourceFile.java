@@ -0,0 +1,111 @@
+package woowa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 스크립트 파일을 메모리 매핑해서 UTF-8 로 읽는다.
+ * <p>
+ * 파일 바이트는 페이지 캐시를 그대로 쓰고, 스캐너가 읽을 char 배열로 한 번만 복사한다. 플랫폼 기본 문자셋과 상관없이 항상
+ * UTF-8 로 읽으므로 '변수', '함수' 같은 한글 키워드가 깨지지 않는다.
+ */
+final class SourceFile {
+
+    private static final char REPLACEMENT = '\ufffd';
+
+    private SourceFile() {
+    }
+
+    static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("파일이 너무 큽니다: " + path);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    static CharBuffer read(Path path) throws IOException {
+        return decode(map(path));
+    }
+
+    /**
+     * UTF-8 바이트를 char 로 바꾼다. 앞의 BOM 은 건너뛰고, 잘못된 바이트는 U+FFFD 로 바꾼다.
+     * <p>
+     * 대부분의 소스는 ASCII 이므로 ASCII 는 바로 복사하고 여러 바이트 문자만 따로 조합한다.
+     */
+    static CharBuffer decode(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        int position = bytes.position();
+        int end = position + length;
+        // UTF-8 은 바이트 하나가 char 하나보다 많아질 수 없다.
+        char[] chars = new char[length];
+        int count = 0;
+
+        if (length >= 3 && (bytes.get(position) & 0xff) == 0xef
+            && (bytes.get(position + 1) & 0xff) == 0xbb && (bytes.get(position + 2) & 0xff) == 0xbf) {
+            position += 3;
+        }
+
+        while (position < end) {
+            int b = bytes.get(position);
+            if (b >= 0) {
+                chars[count++] = (char) b;
+                position++;
+                continue;
+            }
+
+            b &= 0xff;
+            int size;
+            int codePoint;
+            int min;
+            if ((b & 0xe0) == 0xc0) {
+                size = 2;
+                codePoint = b & 0x1f;
+                min = 0x80;
+            } else if ((b & 0xf0) == 0xe0) {
+                size = 3;
+                codePoint = b & 0x0f;
+                min = 0x800;
+            } else if ((b & 0xf8) == 0xf0) {
+                size = 4;
+                codePoint = b & 0x07;
+                min = 0x10000;
+            } else {
+                chars[count++] = REPLACEMENT;
+                position++;
+                continue;
+            }
+
+            // 이어지는 바이트가 모자라거나 잘못되면 첫 바이트만 대체 문자로 바꾸고 다음 바이트부터 다시 읽는다.
+            int i = 1;
+            for (; i < size && position + i < end; i++) {
+                int next = bytes.get(position + i) & 0xff;
+                if ((next & 0xc0) != 0x80) {
+                    break;
+                }
+                codePoint = (codePoint << 6) | (next & 0x3f);
+            }
+            if (i < size || codePoint < min || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+                chars[count++] = REPLACEMENT;
+                position++;
+                continue;
+            }
+
+            if (size == 4) {
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+            } else {
+                chars[count++] = (char) codePoint;
+            }
+            position += size;
+        }
+        return CharBuffer.wrap(chars, 0, count);
+    }
+}
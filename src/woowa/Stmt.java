@@ -2,11 +2,22 @@ package woowa;
 
 import java.util.List;
 
-abstract class Stmt {
+abstract sealed class Stmt permits
+    Stmt.Block,
+    Stmt.Class,
+    Stmt.Expression,
+    Stmt.For,
+    Stmt.Function,
+    Stmt.If,
+    Stmt.Print,
+    Stmt.Return,
+    Stmt.Var,
+    Stmt.While {
   interface Visitor<R> {
     R visitBlockStmt(Block stmt);
     R visitClassStmt(Class stmt);
     R visitExpressionStmt(Expression stmt);
+    R visitForStmt(For stmt);
     R visitFunctionStmt(Function stmt);
     R visitIfStmt(If stmt);
     R visitPrintStmt(Print stmt);
@@ -15,10 +26,29 @@ abstract class Stmt {
     R visitWhileStmt(While stmt);
   }
 
+  // 노드 종류. switch (stmt.kind) 로 분기할 때 쓴다.
+  static final int BLOCK = 0;
+  static final int CLASS = 1;
+  static final int EXPRESSION = 2;
+  static final int FOR = 3;
+  static final int FUNCTION = 4;
+  static final int IF = 5;
+  static final int PRINT = 6;
+  static final int RETURN = 7;
+  static final int VAR = 8;
+  static final int WHILE = 9;
+
+  final int kind;
+
+  Stmt(int kind) {
+    this.kind = kind;
+  }
+
   // Nested Stmt classes here...
 //> stmt-block
-  static class Block extends Stmt {
+  static final class Block extends Stmt {
     Block(List<Stmt> statements) {
+      super(BLOCK);
       this.statements = statements;
     }
 
@@ -31,10 +61,11 @@ abstract class Stmt {
   }
 //< stmt-block
 //> stmt-class
-  static class Class extends Stmt {
+  static final class Class extends Stmt {
     Class(Token name,
           Expr.Variable superclass,
           List<Stmt.Function> methods) {
+      super(CLASS);
       this.name = name;
       this.superclass = superclass;
       this.methods = methods;
@@ -48,11 +79,17 @@ abstract class Stmt {
     final Token name;
     final Expr.Variable superclass;
     final List<Stmt.Function> methods;
+
+    // 이후 단계가 채운다.
+    int slot = -1;
+    boolean cell;
+    int superSlot;
   }
 //< stmt-class
 //> stmt-expression
-  static class Expression extends Stmt {
+  static final class Expression extends Stmt {
     Expression(Expr expression) {
+      super(EXPRESSION);
       this.expression = expression;
     }
 
@@ -64,9 +101,31 @@ abstract class Stmt {
     final Expr expression;
   }
 //< stmt-expression
+//> stmt-for
+  static final class For extends Stmt {
+    For(Stmt initializer, Expr condition, Expr increment, Stmt body) {
+      super(FOR);
+      this.initializer = initializer;
+      this.condition = condition;
+      this.increment = increment;
+      this.body = body;
+    }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+      return visitor.visitForStmt(this);
+    }
+
+    final Stmt initializer;
+    final Expr condition;
+    final Expr increment;
+    final Stmt body;
+  }
+//< stmt-for
 //> stmt-function
-  static class Function extends Stmt {
+  static final class Function extends Stmt {
     Function(Token name, List<Token> params, List<Stmt> body) {
+      super(FUNCTION);
       this.name = name;
       this.params = params;
       this.body = body;
@@ -80,11 +139,22 @@ abstract class Stmt {
     final Token name;
     final List<Token> params;
     final List<Stmt> body;
+
+    // 이후 단계가 채운다.
+    int slot = -1;
+    boolean cell;
+    int frameSize;
+    boolean[] cellParams;
+    int[] upvalues;
+    int hotness;
+    Jit.Entry compiled;
+    TokenBuffer lazyBody;
   }
 //< stmt-function
 //> stmt-if
-  static class If extends Stmt {
+  static final class If extends Stmt {
     If(Expr condition, Stmt thenBranch, Stmt elseBranch) {
+      super(IF);
       this.condition = condition;
       this.thenBranch = thenBranch;
       this.elseBranch = elseBranch;
@@ -101,8 +171,9 @@ abstract class Stmt {
   }
 //< stmt-if
 //> stmt-print
-  static class Print extends Stmt {
+  static final class Print extends Stmt {
     Print(Expr expression) {
+      super(PRINT);
       this.expression = expression;
     }
 
@@ -115,8 +186,9 @@ abstract class Stmt {
   }
 //< stmt-print
 //> stmt-return
-  static class Return extends Stmt {
+  static final class Return extends Stmt {
     Return(Token keyword, Expr value) {
+      super(RETURN);
       this.keyword = keyword;
       this.value = value;
     }
@@ -131,8 +203,9 @@ abstract class Stmt {
   }
 //< stmt-return
 //> stmt-var
-  static class Var extends Stmt {
+  static final class Var extends Stmt {
     Var(Token name, Expr initializer) {
+      super(VAR);
       this.name = name;
       this.initializer = initializer;
     }
@@ -144,11 +217,16 @@ abstract class Stmt {
 
     final Token name;
     final Expr initializer;
+
+    // 이후 단계가 채운다.
+    int slot = -1;
+    boolean cell;
   }
 //< stmt-var
 //> stmt-while
-  static class While extends Stmt {
+  static final class While extends Stmt {
     While(Expr condition, Stmt body) {
+      super(WHILE);
       this.condition = condition;
       this.body = body;
     }
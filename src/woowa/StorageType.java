@@ -0,0 +1,13 @@
+package woowa;
+
+/**
+ * 변수가 저장된 위치
+ * <p>
+ * Resolver 가 변수마다 정해 주고, 인터프리터는 이에 따라 값을 읽고 쓴다.
+ */
+enum StorageType {
+    GLOBAL,  // 전역 변수 칸
+    LOCAL,   // 현재 함수 프레임의 슬롯
+    CELL,    // 현재 함수 프레임의 슬롯에 든 Cell (안쪽 함수가 캡처한 변수)
+    UPVALUE  // 현재 함수가 캡처한 바깥 함수의 Cell
+}
@@ -0,0 +1,133 @@
+package woowa;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 토큰을 종류, 시작 위치, 길이, 줄 번호 배열에 나눠 담는 버퍼
+ * <p>
+ * 토큰마다 객체와 렉심 문자열을 만들지 않고 소스 문자 배열의 위치만 기록한다. 파서는 종류만 보며 진행하다가 AST 에 들어갈
+ * 토큰만 {@link #token} 으로 만든다. 마지막 토큰은 항상 EOF 다.
+ */
+final class TokenBuffer {
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private char[] text; // 렉심이 들어 있는 문자. 스캐너의 소스 배열을 그대로 쓰거나 토큰마다 복사해 둔다.
+    private int textLength = 0; // 복사해 둔 문자 수
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int count = 0;
+    private NameTable names = new NameTable(); // 식별자 이름은 같은 문자열을 쓴다.
+
+    // 스캐너의 소스 배열을 그대로 쓴다.
+    TokenBuffer(char[] text, int capacity) {
+        this.text = text;
+        this.textLength = -1;
+        allocate(Math.max(capacity, INITIAL_CAPACITY));
+    }
+
+    // 토큰의 렉심을 직접 복사해 담는다.
+    TokenBuffer() {
+        this.text = new char[INITIAL_CAPACITY];
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        types = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+    }
+
+    void add(TokenType type, int start, int length, int line) {
+        if (count == types.length) {
+            int capacity = count * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        types[count] = (byte) type.ordinal();
+        starts[count] = start;
+        lengths[count] = length;
+        lines[count] = line;
+        count++;
+    }
+
+    // 렉심을 복사해서 토큰을 추가한다. TokenBuffer() 로 만든 버퍼에서만 쓴다.
+    void add(Token token) {
+        String lexeme = token.lexeme;
+        if (textLength + lexeme.length() > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + lexeme.length()));
+        }
+        lexeme.getChars(0, lexeme.length(), text, textLength);
+        add(token.type, textLength, lexeme.length(), token.line);
+        textLength += lexeme.length();
+    }
+
+    int size() {
+        return count;
+    }
+
+    // 끝을 넘어가면 EOF
+    TokenType type(int index) {
+        return TYPES[types[Math.min(index, count - 1)]];
+    }
+
+    int line(int index) {
+        return lines[Math.min(index, count - 1)];
+    }
+
+    Token token(int index) {
+        index = Math.min(index, count - 1);
+        TokenType type = TYPES[types[index]];
+        int start = starts[index];
+        int length = lengths[index];
+
+        Object literal = null;
+        if (type == TokenType.STRING) {
+            literal = new String(text, start + 1, length - 2);
+        } else if (type == TokenType.NUMBER) {
+            literal = Double.parseDouble(new String(text, start, length));
+        }
+        String lexeme = type == TokenType.IDENTIFIER
+            ? names.intern(text, start, length) : new String(text, start, length);
+        return new Token(type, lexeme, literal, lines[index]);
+    }
+
+    // 같은 소스 배열을 가리키는 버퍼들을 차례로 이어 붙인다. EOF 는 붙이지 않는다.
+    static TokenBuffer concat(char[] text, List<TokenBuffer> parts) {
+        int total = 1; // 나중에 붙일 EOF 자리
+        for (TokenBuffer part : parts) {
+            total += part.count;
+        }
+
+        TokenBuffer result = new TokenBuffer(text, total);
+        for (TokenBuffer part : parts) {
+            System.arraycopy(part.types, 0, result.types, result.count, part.count);
+            System.arraycopy(part.starts, 0, result.starts, result.count, part.count);
+            System.arraycopy(part.lengths, 0, result.lengths, result.count, part.count);
+            System.arraycopy(part.lines, 0, result.lines, result.count, part.count);
+            result.count += part.count;
+        }
+        return result;
+    }
+
+    // [from, to) 의 토큰 뒤에 EOF 를 붙인 새 버퍼. 렉심 문자는 공유한다.
+    TokenBuffer slice(int from, int to) {
+        TokenBuffer slice = new TokenBuffer(text, to - from + 1);
+        slice.textLength = textLength;
+        slice.names = names;
+        System.arraycopy(types, from, slice.types, 0, to - from);
+        System.arraycopy(starts, from, slice.starts, 0, to - from);
+        System.arraycopy(lengths, from, slice.lengths, 0, to - from);
+        System.arraycopy(lines, from, slice.lines, 0, to - from);
+        slice.count = to - from;
+        slice.add(TokenType.EOF, 0, 0, line(to - 1));
+        return slice;
+    }
+}
@@ -0,0 +1,685 @@
+package woowa;
+
+import function.NativeFunctionRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 스택 기반 가상 머신
+ * <p>
+ * {@link Compiler} 가 만든 바이트코드를 하나의 디스패치 루프에서 실행한다. 값은 하나의 값 스택에 두고, 함수 호출마다 스택 위의
+ * 구간을 프레임으로 사용한다.
+ * <p>
+ * 값을 박싱된 채로 다루므로 숫자 코드에서는 JIT 을 쓰는 tree 엔진보다 느리다. 전역 변수는 처음 쓸 때 찾은 칸을 기억해 둔다.
+ */
+final class VM {
+
+    private static final int FRAMES_MAX = 1 << 16;
+
+    // 호출 하나의 실행 상태
+    private static final class CallFrame {
+
+        VMClosure closure;
+        int ip;
+        int base; // 0번 슬롯의 스택 위치
+    }
+
+    final Environment globals = new Environment();
+
+    private Object[] stack = new Object[256];
+    private int sp = 0;
+    private CallFrame[] frames = new CallFrame[64];
+    private int frameCount = 0;
+    private VMUpvalue openUpvalues = null;
+
+    VM() {
+        NativeFunctionRegistry registry = new NativeFunctionRegistry();
+        registry.registerAll(globals);
+    }
+
+    void interpret(VMFunction script) {
+        try {
+            VMClosure closure = new VMClosure(script);
+            ensureStack(1);
+            stack[sp++] = closure;
+            callClosure(closure, 0, null);
+            run();
+        } catch (RuntimeError error) {
+            resetStack();
+            Woowa.runtimeError(error);
+        }
+    }
+
+    // 스택과 스택 포인터는 지역 변수로 두고, 다른 메서드를 부를 때만 필드와 맞춘다.
+    private void run() {
+        Object[] stack = this.stack;
+        int sp = this.sp;
+        CallFrame frame = frames[frameCount - 1];
+        byte[] code = frame.closure.function.chunk.code;
+        Object[] constants = frame.closure.function.chunk.constants;
+        Environment.Global[] cells = frame.closure.function.chunk.globals;
+        int ip = frame.ip;
+        int base = frame.base;
+
+        for (; ; ) {
+            switch (code[ip++]) {
+                case OpCode.CONSTANT:
+                    stack[sp++] = constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    break;
+                case OpCode.NIL:
+                    stack[sp++] = null;
+                    break;
+                case OpCode.TRUE:
+                    stack[sp++] = Boolean.TRUE;
+                    break;
+                case OpCode.FALSE:
+                    stack[sp++] = Boolean.FALSE;
+                    break;
+                case OpCode.POP:
+                    stack[--sp] = null;
+                    break;
+
+                case OpCode.GET_LOCAL: {
+                    int slot = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    stack[sp++] = stack[base + slot];
+                    break;
+                }
+                case OpCode.SET_LOCAL: {
+                    int slot = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    stack[base + slot] = stack[sp - 1];
+                    break;
+                }
+                case OpCode.GET_GLOBAL: {
+                    int index = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    Environment.Global cell = cells[index];
+                    if (cell == null) {
+                        cell = global(cells, constants, index);
+                    }
+                    stack[sp++] = cell.defined ? cell.value : cell.get((Token) constants[index]);
+                    break;
+                }
+                case OpCode.DEFINE_GLOBAL: {
+                    int index = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    Environment.Global cell = cells[index];
+                    if (cell == null) {
+                        cell = global(cells, constants, index);
+                    }
+                    cell.define(stack[--sp]);
+                    stack[sp] = null;
+                    break;
+                }
+                case OpCode.SET_GLOBAL: {
+                    int index = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    Environment.Global cell = cells[index];
+                    if (cell == null) {
+                        cell = global(cells, constants, index);
+                    }
+                    cell.assign((Token) constants[index], stack[sp - 1]);
+                    break;
+                }
+                case OpCode.GET_UPVALUE: {
+                    VMUpvalue upvalue = frame.closure.upvalues[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    stack[sp++] = upvalue.open ? stack[upvalue.slot] : upvalue.closed;
+                    break;
+                }
+                case OpCode.SET_UPVALUE: {
+                    VMUpvalue upvalue = frame.closure.upvalues[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    if (upvalue.open) {
+                        stack[upvalue.slot] = stack[sp - 1];
+                    } else {
+                        upvalue.closed = stack[sp - 1];
+                    }
+                    break;
+                }
+                case OpCode.GET_PROPERTY: {
+                    Token name = (Token) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    Object object = stack[sp - 1];
+                    if (!(object instanceof VMInstance)) {
+                        throw new RuntimeError(name, "오직 인스턴스만이 속성을 가집니다.");
+                    }
+                    stack[sp - 1] = getProperty((VMInstance) object, name);
+                    break;
+                }
+                case OpCode.SET_PROPERTY: {
+                    Token name = (Token) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    Object object = stack[sp - 2];
+                    if (!(object instanceof VMInstance)) {
+                        throw new RuntimeError(name, "오직 인스턴스만이 필드를 가집니다.");
+                    }
+                    Object value = stack[--sp];
+                    stack[sp] = null;
+                    ((VMInstance) object).fields.put(name.lexeme, value);
+                    stack[sp - 1] = value;
+                    break;
+                }
+                case OpCode.GET_SUPER: {
+                    Token name = (Token) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    VMClass superclass = (VMClass) stack[--sp];
+                    stack[sp] = null;
+                    VMClosure method = superclass.methods.get(name.lexeme);
+                    if (method == null) {
+                        throw new RuntimeError(name, "정의되지 않은 속성 '" + name.lexeme + "'.");
+                    }
+                    stack[sp - 1] = new VMBoundMethod(stack[sp - 1], method);
+                    break;
+                }
+
+                case OpCode.EQUAL: {
+                    Object b = stack[--sp];
+                    stack[sp] = null;
+                    stack[sp - 1] = isEqual(stack[sp - 1], b);
+                    break;
+                }
+                case OpCode.NOT_EQUAL: {
+                    Object b = stack[--sp];
+                    stack[sp] = null;
+                    stack[sp - 1] = !isEqual(stack[sp - 1], b);
+                    break;
+                }
+                case OpCode.GREATER: {
+                    Object a = stack[sp - 2];
+                    Object b = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) {
+                        throw error(frame, ip, "피연산자들은 숫자여야 합니다.");
+                    }
+                    stack[--sp] = null;
+                    stack[sp - 1] = (double) a > (double) b;
+                    break;
+                }
+                case OpCode.GREATER_EQUAL: {
+                    Object a = stack[sp - 2];
+                    Object b = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) {
+                        throw error(frame, ip, "피연산자들은 숫자여야 합니다.");
+                    }
+                    stack[--sp] = null;
+                    stack[sp - 1] = (double) a >= (double) b;
+                    break;
+                }
+                case OpCode.LESS: {
+                    Object a = stack[sp - 2];
+                    Object b = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) {
+                        throw error(frame, ip, "피연산자들은 숫자여야 합니다.");
+                    }
+                    stack[--sp] = null;
+                    stack[sp - 1] = (double) a < (double) b;
+                    break;
+                }
+                case OpCode.LESS_EQUAL: {
+                    Object a = stack[sp - 2];
+                    Object b = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) {
+                        throw error(frame, ip, "피연산자들은 숫자여야 합니다.");
+                    }
+                    stack[--sp] = null;
+                    stack[sp - 1] = (double) a <= (double) b;
+                    break;
+                }
+                case OpCode.ADD: {
+                    Object a = stack[sp - 2];
+                    Object b = stack[sp - 1];
+                    if (a instanceof Double && b instanceof Double) {
+                        stack[sp - 2] = Numbers.box((double) a + (double) b);
+                    } else if (a instanceof String || b instanceof String) {
+                        stack[sp - 2] = stringify(a) + stringify(b);
+                    } else {
+                        throw error(frame, ip,
+                            "피연산자는 두개의 숫자거나 문자열 연결을 위한 하나 이상의 문자열이어야 합니다.");
+                    }
+                    stack[--sp] = null;
+                    break;
+                }
+                case OpCode.SUBTRACT: {
+                    Object a = stack[sp - 2];
+                    Object b = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) {
+                        throw error(frame, ip, "피연산자들은 숫자여야 합니다.");
+                    }
+                    stack[--sp] = null;
+                    stack[sp - 1] = Numbers.box((double) a - (double) b);
+                    break;
+                }
+                case OpCode.MULTIPLY: {
+                    Object a = stack[sp - 2];
+                    Object b = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) {
+                        throw error(frame, ip, "피연산자들은 숫자여야 합니다.");
+                    }
+                    stack[--sp] = null;
+                    stack[sp - 1] = Numbers.box((double) a * (double) b);
+                    break;
+                }
+                case OpCode.DIVIDE: {
+                    Object a = stack[sp - 2];
+                    Object b = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) {
+                        throw error(frame, ip, "피연산자들은 숫자여야 합니다.");
+                    }
+                    stack[--sp] = null;
+                    stack[sp - 1] = Numbers.box((double) a / (double) b);
+                    break;
+                }
+                case OpCode.NOT:
+                    stack[sp - 1] = isFalsey(stack[sp - 1]);
+                    break;
+                case OpCode.NEGATE: {
+                    Object value = stack[sp - 1];
+                    if (!(value instanceof Double)) {
+                        throw error(frame, ip, "피연산자는 숫자여야 합니다.");
+                    }
+                    stack[sp - 1] = Numbers.box(-(double) value);
+                    break;
+                }
+
+                case OpCode.PRINT:
+                    System.out.println(stringify(stack[--sp]));
+                    stack[sp] = null;
+                    break;
+                case OpCode.JUMP:
+                    ip += ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    break;
+                case OpCode.JUMP_IF_FALSE:
+                    if (isFalsey(stack[sp - 1])) {
+                        ip += ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    }
+                    ip += 2;
+                    break;
+                case OpCode.LOOP:
+                    ip -= ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    break;
+
+                case OpCode.CALL: {
+                    int argCount = code[ip++] & 0xff;
+                    frame.ip = ip;
+                    this.sp = sp;
+                    callValue(stack[sp - argCount - 1], argCount, frame);
+                    stack = this.stack;
+                    sp = this.sp;
+
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.chunk.code;
+                    constants = frame.closure.function.chunk.constants;
+                    cells = frame.closure.function.chunk.globals;
+                    ip = frame.ip;
+                    base = frame.base;
+                    break;
+                }
+                case OpCode.INVOKE: {
+                    Token name = (Token) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    int argCount = code[ip + 2] & 0xff;
+                    ip += 3;
+                    frame.ip = ip;
+                    this.sp = sp;
+                    invoke(name, argCount, frame);
+                    stack = this.stack;
+                    sp = this.sp;
+
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.chunk.code;
+                    constants = frame.closure.function.chunk.constants;
+                    cells = frame.closure.function.chunk.globals;
+                    ip = frame.ip;
+                    base = frame.base;
+                    break;
+                }
+                case OpCode.CLOSURE: {
+                    VMFunction function = (VMFunction) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    VMClosure closure = new VMClosure(function);
+                    for (int i = 0; i < function.upvalueCount; i++) {
+                        boolean isLocal = code[ip] != 0;
+                        int index = ((code[ip + 1] & 0xff) << 8) | (code[ip + 2] & 0xff);
+                        ip += 3;
+                        if (isLocal) {
+                            closure.upvalues[i] = captureUpvalue(base + index);
+                        } else {
+                            closure.upvalues[i] = frame.closure.upvalues[index];
+                        }
+                    }
+                    stack[sp++] = closure;
+                    break;
+                }
+                case OpCode.CLOSE_UPVALUE:
+                    closeUpvalues(sp - 1);
+                    stack[--sp] = null;
+                    break;
+                case OpCode.RETURN: {
+                    Object result = stack[--sp];
+                    closeUpvalues(base);
+                    frameCount--;
+                    if (frameCount == 0) {
+                        this.sp = sp;
+                        resetStack();
+                        return;
+                    }
+
+                    Arrays.fill(stack, base, sp, null);
+                    sp = base;
+                    stack[sp++] = result;
+
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.chunk.code;
+                    constants = frame.closure.function.chunk.constants;
+                    cells = frame.closure.function.chunk.globals;
+                    ip = frame.ip;
+                    base = frame.base;
+                    break;
+                }
+                case OpCode.CLASS: {
+                    String name = (String) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    int methodCount = ((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff);
+                    boolean hasSuperclass = code[ip + 4] != 0;
+                    ip += 5;
+
+                    VMClass klass = new VMClass(name);
+                    if (hasSuperclass) {
+                        VMClass superclass = (VMClass) stack[sp - methodCount - 1];
+                        klass.methods.putAll(superclass.methods);
+                    }
+                    for (int i = sp - methodCount; i < sp; i++) {
+                        VMClosure method = (VMClosure) stack[i];
+                        klass.methods.put(method.function.name, method);
+                        stack[i] = null;
+                    }
+                    klass.initializer = klass.methods.get("init");
+
+                    sp -= methodCount;
+                    stack[sp++] = klass;
+                    break;
+                }
+                case OpCode.CHECK_SUPERCLASS:
+                    if (!(stack[sp - 1] instanceof VMClass)) {
+                        throw error(frame, ip, "슈퍼클래스는 클래스여야 한다.");
+                    }
+                    break;
+
+                case OpCode.ARRAY: {
+                    int count = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    List<Object> elements = new ArrayList<>(count);
+                    for (int i = sp - count; i < sp; i++) {
+                        elements.add(stack[i]);
+                        stack[i] = null;
+                    }
+                    sp -= count;
+                    stack[sp++] = new WoowaArray(elements);
+                    break;
+                }
+                case OpCode.GET_INDEX: {
+                    Object object = stack[sp - 2];
+                    Object index = stack[sp - 1];
+                    checkArray(object, "인덱스 접근은 배열에만 가능합니다.");
+                    checkIndex(index);
+                    stack[--sp] = null;
+                    stack[sp - 1] = ((WoowaArray) object).get(((Double) index).intValue());
+                    break;
+                }
+                case OpCode.SET_INDEX: {
+                    Object object = stack[sp - 3];
+                    Object index = stack[sp - 2];
+                    Object value = stack[sp - 1];
+                    checkArray(object, "인덱스 할당은 배열에만 가능합니다.");
+                    checkIndex(index);
+                    ((WoowaArray) object).set(((Double) index).intValue(), value);
+                    stack[--sp] = null;
+                    stack[--sp] = null;
+                    stack[sp - 1] = value;
+                    break;
+                }
+
+                case OpCode.CHECK_FIELD_TARGET:
+                    if (!(stack[sp - 1] instanceof VMInstance)) {
+                        throw error(frame, ip, "오직 인스턴스만이 필드를 가집니다.");
+                    }
+                    break;
+                case OpCode.CHECK_ARRAY: {
+                    boolean isAssign = code[ip++] != 0;
+                    checkArray(stack[sp - 1],
+                        isAssign ? "인덱스 할당은 배열에만 가능합니다." : "인덱스 접근은 배열에만 가능합니다.");
+                    break;
+                }
+                case OpCode.CHECK_INDEX:
+                    checkIndex(stack[sp - 1]);
+                    break;
+
+                default:
+                    throw new IllegalStateException("알 수 없는 명령어 " + code[ip - 1]);
+            }
+        }
+    }
+
+    private void callValue(Object callee, int argCount, CallFrame caller) {
+        if (callee instanceof VMClosure) {
+            callClosure((VMClosure) callee, argCount, caller);
+            return;
+        }
+
+        if (callee instanceof VMBoundMethod) {
+            VMBoundMethod bound = (VMBoundMethod) callee;
+            stack[sp - argCount - 1] = bound.receiver;
+            callClosure(bound.method, argCount, caller);
+            return;
+        }
+
+        if (callee instanceof VMClass) {
+            VMClass klass = (VMClass) callee;
+            stack[sp - argCount - 1] = new VMInstance(klass);
+            if (klass.initializer != null) {
+                callClosure(klass.initializer, argCount, caller);
+            } else if (argCount != 0) {
+                throw arityError(caller, 0, argCount);
+            }
+            return;
+        }
+
+        if (callee instanceof WoowaCallable) {
+            WoowaCallable function = (WoowaCallable) callee;
+            if (argCount != function.arity()) {
+                throw arityError(caller, function.arity(), argCount);
+            }
+
+            List<Object> arguments = new ArrayList<>(argCount);
+            for (int i = sp - argCount; i < sp; i++) {
+                arguments.add(stack[i]);
+            }
+            // 내장 함수는 인터프리터 상태를 사용하지 않는다.
+            Object result = function.call(null, arguments);
+
+            Arrays.fill(stack, sp - argCount - 1, sp, null);
+            sp -= argCount + 1;
+            stack[sp++] = result;
+            return;
+        }
+
+        throw error(caller, caller.ip, "함수와 객체만 호출할 수 있습니다.");
+    }
+
+    private void invoke(Token name, int argCount, CallFrame caller) {
+        Object receiver = stack[sp - argCount - 1];
+        if (!(receiver instanceof VMInstance)) {
+            throw new RuntimeError(name, "오직 인스턴스만이 속성을 가집니다.");
+        }
+
+        VMInstance instance = (VMInstance) receiver;
+        if (instance.fields.containsKey(name.lexeme)) {
+            Object value = instance.fields.get(name.lexeme);
+            stack[sp - argCount - 1] = value;
+            callValue(value, argCount, caller);
+            return;
+        }
+
+        VMClosure method = instance.klass.methods.get(name.lexeme);
+        if (method == null) {
+            throw new RuntimeError(name, name.lexeme + "는 정의되지 않은 속성입니다.");
+        }
+        callClosure(method, argCount, caller);
+    }
+
+    private void callClosure(VMClosure closure, int argCount, CallFrame caller) {
+        VMFunction function = closure.function;
+        if (argCount != function.arity) {
+            throw arityError(caller, function.arity, argCount);
+        }
+
+        if (frameCount == frames.length) {
+            if (frameCount == FRAMES_MAX) {
+                throw error(caller, caller.ip, "스택 오버플로우.");
+            }
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        }
+
+        int base = sp - argCount - 1;
+        ensureStack(base + function.maxStack);
+
+        CallFrame frame = frames[frameCount];
+        if (frame == null) {
+            frame = new CallFrame();
+            frames[frameCount] = frame;
+        }
+        frameCount++;
+
+        frame.closure = closure;
+        frame.ip = 0;
+        frame.base = base;
+    }
+
+    // 이름 상수에 해당하는 전역 변수 칸을 찾아 기억한다.
+    private Environment.Global global(Environment.Global[] cells, Object[] constants, int index) {
+        Environment.Global cell = globals.global(((Token) constants[index]).lexeme);
+        cells[index] = cell;
+        return cell;
+    }
+
+    private Object getProperty(VMInstance instance, Token name) {
+        if (instance.fields.containsKey(name.lexeme)) {
+            return instance.fields.get(name.lexeme);
+        }
+
+        VMClosure method = instance.klass.methods.get(name.lexeme);
+        if (method != null) {
+            return new VMBoundMethod(instance, method);
+        }
+        throw new RuntimeError(name, name.lexeme + "는 정의되지 않은 속성입니다.");
+    }
+
+    // 같은 변수를 캡처하는 클로저들은 하나의 업밸류를 공유한다.
+    private VMUpvalue captureUpvalue(int slot) {
+        VMUpvalue previous = null;
+        VMUpvalue upvalue = openUpvalues;
+        while (upvalue != null && upvalue.slot > slot) {
+            previous = upvalue;
+            upvalue = upvalue.next;
+        }
+
+        if (upvalue != null && upvalue.slot == slot) {
+            return upvalue;
+        }
+
+        VMUpvalue created = new VMUpvalue(slot, upvalue);
+        if (previous == null) {
+            openUpvalues = created;
+        } else {
+            previous.next = created;
+        }
+        return created;
+    }
+
+    // 스코프를 벗어나는 변수들의 값을 업밸류로 옮긴다.
+    private void closeUpvalues(int lastSlot) {
+        while (openUpvalues != null && openUpvalues.slot >= lastSlot) {
+            VMUpvalue upvalue = openUpvalues;
+            upvalue.closed = stack[upvalue.slot];
+            upvalue.open = false;
+            openUpvalues = upvalue.next;
+        }
+    }
+
+    private void ensureStack(int size) {
+        if (size >= stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + 1));
+        }
+    }
+
+    // 런타임 에러로 빠져나오면 sp 가 맞춰져 있지 않으므로 스택 전체를 비운다.
+    private void resetStack() {
+        Arrays.fill(stack, null);
+        sp = 0;
+        frameCount = 0;
+        openUpvalues = null;
+    }
+
+    private void checkArray(Object object, String message) {
+        if (!(object instanceof WoowaArray)) {
+            throw new RuntimeError(new Token(null, "", null, -1), message);
+        }
+    }
+
+    private void checkIndex(Object index) {
+        if (!(index instanceof Double)) {
+            throw new RuntimeError(new Token(null, "", null, -1), "배열 인덱스는 숫자여야 합니다.");
+        }
+    }
+
+    private RuntimeError arityError(CallFrame caller, int arity, int argCount) {
+        return error(caller, caller.ip, arity + "개의 인자가 기대됬으나 " + argCount + "개가 넘어왔습니다.");
+    }
+
+    // 방금 읽은 명령어의 줄 번호로 런타임 에러를 만든다.
+    private RuntimeError error(CallFrame frame, int ip, String message) {
+        int line = frame.closure.function.chunk.lines[ip - 1];
+        return new RuntimeError(new Token(null, "", null, line), message);
+    }
+
+    private boolean isFalsey(Object object) {
+        if (object == null) {
+            return true;
+        }
+        if (object instanceof Boolean) {
+            return !(boolean) object;
+        }
+        return false;
+    }
+
+    private boolean isEqual(Object a, Object b) {
+        if (a == null && b == null) {
+            return true;
+        }
+        if (a == null) {
+            return false;
+        }
+
+        return a.equals(b);
+    }
+
+    private String stringify(Object object) {
+        if (object == null) {
+            return "nil";
+        }
+
+        if (object instanceof Double) {
+            String text = object.toString();
+            // 정수일 경우 ".0" 제거 3.0 -> 3
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+            return text;
+        }
+
+        return object.toString();
+    }
+}
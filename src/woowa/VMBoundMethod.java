@@ -0,0 +1,20 @@
+package woowa;
+
+/**
+ * 인스턴스에 묶인 메서드
+ */
+final class VMBoundMethod {
+
+    final Object receiver;
+    final VMClosure method;
+
+    VMBoundMethod(Object receiver, VMClosure method) {
+        this.receiver = receiver;
+        this.method = method;
+    }
+
+    @Override
+    public String toString() {
+        return method.toString();
+    }
+}
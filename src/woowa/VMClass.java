@@ -0,0 +1,25 @@
+package woowa;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * VM 에서 사용하는 클래스
+ * <p>
+ * 상위 클래스의 메서드는 클래스 생성 시 미리 복사해 두므로 메서드 탐색은 한 번의 조회로 끝난다.
+ */
+final class VMClass {
+
+    final String name;
+    final Map<String, VMClosure> methods = new HashMap<>();
+    VMClosure initializer;
+
+    VMClass(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
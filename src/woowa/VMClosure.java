@@ -0,0 +1,20 @@
+package woowa;
+
+/**
+ * 함수 원형과 캡처한 업밸류의 묶음
+ */
+final class VMClosure {
+
+    final VMFunction function;
+    final VMUpvalue[] upvalues;
+
+    VMClosure(VMFunction function) {
+        this.function = function;
+        this.upvalues = new VMUpvalue[function.upvalueCount];
+    }
+
+    @Override
+    public String toString() {
+        return function.toString();
+    }
+}
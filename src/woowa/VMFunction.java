@@ -0,0 +1,28 @@
+package woowa;
+
+/**
+ * 컴파일된 함수 원형
+ * <p>
+ * 실행 시에는 업밸류와 묶인 {@link VMClosure} 로 감싸서 사용한다.
+ */
+final class VMFunction {
+
+    final String name;
+    final int arity;
+    final Chunk chunk = new Chunk();
+    int upvalueCount = 0;
+    int maxStack = 0; // 프레임이 사용하는 최대 스택 크기 (지역 변수 포함)
+
+    VMFunction(String name, int arity) {
+        this.name = name;
+        this.arity = arity;
+    }
+
+    @Override
+    public String toString() {
+        if (name == null) {
+            return "<script>";
+        }
+        return "<fn " + name + ">";
+    }
+}
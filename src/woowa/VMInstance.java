@@ -0,0 +1,19 @@
+package woowa;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class VMInstance {
+
+    final VMClass klass;
+    final Map<String, Object> fields = new HashMap<>();
+
+    VMInstance(VMClass klass) {
+        this.klass = klass;
+    }
+
+    @Override
+    public String toString() {
+        return klass.name + " instance";
+    }
+}
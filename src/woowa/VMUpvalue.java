@@ -0,0 +1,19 @@
+package woowa;
+
+/**
+ * 클로저가 캡처한 변수
+ * <p>
+ * 변수가 아직 스택에 살아 있으면(open) 스택 슬롯을 가리키고, 스코프를 벗어나면(closed) 값을 직접 들고 있는다.
+ */
+final class VMUpvalue {
+
+    final int slot;
+    boolean open = true;
+    Object closed;
+    VMUpvalue next; // 열린 업밸류 목록 (슬롯 내림차순)
+
+    VMUpvalue(int slot, VMUpvalue next) {
+        this.slot = slot;
+        this.next = next;
+    }
+}
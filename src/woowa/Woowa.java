@@ -3,35 +3,115 @@ package woowa;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * java -d out/production/WoowaLang woowa.Woowa
  * java -cp out/production/WoowaLang woowa.Woowa
+ * java -cp out/production/WoowaLang woowa.Woowa --engine=vm [script]
+ * java -cp out/production/WoowaLang woowa.Woowa --engine=closure [script]
+ * java -cp out/production/WoowaLang woowa.Woowa --engine=arena [script]
+ * java -cp out/production/WoowaLang woowa.Woowa --lazy [script]
+ * java -cp out/production/WoowaLang woowa.Woowa --stream [script]
+ * java -cp out/production/WoowaLang woowa.Woowa -O [script]
  */
 public class Woowa {
-    private static final Interpreter interpreter = new Interpreter();
+    // 엔진은 옵션을 다 읽은 뒤 처음 쓸 때 만든다. 엔진마다 내장 함수를 등록하므로 고르지 않은 엔진은 만들지 않는다.
+    private static Interpreter interpreter;
+    private static VM vm;
+    private static ClosureCompiler closureCompiler;
+    private static ArenaCompiler arenaCompiler;
+    private static Engine engine = Engine.TREE;
+    // 최상위 함수 본문을 처음 호출될 때 파싱한다. tree 엔진에서만 쓸 수 있다.
+    private static boolean lazyParsing = false;
+    // 파일을 읽는 대로 최상위 문장을 하나씩 파싱, 리졸브, 실행한다. tree 엔진에서만 쓸 수 있다.
+    private static boolean streaming = false;
+    // 리졸브가 끝난 AST 를 실행 전에 Optimizer 로 단순하게 만든다.
+    static boolean optimizing = false;
+    // 대화형 실행에서는 한 줄씩 따로 최적화하므로 스크립트 전체를 보지 못한다.
+    private static boolean interactive = false;
     static boolean hadError = false;
     static boolean hadRuntimeError = false;
 
+    // 실행 엔진
+    enum Engine {
+        TREE, // AST 를 직접 순회하는 인터프리터
+        VM, // 바이트코드로 컴파일해서 가상 머신으로 실행. tree 보다 느린 참고 구현이다.
+        CLOSURE, // AST 를 미리 묶어 둔 람다 트리로 컴파일해서 실행
+        ARENA // AST 를 int 배열 하나에 펼쳐 두고 노드 위치로 순회하며 실행
+    }
+
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jWoowa [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+        String script = null;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = parseEngine(arg.substring("--engine=".length()));
+            } else if (arg.equals("--lazy")) {
+                lazyParsing = true;
+            } else if (arg.equals("--stream")) {
+                streaming = true;
+            } else if (arg.equals("-O")) {
+                optimizing = true;
+            } else if (script == null) {
+                script = arg;
+            } else {
+                usage();
+            }
+        }
+        // 다른 엔진은 AST 전체를 한 번에 컴파일하므로 본문을 미룰 수 없다.
+        if (lazyParsing && engine != Engine.TREE) {
+            usage();
+        }
+        // 문장 하나씩 실행하는 일은 tree 엔진만 한다.
+        if (streaming && engine != Engine.TREE) {
+            usage();
+        }
+
+        if (script != null) {
+            runFile(script);
         } else {
             runPrompt();
         }
     }
 
+    private static Engine parseEngine(String name) {
+        switch (name) {
+            case "tree":
+                return Engine.TREE;
+            case "vm":
+                return Engine.VM;
+            case "closure":
+                return Engine.CLOSURE;
+            case "arena":
+                return Engine.ARENA;
+            default:
+                usage();
+                return null;
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: jWoowa [--engine=tree|vm|closure|arena] [--lazy] [--stream] [-O] [script]");
+        System.out.println("  --stream  문장을 읽는 대로 실행한다. 뒤쪽에 구문 에러가 있으면 앞 문장의 출력과 부작용이 이미 일어난 뒤");
+        System.out.println("            65 로 종료하고, 처음 만난 구문 에러만 보고한다. 그 뒤 문장의 에러는 보고하지 않는다.");
+        System.exit(64);
+    }
+
     // 파일 경로를 지정하여 스크립트 파일을 실행
     private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path)); // 1. 파일을 바이트로 읽어옴
-        run(new String(bytes, Charset.defaultCharset())); // 2, 문자열로 변환한 후 파일 실행
+        if (streaming) {
+            runStream(Paths.get(path));
+        } else {
+            runWhole(Paths.get(path));
+        }
 
         if (hadError) {
             System.exit(65);
@@ -42,8 +122,55 @@ public class Woowa {
         }
     }
 
+    private static void runWhole(Path path) throws IOException {
+        ByteBuffer bytes = SourceFile.map(path); // 1. 파일을 메모리 매핑
+        // 2. 캐시된 AST 가 있으면 그대로, 없으면 UTF-8 로 읽어 리졸브까지 마친 뒤 실행
+        // 지연 파싱한 AST 는 본문이 비어 있으므로 캐시하지 않는다.
+        Program program = isLazy(engine)
+            ? resolve(new Scanner(SourceFile.decode(bytes)), true)
+            : AstCache.load(path, bytes);
+        if (program != null) {
+            run(program, engine);
+        }
+    }
+
+    /**
+     * 스캐너가 Reader 에서 읽는 대로 파서가 토큰을 꺼내고, 최상위 문장이 하나 완성될 때마다 리졸브해서 실행한다.
+     * <p>
+     * 소스 전체나 토큰 리스트를 메모리에 두지 않는다. 대신 뒤쪽의 구문 에러는 앞쪽 문장이 실행되어 출력과 부작용이 이미 일어난
+     * 뒤에 보고된다. 구문 에러가 있는 최상위 문장에서 멈추므로 그 뒤 문장의 에러는 보고되지 않는다.
+     */
+    private static void runStream(Path path) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+            Parser parser = new Parser(new Scanner(reader), lazyParsing);
+            Resolver resolver = new Resolver();
+            while (parser.hasNext()) {
+                List<Stmt> statement = Collections.singletonList(parser.next());
+                if (hadError) {
+                    return;
+                }
+
+                resolver.resolve(statement);
+                if (hadError) {
+                    return;
+                }
+                int slots = resolver.topLevelSlots();
+                if (optimizing) {
+                    statement = new ArrayList<>(statement);
+                    slots = new Optimizer(false).optimize(statement, slots);
+                }
+
+                interpreter().interpret(statement, slots);
+                if (hadRuntimeError) {
+                    return;
+                }
+            }
+        }
+    }
+
     // 대화형으로 실행
     private static void runPrompt() throws IOException {
+        interactive = true;
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
 
@@ -59,23 +186,132 @@ public class Woowa {
     }
 
     private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
+        run(source, engine);
+    }
+
+    static void run(String source, Engine engine) {
+        Program program = resolve(source, isLazy(engine));
+        if (program != null) {
+            run(program, engine);
+        }
+    }
+
+    // 엔진을 직접 넘겨받는 호출에서도 tree 엔진일 때만 지연 파싱한다.
+    private static boolean isLazy(Engine engine) {
+        return lazyParsing && engine == Engine.TREE;
+    }
+
+    // 소스를 스캔, 파싱, 리졸브한다. 정적 에러가 있으면 null
+    static Program resolve(String source) {
+        return resolve(source, false);
+    }
+
+    // lazy 면 최상위 함수의 본문은 처음 호출될 때 파싱, 리졸브한다.
+    static Program resolve(String source, boolean lazy) {
+        return resolve(new Scanner(source), lazy);
+    }
+
+    static Program resolve(Scanner scanner, boolean lazy) {
+        TokenBuffer tokens = scanner.scanBuffer();
 
-        Parser parser = new Parser(tokens);
+        Parser parser = new Parser(tokens, lazy);
         List<Stmt> statements = parser.parse();
 
         // 구문 에러시 정지
-        if (hadError) return;
+        if (hadError) return null;
 
-        Resolver resolver = new Resolver(interpreter);
+        Resolver resolver = new Resolver();
         resolver.resolve(statements);
 
         if (hadError) {
-            return;
+            return null;
+        }
+        return new Program(statements, resolver.topLevelSlots());
+    }
+
+    static void run(Program program, Engine engine) {
+        int slots = program.topLevelSlots;
+        if (optimizing) {
+            slots = new Optimizer(!interactive).optimize(program.statements, slots);
+        }
+
+        if (engine == Engine.VM) {
+            VMFunction script = new Compiler().compile(program.statements);
+            if (hadError) {
+                return;
+            }
+            vm().interpret(script);
+        } else if (engine == Engine.CLOSURE) {
+            closureCompiler().interpret(program.statements, slots);
+        } else if (engine == Engine.ARENA) {
+            Arena arena = arenaCompiler().compile(program.statements);
+            new ArenaInterpreter(arena).interpret(slots);
+        } else {
+            interpreter().interpret(program.statements, slots);
+        }
+    }
+
+    private static Interpreter interpreter() {
+        if (interpreter == null) {
+            interpreter = new Interpreter();
+        }
+        return interpreter;
+    }
+
+    private static VM vm() {
+        if (vm == null) {
+            vm = new VM();
+        }
+        return vm;
+    }
+
+    private static ClosureCompiler closureCompiler() {
+        if (closureCompiler == null) {
+            closureCompiler = new ClosureCompiler();
+        }
+        return closureCompiler;
+    }
+
+    private static ArenaCompiler arenaCompiler() {
+        if (arenaCompiler == null) {
+            arenaCompiler = new ArenaCompiler();
+        }
+        return arenaCompiler;
+    }
+
+    /**
+     * WoowaPack 이 만든 클래스의 main 에서 호출한다.
+     * <p>
+     * image 는 {@link AstWriter} 가 만든 바이트를 한 글자에 한 바이트씩 담아 나눈 문자열들이고, compiled 는 미리 컴파일된 최상위
+     * 함수를 static 메서드로 가진 그 클래스다. 나머지 코드는 tree 엔진이 실행한다.
+     */
+    public static void runImage(String[] image, Class<?> compiled, String[] args) {
+        for (String arg : args) {
+            if (arg.equals("-O")) {
+                optimizing = true;
+            } else {
+                System.out.println("Usage: [-O]");
+                System.exit(64);
+            }
+        }
+
+        StringBuilder bytes = new StringBuilder();
+        for (String part : image) {
+            bytes.append(part);
+        }
+        Program program = AstReader.read(bytes.toString().getBytes(StandardCharsets.ISO_8859_1));
+        // 최적화하기 전의 본문으로 컴파일했으므로 먼저 붙인다.
+        Jit.link(program.statements, compiled, interpreter().globals);
+        run(program, Engine.TREE);
+
+        if (hadRuntimeError) {
+            System.exit(70);
         }
+    }
 
-        interpreter.interpret(statements);
+    // 컴파일된 코드의 숫자 출력. WoowaPack 이 만든 클래스에서도 부르므로 public 이다.
+    public static void printNumber(double value) {
+        System.out.println(Interpreter.stringify(Numbers.box(value)));
     }
 
     // 에러 처리
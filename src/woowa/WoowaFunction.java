@@ -4,21 +4,28 @@ import java.util.List;
 import woowa.Stmt.Function;
 
 public class WoowaFunction implements WoowaCallable{
-    private final Stmt.Function declaration;
-    private final Environment closure;
+    final Stmt.Function declaration;
+    // 함수가 만들어질 때 캡처한 바깥 변수들
+    final Cell[] upvalues;
+    // bind 로 묶인 인스턴스. 메서드가 아니면 null
+    final WoowaInstance receiver;
 
-    private final boolean isInitializer;
+    final boolean isInitializer;
 
-    public WoowaFunction(Function declaration, Environment closure, boolean isInitializer) {
+    public WoowaFunction(Function declaration, Cell[] upvalues, boolean isInitializer) {
+        this(declaration, upvalues, null, isInitializer);
+    }
+
+    WoowaFunction(Function declaration, Cell[] upvalues, WoowaInstance receiver,
+        boolean isInitializer) {
         this.declaration = declaration;
-        this.closure = closure;
+        this.upvalues = upvalues;
+        this.receiver = receiver;
         this.isInitializer = isInitializer;
     }
 
     WoowaFunction bind(WoowaInstance instance) {
-        Environment environment = new Environment(closure);
-        environment.define("this", instance);
-        return new WoowaFunction(declaration, environment, isInitializer);
+        return new WoowaFunction(declaration, upvalues, instance, isInitializer);
     }
 
     @Override
@@ -28,23 +35,11 @@ public class WoowaFunction implements WoowaCallable{
 
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
-        // 함수 호출을 할 때 마다 고유한 환경을 가져온다.
-        Environment environment = new Environment(closure);
-
-        for (int i = 0; i < declaration.params.size(); i++) {
-            environment.define(declaration.params.get(i).lexeme, arguments.get(i));
-        }
-        try {
-            interpreter.executeBlock(declaration.body, environment);
-        } catch (Return returnValue) {
-            if (isInitializer) {
-                return closure.getAt(0, "this");
-            }
-        }
-
-        if (isInitializer) {
-            return closure.getAt(0, "this");
-        }
-        return null;
+        return interpreter.invoke(this, interpreter.pushFrame(declaration, receiver, arguments));
+    }
+
+    @Override
+    public String toString() {
+        return "<fn " + declaration.name.lexeme + ">";
     }
 }
@@ -12,18 +12,26 @@ public class WoowaInstance {
     }
 
     Object get(Token name) {
-        if (fields.containsKey(name.lexeme)) {
-            return fields.get(name.lexeme);
+        return get(name.lexeme, name.line);
+    }
+
+    Object get(String name, int line) {
+        if (fields.containsKey(name)) {
+            return fields.get(name);
         }
-        WoowaFunction method = klass.findMethod(name.lexeme);
+        WoowaFunction method = klass.findMethod(name);
         if (method != null) {
             return method.bind(this);
         }
-        throw new RuntimeError(name, name.lexeme + "는 정의되지 않은 속성입니다.");
+        throw new RuntimeError(new Token(TokenType.IDENTIFIER, name, null, line), name + "는 정의되지 않은 속성입니다.");
     }
 
     void set(Token name, Object value) {
-        fields.put(name.lexeme, value);
+        set(name.lexeme, value);
+    }
+
+    void set(String name, Object value) {
+        fields.put(name, value);
     }
 
     @Override
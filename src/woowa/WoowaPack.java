@@ -0,0 +1,130 @@
+package woowa;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Woowa 스크립트를 리졸브까지 마친 AST 이미지로 묶어 실행 가능한 JVM 클래스 파일을 만든다.
+ * <p>
+ * 스크립트 전체를 바이트코드로 컴파일하지는 않는다. 스캔, 파싱, 리졸브까지 마친 AST 를 {@link AstWriter} 형식으로 클래스의
+ * 상수에 담아 두고, main 이 {@link Woowa#runImage} 로 tree 엔진에 넘긴다. 클래스, 최상위 문장, 숫자가 아닌 값을 다루는
+ * 함수는 평소처럼 인터프리터가 실행한다.
+ * <p>
+ * 숫자만 다루는 최상위 함수만 {@link Jit} 의 코드 생성기로 이 클래스의 static 메서드가 된다. 메서드 하나가 64KB 를 넘는
+ * 함수는 빼고 인터프리터에 맡긴다. AST 이미지나 상수 풀이 클래스 파일의 한도를 넘으면 만들지 않는다.
+ * <p>
+ * java -cp out/production/WoowaLang woowa.WoowaPack [-d 출력 폴더] examples/fibonacci.woowa
+ * java -cp out/production/WoowaLang:. fibonacci
+ */
+public class WoowaPack {
+
+    // 상수 풀 문자열 하나에 담는 바이트 수. 0 과 128 이상은 2바이트로 저장되므로 65535 바이트 제한의 절반 아래로 둔다.
+    private static final int PART_SIZE = 16 * 1024;
+
+    // JVM 명령어
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13; // 문자열과 클래스 상수
+    private static final int ALOAD_0 = 0x2a;
+    private static final int AASTORE = 0x53;
+    private static final int DUP = 0x59;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int ANEWARRAY = 0xbd;
+
+    public static void main(String[] args) throws IOException {
+        Path outputDir = Paths.get(".");
+        String script = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-d") && i + 1 < args.length) {
+                outputDir = Paths.get(args[++i]);
+            } else if (script == null) {
+                script = args[i];
+            } else {
+                usage();
+            }
+        }
+        if (script == null) {
+            usage();
+        }
+
+        Program program = Woowa.resolve(new Scanner(SourceFile.read(Paths.get(script))), false);
+        if (program == null) {
+            System.exit(65);
+        }
+
+        String className = className(Paths.get(script));
+        byte[] bytes;
+        try {
+            bytes = pack(className, program);
+        } catch (IllegalStateException e) {
+            // main 메서드나 상수 풀이 클래스 파일의 한도를 넘었다.
+            System.err.println("스크립트가 너무 큽니다. (" + e.getMessage() + ")");
+            System.exit(65);
+            return;
+        }
+        Files.createDirectories(outputDir);
+        Files.write(outputDir.resolve(className + ".class"), bytes);
+    }
+
+    private static void usage() {
+        System.out.println("Usage: woowapack [-d <output directory>] <script>");
+        System.exit(64);
+    }
+
+    // 파일 이름에서 확장자를 떼고 자바 식별자로 쓸 수 없는 글자는 '_' 로 바꾼다.
+    static String className(Path script) {
+        String name = script.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            builder.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (builder.length() == 0 || !Character.isJavaIdentifierStart(builder.charAt(0))) {
+            builder.insert(0, '_');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * public static double 함수이름(double ...) { ... } // 숫자만 다루는 최상위 함수마다
+     * public static void main(String[] args) { Woowa.runImage(new String[] {...}, 이 클래스, args); }
+     */
+    static byte[] pack(String className, Program program) {
+        String image = new String(AstWriter.write(program), StandardCharsets.ISO_8859_1);
+        int parts = (image.length() + PART_SIZE - 1) / PART_SIZE;
+        if (parts > Short.MAX_VALUE) {
+            throw new IllegalStateException("AST 이미지가 너무 큽니다.");
+        }
+
+        JvmClassWriter writer = new JvmClassWriter(className,
+            JvmClassWriter.ACC_PUBLIC | JvmClassWriter.ACC_FINAL | JvmClassWriter.ACC_SUPER);
+        Jit.compileAhead(program.statements, writer, className);
+        JvmClassWriter.MethodWriter main = writer.method(
+            JvmClassWriter.ACC_PUBLIC | JvmClassWriter.ACC_STATIC, "main", "([Ljava/lang/String;)V");
+        main.maxLocals(1);
+
+        main.op2(SIPUSH, parts, 1);
+        main.op2(ANEWARRAY, writer.classRef("java/lang/String"), 0);
+        for (int i = 0; i < parts; i++) {
+            main.op(DUP, 1);
+            main.op2(SIPUSH, i, 1);
+            String part = image.substring(i * PART_SIZE, Math.min(image.length(), (i + 1) * PART_SIZE));
+            main.op2(LDC_W, writer.string(part), 1);
+            main.op(AASTORE, -3);
+        }
+        main.op2(LDC_W, writer.classRef(className), 1);
+        main.op(ALOAD_0, 1);
+        main.op2(INVOKESTATIC, writer.methodRef("woowa/Woowa", "runImage",
+            "([Ljava/lang/String;Ljava/lang/Class;[Ljava/lang/String;)V"), -3);
+        main.op(RETURN, 0);
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,88 @@
+#!/bin/bash
+# 골든 출력 검사
+#
+# tests/*.woowa 를 실행해 표준 출력, 표준 에러, 종료 코드를 같은 이름의 .expected 파일과 비교한다.
+# 스크립트 맨 앞의 주석 줄로 실행 방법을 정한다.
+#   // 옵션: --lazy -O    인터프리터에 넘길 옵션
+#   // 캐시: 잘림|손상      한 번 실행해 .woowac 캐시를 만든 뒤 캐시를 자르거나 바이트 하나를 바꿔 다시 실행한다.
+#                          두 실행 모두 기대 출력과 같아야 한다.
+#
+# 사용법: tests/run.sh [클래스 경로]   (기본값 out/production/WoowaLang)
+# 기대 출력을 새로 만들 때는 UPDATE=1 tests/run.sh
+
+cd "$(dirname "$0")/.." || exit 1
+classpath=${1:-out/production/WoowaLang}
+java="java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -cp $classpath woowa.Woowa"
+
+directive() {
+    sed -n "s|^// $1: *||p" "$2" | head -n 1
+}
+
+# 실행 결과를 .expected 형식으로 출력한다.
+run() {
+    local script=$1 options=$2 out err status
+    out=$(mktemp)
+    err=$(mktemp)
+    $java $options "$script" < /dev/null > "$out" 2> "$err"
+    status=$?
+    cat "$out"
+    echo "--- stderr"
+    cat "$err"
+    echo "--- exit $status"
+    rm -f "$out" "$err"
+}
+
+damage() {
+    local cache=$1 how=$2 size position byte
+    size=$(wc -c < "$cache")
+    position=$((size / 2))
+    case $how in
+        잘림)
+            truncate -s "$position" "$cache"
+            ;;
+        손상)
+            byte=$(od -An -tu1 -j "$position" -N1 "$cache" | tr -d ' ')
+            printf "\\$(printf '%03o' $(((byte + 1) % 256)))" |
+                dd of="$cache" bs=1 seek="$position" conv=notrunc status=none
+            ;;
+    esac
+}
+
+passed=0
+failed=0
+for script in tests/*.woowa; do
+    expected=${script%.woowa}.expected
+    cache=${script}c
+    options=$(directive 옵션 "$script")
+    how=$(directive 캐시 "$script")
+
+    rm -f "$cache"
+    actual=$(run "$script" "$options")
+    if [ -n "$how" ]; then
+        if [ ! -f "$cache" ]; then
+            actual="$actual
+--- 캐시 파일이 만들어지지 않았습니다."
+        else
+            damage "$cache" "$how"
+            second=$(run "$script" "$options")
+            [ "$second" == "$actual" ] || actual="$actual
+--- 캐시가 $how 뒤의 실행
+$second"
+        fi
+    fi
+    rm -f "$cache"
+
+    if [ -n "$UPDATE" ]; then
+        echo "$actual" > "$expected"
+    fi
+    if [ "$actual" == "$(cat "$expected" 2>/dev/null)" ]; then
+        passed=$((passed + 1))
+    else
+        failed=$((failed + 1))
+        echo "실패: $script"
+        diff <(echo "$actual") "$expected" | sed 's/^/    /'
+    fi
+done
+
+echo "통과 $passed, 실패 $failed"
+[ "$failed" -eq 0 ]